@@ -3,6 +3,7 @@ package com.dalivim.suavitrine.suavitrine.controllers.v1;
 import com.dalivim.suavitrine.suavitrine.dtos.AuthenticationResponse;
 import com.dalivim.suavitrine.suavitrine.dtos.LoginRequest;
 import com.dalivim.suavitrine.suavitrine.dtos.RegisterRequest;
+import com.dalivim.suavitrine.suavitrine.infra.exceptions.TooManyRequestsException;
 import com.dalivim.suavitrine.suavitrine.services.AuthenticationService;
 import io.sentry.Sentry;
 import io.swagger.v3.oas.annotations.Operation;
@@ -27,12 +28,16 @@ public class AuthenticationController {
     @Operation(summary = "Registrar novo usuário", description = "Cria uma nova conta de usuário no sistema")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Usuário criado com sucesso"),
-            @ApiResponse(responseCode = "400", description = "Dados inválidos ou usuário já existe")
+            @ApiResponse(responseCode = "400", description = "Dados inválidos ou usuário já existe"),
+            @ApiResponse(responseCode = "429", description = "Muitas tentativas simultâneas, tente novamente")
     })
     public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest request) {
         try {
             AuthenticationResponse response = authenticationService.register(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (TooManyRequestsException e) {
+            // Pool de hash saturado: tratado pelo GlobalExceptionHandler (429 + Retry-After)
+            throw e;
         } catch (RuntimeException e) {
             Sentry.captureException(e);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -50,12 +55,16 @@ public class AuthenticationController {
     @Operation(summary = "Login de usuário", description = "Autentica um usuário e retorna um token JWT")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Login realizado com sucesso"),
-            @ApiResponse(responseCode = "401", description = "Email ou senha inválidos")
+            @ApiResponse(responseCode = "401", description = "Email ou senha inválidos"),
+            @ApiResponse(responseCode = "429", description = "Muitas tentativas simultâneas, tente novamente")
     })
     public ResponseEntity<?> login(@Valid @RequestBody LoginRequest request) {
         try {
             AuthenticationResponse response = authenticationService.login(request);
             return ResponseEntity.ok(response);
+        } catch (TooManyRequestsException e) {
+            // Pool de hash saturado: tratado pelo GlobalExceptionHandler (429 + Retry-After)
+            throw e;
         } catch (RuntimeException e) {
             Sentry.captureException(e);
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
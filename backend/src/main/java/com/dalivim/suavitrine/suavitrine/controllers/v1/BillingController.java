@@ -1,7 +1,7 @@
 package com.dalivim.suavitrine.suavitrine.controllers.v1;
 
 import java.io.IOException;
-import java.util.stream.Collectors;
+import java.nio.charset.StandardCharsets;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,8 +10,8 @@ import org.springframework.web.bind.annotation.*;
 import com.dalivim.suavitrine.suavitrine.dtos.BillingResponse;
 import com.dalivim.suavitrine.suavitrine.dtos.CreateBillingRequest;
 import com.dalivim.suavitrine.suavitrine.dtos.WebhookPayload;
-import com.dalivim.suavitrine.suavitrine.infra.exceptions.IllegalUserArgumentException;
 import com.dalivim.suavitrine.suavitrine.services.billing.AbacateBillingService;
+import com.dalivim.suavitrine.suavitrine.services.billing.BillingWebhookInboxService;
 import com.dalivim.suavitrine.suavitrine.services.billing.IBillingService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.sentry.Sentry;
@@ -33,6 +33,7 @@ public class BillingController {
 
     private final IBillingService billingService;
     private final AbacateBillingService abacateBillingService;
+    private final BillingWebhookInboxService billingWebhookInboxService;
     private final ObjectMapper objectMapper;
 
     /**
@@ -66,13 +67,9 @@ public class BillingController {
                 request.getRemoteAddr(), request.getHeader("User-Agent"));
         
         try {
-            // Ler o corpo bruto da requisição do InputStream
+            // Ler o corpo bruto exatamente como veio (a assinatura HMAC é sobre esses bytes)
             log.debug("Lendo corpo bruto da requisição");
-            String rawBody;
-            try (var reader = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(request.getInputStream(), java.nio.charset.StandardCharsets.UTF_8))) {
-                rawBody = reader.lines().collect(Collectors.joining("\n"));
-            }
+            String rawBody = new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
             log.debug("Corpo da requisição lido. Tamanho: {} caracteres", rawBody.length());
 
             // Validar webhookSecret
@@ -104,20 +101,24 @@ public class BillingController {
             log.info("Payload parseado com sucesso. Webhook ID: {}, Evento: {}", 
                     webhookPayload.id(), webhookPayload.event());
 
-            // Processar o webhook
-            log.debug("Iniciando processamento do webhook");
-            abacateBillingService.processWebhook(webhookPayload);
-            log.info("Webhook processado com sucesso. Webhook ID: {}", webhookPayload.id());
+            if (webhookPayload.id() == null || webhookPayload.id().isBlank()) {
+                log.warn("Webhook rejeitado: payload sem ID. IP: {}", request.getRemoteAddr());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+
+            // Gravar na inbox; o processamento é feito em seguida, fora desta requisição
+            boolean accepted = billingWebhookInboxService.receive(webhookPayload.id(), webhookPayload.event(), rawBody);
+            if (accepted) {
+                log.info("Webhook gravado na inbox. Webhook ID: {}", webhookPayload.id());
+            } else {
+                log.info("Webhook repetido ignorado. Webhook ID: {}", webhookPayload.id());
+            }
 
             return ResponseEntity.ok().build();
         } catch (IOException e) {
             Sentry.captureException(e);
             log.error("Erro de IO ao processar webhook: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
-        } catch (IllegalUserArgumentException e) {
-            Sentry.captureException(e);
-            log.error("Argumento inválido no webhook: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (Exception e) {
             Sentry.captureException(e);
             log.error("Erro inesperado ao processar webhook: {}", e.getMessage(), e);
@@ -1,16 +1,21 @@
 package com.dalivim.suavitrine.suavitrine.controllers.v1;
 
+import com.dalivim.suavitrine.suavitrine.dtos.CategoryImageRequest;
 import com.dalivim.suavitrine.suavitrine.dtos.CategoryResponse;
 import com.dalivim.suavitrine.suavitrine.dtos.CreateCategoryRequest;
+import com.dalivim.suavitrine.suavitrine.dtos.ImageUploadTarget;
 import com.dalivim.suavitrine.suavitrine.dtos.UpdateCategoryRequest;
 import com.dalivim.suavitrine.suavitrine.services.CategoryService;
+import com.dalivim.suavitrine.suavitrine.services.ImageService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 import java.util.UUID;
@@ -23,6 +28,7 @@ import java.util.UUID;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final ImageService imageService;
 
     /**
      * Cria uma nova categoria
@@ -49,6 +55,41 @@ public class CategoryController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Cria uma nova categoria com a imagem em multipart/form-data (sem base64)
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Criar categoria (multipart)", description = "Cria uma nova categoria; a parte category é o JSON da categoria e a parte image o arquivo (apenas OWNER e MANAGER)")
+    public ResponseEntity<CategoryResponse> createCategoryMultipart(
+            @RequestPart("category") CreateCategoryRequest request,
+            @RequestPart(value = "image", required = false) MultipartFile image
+    ) {
+        CategoryResponse response = imageService.withUploadedImages(
+                request.storeId(),
+                List.of(new ImageService.MultipartImage(ImageUploadTarget.CATEGORY_IMAGE, image)),
+                keys -> categoryService.createCategory(request.withImage(imageRequest(image, keys.get(0), request.image()))));
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * Atualiza uma categoria com a imagem em multipart/form-data (sem base64)
+     */
+    @PutMapping(value = "/{categoryId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Atualizar categoria (multipart)", description = "Atualiza uma categoria; a parte category é o JSON da categoria e a parte image o novo arquivo (apenas OWNER e MANAGER)")
+    public ResponseEntity<CategoryResponse> updateCategoryMultipart(
+            @PathVariable UUID categoryId,
+            @RequestPart("category") UpdateCategoryRequest request,
+            @RequestPart(value = "image", required = false) MultipartFile image
+    ) {
+        // Permissão antes de qualquer busca ou arquivo, com ou sem imagem
+        UUID storeId = categoryService.getEditableStoreId(categoryId);
+        CategoryResponse response = imageService.withUploadedImages(
+                storeId,
+                List.of(new ImageService.MultipartImage(ImageUploadTarget.CATEGORY_IMAGE, image)),
+                keys -> categoryService.updateCategory(categoryId, request.withImage(imageRequest(image, keys.get(0), request.image()))));
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Busca uma categoria por ID
      */
@@ -78,5 +119,14 @@ public class CategoryController {
         categoryService.deleteCategory(categoryId);
         return ResponseEntity.noContent().build();
     }
-}
 
+    /**
+     * Imagem enviada na parte multipart; sem arquivo, mantém a do JSON
+     */
+    private CategoryImageRequest imageRequest(MultipartFile image, String key, CategoryImageRequest fallback) {
+        if (key == null) {
+            return fallback;
+        }
+        return new CategoryImageRequest(null, image.getOriginalFilename(), image.getContentType(), key);
+    }
+}
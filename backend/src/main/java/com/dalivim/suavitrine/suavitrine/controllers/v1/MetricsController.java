@@ -1,20 +1,22 @@
 package com.dalivim.suavitrine.suavitrine.controllers.v1;
 
 import com.dalivim.suavitrine.suavitrine.dtos.StoreEventRequest;
-import com.dalivim.suavitrine.suavitrine.dtos.StoreEventResponse;
 import com.dalivim.suavitrine.suavitrine.dtos.StoreMetricsResponse;
 import com.dalivim.suavitrine.suavitrine.entities.StoreEvent;
 import com.dalivim.suavitrine.suavitrine.services.MetricsService;
+import com.dalivim.suavitrine.suavitrine.services.StoreEventIngestionService;
 import com.dalivim.suavitrine.suavitrine.services.StoreService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.util.UUID;
 
 @RestController
@@ -25,17 +27,18 @@ import java.util.UUID;
 public class MetricsController {
 
     private final MetricsService metricsService;
+    private final StoreEventIngestionService storeEventIngestionService;
     private final StoreService storeService;
 
     @PostMapping("/events")
-    @Operation(summary = "Registrar evento de métrica", description = "Registra um novo evento para análise de métricas")
-    public ResponseEntity<StoreEventResponse> createEvent(
+    @Operation(summary = "Registrar evento de métrica", description = "Enfileira um novo evento para análise de métricas (gravado de forma assíncrona)")
+    public ResponseEntity<Void> createEvent(
             @RequestBody StoreEventRequest request) {
         
-        UUID storeId = storeService.getCurrentUserStore().getId();
-        StoreEventResponse response = metricsService.createEvent(storeId, request);
+        UUID storeId = storeService.getCurrentUserStoreId();
+        storeEventIngestionService.enqueue(storeId, request);
         
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return ResponseEntity.accepted().build();
     }
 
     @GetMapping("/store/{storeId}")
@@ -45,7 +48,7 @@ public class MetricsController {
             @RequestParam(defaultValue = "30") int days) {
         
         // Verificar se o usuário tem acesso à loja
-        UUID userStoreId = storeService.getCurrentUserStore().getId();
+        UUID userStoreId = storeService.getCurrentUserStoreId();
         if (!userStoreId.equals(storeId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
@@ -60,7 +63,7 @@ public class MetricsController {
             @PathVariable UUID storeId) {
         
         // Verificar se o usuário tem acesso à loja
-        UUID userStoreId = storeService.getCurrentUserStore().getId();
+        UUID userStoreId = storeService.getCurrentUserStoreId();
         if (!userStoreId.equals(storeId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
@@ -69,9 +72,22 @@ public class MetricsController {
         return ResponseEntity.ok(metrics);
     }
 
+    @PostMapping(value = "/events/batch/{storeId}", consumes = {MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Registrar lote de eventos", description = "Recebe um array JSON de eventos do tracker da vitrine (inclusive via navigator.sendBeacon, como text/plain) e enfileira todos de uma vez")
+    public ResponseEntity<Void> recordEventBatch(
+            @PathVariable UUID storeId,
+            HttpServletRequest httpRequest) throws IOException {
+
+        // Corpo lido pelo serviço com limite em bytes, sem materializar lotes grandes
+        storeEventIngestionService.enqueueBatch(storeId, httpRequest.getInputStream(),
+                httpRequest.getContentLengthLong(), httpRequest.getHeader("User-Agent"));
+
+        return ResponseEntity.noContent().build();
+    }
+
     @PostMapping("/events/store-access/{storeId}")
     @Operation(summary = "Registrar acesso à loja", description = "Registra um acesso à página da loja")
-    public ResponseEntity<StoreEventResponse> recordStoreAccess(
+    public ResponseEntity<Void> recordStoreAccess(
             @PathVariable UUID storeId,
             HttpServletRequest httpRequest) {
         
@@ -82,14 +98,14 @@ public class MetricsController {
                 .metadata("{\"userAgent\":\"" + httpRequest.getHeader("User-Agent") + "\"}")
                 .build();
         
-        StoreEventResponse response = metricsService.createEvent(storeId, request);
+        storeEventIngestionService.enqueue(storeId, request);
         
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return ResponseEntity.accepted().build();
     }
 
     @PostMapping("/events/product-click/{storeId}/{productId}")
     @Operation(summary = "Registrar clique em produto", description = "Registra um clique em um produto específico")
-    public ResponseEntity<StoreEventResponse> recordProductClick(
+    public ResponseEntity<Void> recordProductClick(
             @PathVariable UUID storeId,
             @PathVariable UUID productId,
             HttpServletRequest httpRequest) {
@@ -101,14 +117,14 @@ public class MetricsController {
                 .metadata("{\"userAgent\":\"" + httpRequest.getHeader("User-Agent") + "\"}")
                 .build();
         
-        StoreEventResponse response = metricsService.createEvent(storeId, request);
+        storeEventIngestionService.enqueue(storeId, request);
         
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return ResponseEntity.accepted().build();
     }
 
     @PostMapping("/events/product-conversion/{storeId}/{productId}")
     @Operation(summary = "Registrar conversão de produto", description = "Registra uma conversão (compra/contato) de um produto")
-    public ResponseEntity<StoreEventResponse> recordProductConversion(
+    public ResponseEntity<Void> recordProductConversion(
             @PathVariable UUID storeId,
             @PathVariable UUID productId,
             @RequestBody(required = false) String conversionData,
@@ -121,14 +137,14 @@ public class MetricsController {
                 .metadata(conversionData != null ? conversionData : "{\"type\":\"conversion\"}")
                 .build();
         
-        StoreEventResponse response = metricsService.createEvent(storeId, request);
+        storeEventIngestionService.enqueue(storeId, request);
         
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return ResponseEntity.accepted().build();
     }
 
     @PostMapping("/events/category-click/{storeId}/{categoryId}")
     @Operation(summary = "Registrar clique em categoria", description = "Registra um clique em uma categoria específica")
-    public ResponseEntity<StoreEventResponse> recordCategoryClick(
+    public ResponseEntity<Void> recordCategoryClick(
             @PathVariable UUID storeId,
             @PathVariable UUID categoryId,
             HttpServletRequest httpRequest) {
@@ -140,18 +156,18 @@ public class MetricsController {
                 .metadata("{\"userAgent\":\"" + httpRequest.getHeader("User-Agent") + "\"}")
                 .build();
         
-        StoreEventResponse response = metricsService.createEvent(storeId, request);
+        storeEventIngestionService.enqueue(storeId, request);
         
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return ResponseEntity.accepted().build();
     }
 
     @PostMapping("/events/category-access/{categoryId}")
     @Operation(summary = "Registrar acesso à categoria", description = "Registra um acesso à página de uma categoria")
-    public ResponseEntity<StoreEventResponse> recordCategoryAccess(
+    public ResponseEntity<Void> recordCategoryAccess(
             @PathVariable UUID categoryId,
             HttpServletRequest httpRequest) {
         
-        UUID storeId = storeService.getCurrentUserStore().getId();
+        UUID storeId = storeService.getCurrentUserStoreId();
         
         StoreEventRequest request = StoreEventRequest.builder()
                 .eventType(StoreEvent.EventType.CATEGORY_ACCESS)
@@ -160,8 +176,8 @@ public class MetricsController {
                 .metadata("{\"userAgent\":\"" + httpRequest.getHeader("User-Agent") + "\"}")
                 .build();
         
-        StoreEventResponse response = metricsService.createEvent(storeId, request);
+        storeEventIngestionService.enqueue(storeId, request);
         
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return ResponseEntity.accepted().build();
     }
 }
\ No newline at end of file
@@ -1,17 +1,25 @@
 package com.dalivim.suavitrine.suavitrine.controllers.v1;
 
 import com.dalivim.suavitrine.suavitrine.dtos.CreateProductRequest;
+import com.dalivim.suavitrine.suavitrine.dtos.ImageUploadTarget;
+import com.dalivim.suavitrine.suavitrine.dtos.ProductGenericRequest;
+import com.dalivim.suavitrine.suavitrine.dtos.ProductImageRequest;
 import com.dalivim.suavitrine.suavitrine.dtos.ProductResponse;
 import com.dalivim.suavitrine.suavitrine.dtos.UpdateProductRequest;
+import com.dalivim.suavitrine.suavitrine.infra.exceptions.IllegalUserArgumentException;
+import com.dalivim.suavitrine.suavitrine.services.ImageService;
 import com.dalivim.suavitrine.suavitrine.services.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -23,6 +31,7 @@ import java.util.UUID;
 public class ProductController {
 
     private final ProductService productService;
+    private final ImageService imageService;
 
     /**
      * Cria um novo produto
@@ -49,6 +58,74 @@ public class ProductController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Cria um novo produto com as imagens em multipart/form-data (sem base64)
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Criar produto (multipart)", description = "Cria um novo produto; a parte product é o JSON do produto e as partes images são os arquivos, na ordem de exibição (apenas OWNER e MANAGER)")
+    public ResponseEntity<ProductResponse> createProductMultipart(
+            @RequestPart("product") CreateProductRequest request,
+            @RequestPart(value = "images", required = false) List<MultipartFile> images
+    ) {
+        List<MultipartFile> files = images != null ? images : List.of();
+        ProductResponse response = imageService.withUploadedImages(
+                request.storeId(),
+                files.stream().map(file -> new ImageService.MultipartImage(ImageUploadTarget.PRODUCT_IMAGE, file)).toList(),
+                keys -> {
+                    List<ProductImageRequest> imageRequests = new ArrayList<>();
+                    for (int i = 0; i < keys.size(); i++) {
+                        if (keys.get(i) != null) {
+                            MultipartFile file = files.get(i);
+                            imageRequests.add(new ProductImageRequest(
+                                    null, file.getOriginalFilename(), file.getContentType(), imageRequests.size(), keys.get(i)));
+                        }
+                    }
+                    return productService.createProduct(request.withImages(imageRequests));
+                });
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * Atualiza um produto com as novas imagens em multipart/form-data (sem base64)
+     */
+    @PutMapping(value = "/{productId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Atualizar produto (multipart)", description = "Atualiza um produto; em product.images cada item sem existingImage usa a próxima parte images, na ordem (apenas OWNER e MANAGER)")
+    public ResponseEntity<ProductResponse> updateProductMultipart(
+            @PathVariable UUID productId,
+            @RequestPart("product") UpdateProductRequest request,
+            @RequestPart(value = "images", required = false) List<MultipartFile> images
+    ) {
+        // Permissão antes de qualquer busca ou arquivo, com ou sem imagens
+        UUID storeId = productService.getEditableStoreId(productId);
+
+        List<MultipartFile> files = images != null ? images : List.of();
+        List<ProductGenericRequest> imageRequests = request.images() != null ? request.images() : List.of();
+        long newImagesCount = imageRequests.stream().filter(image -> image.existingImage() == null).count();
+        if (newImagesCount != files.size()) {
+            throw new IllegalUserArgumentException("Quantidade de arquivos diferente das novas imagens do produto.");
+        }
+
+        ProductResponse response = imageService.withUploadedImages(
+                storeId,
+                files.stream().map(file -> new ImageService.MultipartImage(ImageUploadTarget.PRODUCT_IMAGE, file)).toList(),
+                keys -> {
+                    List<ProductGenericRequest> merged = new ArrayList<>();
+                    int fileIndex = 0;
+                    for (ProductGenericRequest imageRequest : imageRequests) {
+                        if (imageRequest.existingImage() != null) {
+                            merged.add(imageRequest);
+                            continue;
+                        }
+                        MultipartFile file = files.get(fileIndex);
+                        merged.add(new ProductGenericRequest(null, new ProductImageRequest(
+                                null, file.getOriginalFilename(), file.getContentType(), null, keys.get(fileIndex))));
+                        fileIndex++;
+                    }
+                    return productService.updateProduct(productId, request.withImages(merged));
+                });
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Busca um produto por ID
      */
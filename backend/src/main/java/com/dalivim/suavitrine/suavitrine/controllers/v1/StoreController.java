@@ -2,6 +2,7 @@ package com.dalivim.suavitrine.suavitrine.controllers.v1;
 
 import com.dalivim.suavitrine.suavitrine.dtos.*;
 import com.dalivim.suavitrine.suavitrine.infra.security.JwtService;
+import com.dalivim.suavitrine.suavitrine.services.ImageService;
 import com.dalivim.suavitrine.suavitrine.services.StoreService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -9,8 +10,10 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 import java.util.UUID;
@@ -22,6 +25,7 @@ import java.util.UUID;
 public class StoreController {
 
     private final StoreService storeService;
+    private final ImageService imageService;
     private final JwtService jwtService;
 
     /**
@@ -34,7 +38,7 @@ public class StoreController {
     public ResponseEntity<StoreResponse> createStore(
             @RequestBody @Valid CreateStoreRequest request
     ) {
-        var userId = jwtService.getCurrentAuthenticatedUser().getId();
+        var userId = jwtService.getCurrentAuthenticatedUser().id();
         StoreResponse response = storeService.createStore(request, userId);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
@@ -53,6 +57,24 @@ public class StoreController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Atualiza uma loja com o logo em multipart/form-data (sem base64)
+     */
+    @PutMapping(value = "/{storeId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Atualizar loja (multipart)", description = "Atualiza os dados de uma loja; a parte store é o JSON da loja e a parte logo o arquivo (apenas OWNER e MANAGER)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<StoreResponse> updateStoreMultipart(
+            @PathVariable UUID storeId,
+            @RequestPart("store") UpdateStoreRequest request,
+            @RequestPart(value = "logo", required = false) MultipartFile logo
+    ) {
+        StoreResponse response = imageService.withUploadedImages(
+                storeId,
+                List.of(new ImageService.MultipartImage(ImageUploadTarget.STORE_LOGO, logo)),
+                keys -> storeService.updateStore(storeId, request.withLogo(imageRequest(logo, keys.get(0), request.logo()))));
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Atualiza apenas a configuração de background de uma loja
      * Requer plano BASIC ou superior
@@ -82,6 +104,34 @@ public class StoreController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Atualiza a configuração de tema com logo e banners em multipart/form-data (sem base64)
+     */
+    @PutMapping(value = "/{storeId}/theme", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Atualizar configuração de tema (multipart)", description = "Atualiza o tema da loja; a parte theme é o JSON do tema e as partes logo, bannerDesktop, bannerTablet e bannerMobile os arquivos (apenas OWNER e MANAGER)")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<StoreResponse> updateThemeConfigMultipart(
+            @PathVariable UUID storeId,
+            @RequestPart("theme") UpdateThemeConfigRequest request,
+            @RequestPart(value = "logo", required = false) MultipartFile logo,
+            @RequestPart(value = "bannerDesktop", required = false) MultipartFile bannerDesktop,
+            @RequestPart(value = "bannerTablet", required = false) MultipartFile bannerTablet,
+            @RequestPart(value = "bannerMobile", required = false) MultipartFile bannerMobile
+    ) {
+        StoreResponse response = imageService.withUploadedImages(
+                storeId,
+                List.of(new ImageService.MultipartImage(ImageUploadTarget.STORE_LOGO, logo),
+                        new ImageService.MultipartImage(ImageUploadTarget.STORE_BANNER, bannerDesktop),
+                        new ImageService.MultipartImage(ImageUploadTarget.STORE_BANNER, bannerTablet),
+                        new ImageService.MultipartImage(ImageUploadTarget.STORE_BANNER, bannerMobile)),
+                keys -> storeService.updateThemeConfig(storeId, request.withImages(
+                        imageRequest(logo, keys.get(0), request.logo()),
+                        imageRequest(bannerDesktop, keys.get(1), request.bannerDesktop()),
+                        imageRequest(bannerTablet, keys.get(2), request.bannerTablet()),
+                        imageRequest(bannerMobile, keys.get(3), request.bannerMobile()))));
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Busca uma loja por ID
      */
@@ -172,5 +222,14 @@ public class StoreController {
         boolean isAvailable = storeService.isSlugAvailable(slug);
         return ResponseEntity.ok(isAvailable);
     }
-}
 
+    /**
+     * Imagem enviada na parte multipart; sem arquivo, mantém a do JSON
+     */
+    private BannerImageRequest imageRequest(MultipartFile file, String key, BannerImageRequest fallback) {
+        if (key == null) {
+            return fallback;
+        }
+        return new BannerImageRequest(null, file.getOriginalFilename(), file.getContentType(), key);
+    }
+}
@@ -0,0 +1,48 @@
+package com.dalivim.suavitrine.suavitrine.controllers.v1;
+
+import com.dalivim.suavitrine.suavitrine.dtos.ConfirmImageUploadRequest;
+import com.dalivim.suavitrine.suavitrine.dtos.ConfirmImageUploadResponse;
+import com.dalivim.suavitrine.suavitrine.dtos.CreateImageUploadRequest;
+import com.dalivim.suavitrine.suavitrine.dtos.ImageUploadResponse;
+import com.dalivim.suavitrine.suavitrine.services.ImageService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/uploads")
+@RequiredArgsConstructor
+@Tag(name = "Uploads", description = "Upload direto de imagens para o storage")
+@SecurityRequirement(name = "bearerAuth")
+public class UploadController {
+
+    private final ImageService imageService;
+
+    /**
+     * Gera a URL para o navegador enviar a imagem direto ao storage
+     */
+    @PostMapping("/images")
+    @Operation(summary = "Iniciar upload de imagem", description = "Retorna uma URL de PUT de curta duração para enviar a imagem (JPG ou PNG, até 5MB) direto ao storage (apenas OWNER e MANAGER)")
+    public ResponseEntity<ImageUploadResponse> createImageUpload(
+            @RequestBody CreateImageUploadRequest request
+    ) {
+        ImageUploadResponse response = imageService.createImageUpload(request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * Confere a imagem enviada ao storage
+     */
+    @PostMapping("/images/confirm")
+    @Operation(summary = "Confirmar upload de imagem", description = "Confere tamanho e formato da imagem enviada e retorna a KEY para usar em uploadKey (apenas OWNER e MANAGER)")
+    public ResponseEntity<ConfirmImageUploadResponse> confirmImageUpload(
+            @RequestBody ConfirmImageUploadRequest request
+    ) {
+        ConfirmImageUploadResponse response = imageService.confirmImageUpload(request);
+        return ResponseEntity.ok(response);
+    }
+}
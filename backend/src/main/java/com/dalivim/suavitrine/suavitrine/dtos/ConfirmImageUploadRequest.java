@@ -0,0 +1,10 @@
+package com.dalivim.suavitrine.suavitrine.dtos;
+
+import java.util.UUID;
+
+public record ConfirmImageUploadRequest(
+        UUID storeId,
+        ImageUploadTarget target,
+        String key
+) {
+}
@@ -0,0 +1,7 @@
+package com.dalivim.suavitrine.suavitrine.dtos;
+
+public record ConfirmImageUploadResponse(
+        String key,
+        String url
+) {
+}
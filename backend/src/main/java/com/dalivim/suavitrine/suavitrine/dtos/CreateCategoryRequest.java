@@ -8,5 +8,8 @@ public record CreateCategoryRequest(
         UUID storeId,
         CategoryImageRequest image
 ) {
-}
 
+    public CreateCategoryRequest withImage(CategoryImageRequest newImage) {
+        return new CreateCategoryRequest(name, description, storeId, newImage);
+    }
+}
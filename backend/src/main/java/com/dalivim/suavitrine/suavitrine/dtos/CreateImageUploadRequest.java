@@ -0,0 +1,12 @@
+package com.dalivim.suavitrine.suavitrine.dtos;
+
+import java.util.UUID;
+
+public record CreateImageUploadRequest(
+        UUID storeId,
+        ImageUploadTarget target,
+        String fileName,
+        String contentType,
+        Long contentLength
+) {
+}
@@ -16,5 +16,12 @@ public record CreateProductRequest(
         List<ProductImageRequest> images,
         List<ProductVariationRequest> variations
 ) {
-}
 
+    /**
+     * Cópia com outras imagens (ex.: as enviadas por multipart)
+     */
+    public CreateProductRequest withImages(List<ProductImageRequest> newImages) {
+        return new CreateProductRequest(title, price, promotionalPrice, showPromotionBadge, description, storeId,
+                categoryId, displayOrder, available, newImages, variations);
+    }
+}
@@ -0,0 +1,17 @@
+package com.dalivim.suavitrine.suavitrine.dtos;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * URL para o navegador enviar o arquivo direto ao storage (PUT com exatamente
+ * os headers informados). Depois do envio, a KEY vai em uploadKey da imagem.
+ */
+public record ImageUploadResponse(
+        String key,
+        String uploadUrl,
+        String method,
+        Map<String, String> headers,
+        Instant expiresAt
+) {
+}
@@ -0,0 +1,22 @@
+package com.dalivim.suavitrine.suavitrine.dtos;
+
+/**
+ * Destino de um upload direto para o storage; define o prefixo da KEY gerada.
+ * Cada destino tem o seu prefixo, para que uma KEY só seja aceita no destino para o qual foi gerada.
+ */
+public enum ImageUploadTarget {
+    PRODUCT_IMAGE("products/"),
+    CATEGORY_IMAGE("categories/"),
+    STORE_BANNER("stores/banners/"),
+    STORE_LOGO("stores/logos/");
+
+    private final String keyPrefix;
+
+    ImageUploadTarget(String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+}
@@ -4,7 +4,8 @@ public record ProductImageRequest(
         String base64Image,
         String fileName,
         String contentType,
-        Integer displayOrder
+        Integer displayOrder,
+        String uploadKey
 ) {
 }
 
@@ -18,6 +18,9 @@ public class StoreMetricsResponse {
     private String storeName;
     private Instant startDate;
     private Instant endDate;
+
+    // Tamanho de cada ponto de dailyMetrics: HOUR, DAY ou MONTH
+    private String resolution;
     
     // Métricas gerais
     private Long totalAccesses;
@@ -26,7 +29,7 @@ public class StoreMetricsResponse {
     private Long totalCategoryClicks;
     private Long totalCategoryAccesses;
     
-    // Métricas por dia (últimos 30 dias)
+    // Série temporal do período, um ponto por bucket da resolução
     private List<DailyMetrics> dailyMetrics;
     
     // Top produtos
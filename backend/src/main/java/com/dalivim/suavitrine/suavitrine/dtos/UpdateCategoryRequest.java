@@ -6,5 +6,8 @@ public record UpdateCategoryRequest(
         CategoryImageRequest image,
         Boolean imageDelete
 ) {
-}
 
+    public UpdateCategoryRequest withImage(CategoryImageRequest newImage) {
+        return new UpdateCategoryRequest(name, description, newImage, imageDelete);
+    }
+}
@@ -15,5 +15,12 @@ public record UpdateProductRequest(
         List<ProductGenericRequest> images,
         List<ProductVariationRequest> variations
 ) {
-}
 
+    /**
+     * Cópia com outras imagens (ex.: as enviadas por multipart)
+     */
+    public UpdateProductRequest withImages(List<ProductGenericRequest> newImages) {
+        return new UpdateProductRequest(title, price, promotionalPrice, showPromotionBadge, description, categoryId,
+                displayOrder, available, newImages, variations);
+    }
+}
@@ -14,5 +14,9 @@ public record UpdateStoreRequest(
         String facebook,
         BannerImageRequest logo
 ) {
-}
 
+    public UpdateStoreRequest withLogo(BannerImageRequest newLogo) {
+        return new UpdateStoreRequest(name, slug, description, street, city, state, zipCode, phoneNumber, email,
+                instagram, facebook, newLogo);
+    }
+}
@@ -25,4 +25,16 @@ public record UpdateThemeConfigRequest(
                 Double backgroundOpacity,
                 String backgroundColor,
                 String backgroundConfigJson) {
+
+        /**
+         * Cópia com outras imagens (ex.: as enviadas por multipart)
+         */
+        public UpdateThemeConfigRequest withImages(BannerImageRequest newLogo, BannerImageRequest newBannerDesktop,
+                        BannerImageRequest newBannerTablet, BannerImageRequest newBannerMobile) {
+                return new UpdateThemeConfigRequest(name, description, primaryColor, themeMode, primaryFont,
+                                secondaryFont, roundedLevel, productCardShadow, newLogo, newBannerDesktop,
+                                newBannerTablet, newBannerMobile, bannerDesktopDelete, bannerTabletDelete,
+                                bannerMobileDelete, backgroundType, backgroundEnabled, backgroundOpacity,
+                                backgroundColor, backgroundConfigJson);
+        }
 }
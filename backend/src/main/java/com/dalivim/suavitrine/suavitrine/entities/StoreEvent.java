@@ -11,9 +11,8 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Entity
+// Particionada por mês de created_at (V28); a PK no banco é (id, created_at)
 @Table(name = "store_events", indexes = {
-    @Index(name = "idx_store_events_store_id", columnList = "store_id"),
-    @Index(name = "idx_store_events_event_type", columnList = "event_type"),
     @Index(name = "idx_store_events_created_at", columnList = "created_at"),
     @Index(name = "idx_store_events_store_type_date", columnList = "store_id, event_type, created_at")
 })
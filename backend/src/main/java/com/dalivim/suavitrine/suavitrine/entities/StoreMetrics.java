@@ -58,12 +58,12 @@ public class StoreMetrics {
     @Builder.Default
     private Integer categoryAccesses = 0;
 
-    // Top produtos do dia (JSON com array de {productId, clicks, conversions})
-    @Column(name = "top_products", length = 2000)
+    // Top produtos do dia (JSON {"clicks": [{id, count, error}], "conversions": [...]})
+    @Column(name = "top_products", columnDefinition = "TEXT")
     private String topProducts;
 
-    // Top categorias do dia (JSON com array de {categoryId, clicks, accesses})
-    @Column(name = "top_categories", length = 2000)
+    // Top categorias do dia (JSON {"clicks": [{id, count, error}], "accesses": [...]})
+    @Column(name = "top_categories", columnDefinition = "TEXT")
     private String topCategories;
 
     @CreationTimestamp
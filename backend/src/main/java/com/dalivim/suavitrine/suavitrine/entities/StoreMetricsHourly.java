@@ -0,0 +1,70 @@
+package com.dalivim.suavitrine.suavitrine.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "store_metrics_hourly", indexes = {
+    @Index(name = "idx_store_metrics_hourly_hour", columnList = "hour")
+})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StoreMetricsHourly {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "store_id", nullable = false)
+    private Store store;
+
+    @Column(name = "hour", nullable = false)
+    private Instant hour; // Início da hora (UTC)
+
+    @Column(name = "accesses", nullable = false)
+    @Builder.Default
+    private Integer accesses = 0;
+
+    @Column(name = "product_clicks", nullable = false)
+    @Builder.Default
+    private Integer productClicks = 0;
+
+    @Column(name = "product_conversions", nullable = false)
+    @Builder.Default
+    private Integer productConversions = 0;
+
+    @Column(name = "category_clicks", nullable = false)
+    @Builder.Default
+    private Integer categoryClicks = 0;
+
+    @Column(name = "category_accesses", nullable = false)
+    @Builder.Default
+    private Integer categoryAccesses = 0;
+
+    // Mesmo formato JSON de StoreMetrics.topProducts
+    @Column(name = "top_products", columnDefinition = "TEXT")
+    private String topProducts;
+
+    // Mesmo formato JSON de StoreMetrics.topCategories
+    @Column(name = "top_categories", columnDefinition = "TEXT")
+    private String topCategories;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
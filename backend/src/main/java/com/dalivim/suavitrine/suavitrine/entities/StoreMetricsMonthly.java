@@ -0,0 +1,71 @@
+package com.dalivim.suavitrine.suavitrine.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Entity
+@Table(name = "store_metrics_monthly", indexes = {
+    @Index(name = "idx_store_metrics_monthly_month", columnList = "month")
+})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StoreMetricsMonthly {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "store_id", nullable = false)
+    private Store store;
+
+    @Column(name = "month", nullable = false)
+    private LocalDate month; // Primeiro dia do mês (UTC)
+
+    @Column(name = "accesses", nullable = false)
+    @Builder.Default
+    private Long accesses = 0L;
+
+    @Column(name = "product_clicks", nullable = false)
+    @Builder.Default
+    private Long productClicks = 0L;
+
+    @Column(name = "product_conversions", nullable = false)
+    @Builder.Default
+    private Long productConversions = 0L;
+
+    @Column(name = "category_clicks", nullable = false)
+    @Builder.Default
+    private Long categoryClicks = 0L;
+
+    @Column(name = "category_accesses", nullable = false)
+    @Builder.Default
+    private Long categoryAccesses = 0L;
+
+    // Mesmo formato JSON de StoreMetrics.topProducts
+    @Column(name = "top_products", columnDefinition = "TEXT")
+    private String topProducts;
+
+    // Mesmo formato JSON de StoreMetrics.topCategories
+    @Column(name = "top_categories", columnDefinition = "TEXT")
+    private String topCategories;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
@@ -45,6 +45,10 @@ public class User implements UserDetails {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Só muda via UserRepository.incrementMembershipVersion
+    @Column(name = "membership_version", nullable = false, updatable = false)
+    private long membershipVersion;
+
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
@@ -0,0 +1,58 @@
+package com.dalivim.suavitrine.suavitrine.entities.billing;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Webhook da Abacate Pay recebido e com assinatura validada (ver V31).
+ * O payload bruto é processado depois, em ordem de chegada, pelo BillingWebhookInboxService.
+ */
+@Entity
+@Table(name = "billing_webhook_inbox")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BillingWebhookInbox {
+
+    public enum Status {
+        PENDING,
+        PROCESSED,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "webhook_id", nullable = false, unique = true)
+    private String webhookId;
+
+    private String event;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "received_at", nullable = false, updatable = false)
+    private Instant receivedAt;
+
+    @Column(name = "processed_at")
+    private Instant processedAt;
+}
@@ -0,0 +1,148 @@
+package com.dalivim.suavitrine.suavitrine.infra.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+/**
+ * Cache em memória limitado por quantidade de entradas (LRU) e com expiração
+ * por entrada.
+ * Usado nos caminhos quentes de leitura para evitar idas repetidas ao banco ou
+ * ao storage. Os contadores de hit/miss/eviction podem ser publicados no
+ * MeterRegistry do actuator via {@link #bindTo(MeterRegistry, String)}.
+ */
+public class ExpiringLruCache<K, V> {
+
+    private final int maxSize;
+    private final Duration defaultTtl;
+    private final Clock clock;
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ExpiringLruCache(int maxSize, Duration defaultTtl) {
+        this(maxSize, defaultTtl, Clock.systemUTC());
+    }
+
+    public ExpiringLruCache(int maxSize, Duration defaultTtl, Clock clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize deve ser maior que zero");
+        }
+        this.maxSize = maxSize;
+        this.defaultTtl = defaultTtl;
+        this.clock = clock;
+        // accessOrder = true: a entrada menos usada recentemente fica no início
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > ExpiringLruCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Retorna o valor associado à chave, ou null se ausente ou expirado
+     */
+    public synchronized V getIfPresent(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (!clock.instant().isBefore(entry.expiresAt())) {
+            entries.remove(key);
+            evictions.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value();
+    }
+
+    /**
+     * Armazena o valor usando o TTL padrão do cache
+     */
+    public void put(K key, V value) {
+        put(key, value, clock.instant().plus(defaultTtl));
+    }
+
+    /**
+     * Armazena o valor até o instante informado
+     */
+    public synchronized void put(K key, V value, Instant expiresAt) {
+        if (value == null) {
+            entries.remove(key);
+            return;
+        }
+        entries.put(key, new CacheEntry<>(value, expiresAt));
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Remove todas as entradas que satisfazem o predicado
+     */
+    public synchronized void invalidateIf(BiPredicate<K, V> predicate) {
+        entries.entrySet().removeIf(e -> predicate.test(e.getKey(), e.getValue().value()));
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Registra os contadores do cache no MeterRegistry (cache.gets, cache.evictions, cache.size)
+     */
+    public ExpiringLruCache<K, V> bindTo(MeterRegistry registry, String cacheName) {
+        FunctionCounter.builder("cache.gets", this, ExpiringLruCache::hitCount)
+                .tag("cache", cacheName)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, ExpiringLruCache::missCount)
+                .tag("cache", cacheName)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", this, ExpiringLruCache::evictionCount)
+                .tag("cache", cacheName)
+                .register(registry);
+        Gauge.builder("cache.size", this, ExpiringLruCache::size)
+                .tag("cache", cacheName)
+                .register(registry);
+        return this;
+    }
+
+    private record CacheEntry<V>(V value, Instant expiresAt) {
+    }
+}
@@ -3,6 +3,7 @@ package com.dalivim.suavitrine.suavitrine.infra.exceptions;
 import com.dalivim.suavitrine.suavitrine.dtos.ErrorResponse;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -16,6 +17,7 @@ import org.springframework.web.method.annotation.MethodArgumentTypeMismatchExcep
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.DataAccessException;
 import org.springframework.web.servlet.NoHandlerFoundException;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.security.access.AccessDeniedException;
 
 import jakarta.persistence.PersistenceException;
@@ -147,6 +149,40 @@ public class GlobalExceptionHandler {
                 return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(error);
         }
 
+        /**
+         * Trata sobrecarga do servidor (429), informando o Retry-After
+         */
+        @ExceptionHandler(TooManyRequestsException.class)
+        public ResponseEntity<ErrorResponse> handleTooManyRequestsException(
+                        TooManyRequestsException ex,
+                        HttpServletRequest request) {
+                ErrorResponse error = new ErrorResponse(
+                                Instant.now(),
+                                HttpStatus.TOO_MANY_REQUESTS.value(),
+                                HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(),
+                                ex.getMessage(),
+                                request.getRequestURI());
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                                .body(error);
+        }
+
+        /**
+         * Trata uploads multipart acima dos limites configurados (413)
+         */
+        @ExceptionHandler(MaxUploadSizeExceededException.class)
+        public ResponseEntity<ErrorResponse> handleMaxUploadSizeExceededException(
+                        MaxUploadSizeExceededException ex,
+                        HttpServletRequest request) {
+                ErrorResponse error = new ErrorResponse(
+                                Instant.now(),
+                                HttpStatus.PAYLOAD_TOO_LARGE.value(),
+                                HttpStatus.PAYLOAD_TOO_LARGE.getReasonPhrase(),
+                                "Arquivo muito grande. Tamanho máximo: 5MB por imagem",
+                                request.getRequestURI());
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(error);
+        }
+
         /**
          * Trata exceções de validação do Bean Validation (@Valid)
          */
@@ -0,0 +1,88 @@
+package com.dalivim.suavitrine.suavitrine.infra.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Contador aproximado dos itens mais frequentes (algoritmo Space-Saving).
+ * Guarda no máximo {@code capacity} contadores; quando cheio, o item novo herda
+ * o contador do menos frequente, que é descartado. A contagem de cada item é
+ * superestimada em no máximo {@code error}, e qualquer item com frequência real
+ * acima de total/capacity está garantidamente presente.
+ * Não é thread-safe.
+ */
+public class TopKSketch {
+
+    private final int capacity;
+    private final Map<UUID, Counter> counters;
+
+    public TopKSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity deve ser maior que zero");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Reconstrói o sketch a partir de entradas persistidas
+     */
+    public static TopKSketch of(int capacity, List<Entry> entries) {
+        TopKSketch sketch = new TopKSketch(capacity);
+        entries.stream()
+                .sorted(Comparator.comparingLong(Entry::count).reversed())
+                .limit(capacity)
+                .forEach(e -> sketch.counters.put(e.id(), new Counter(e.count(), e.error())));
+        return sketch;
+    }
+
+    public void add(UUID id, long weight) {
+        Counter counter = counters.get(id);
+        if (counter != null) {
+            counter.count += weight;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(id, new Counter(weight, 0));
+            return;
+        }
+        // Substitui o menos frequente; o novo item herda a contagem dele como erro
+        Map.Entry<UUID, Counter> min = counters.entrySet().stream()
+                .min(Comparator.comparingLong(e -> e.getValue().count))
+                .orElseThrow();
+        counters.remove(min.getKey());
+        counters.put(id, new Counter(min.getValue().count + weight, min.getValue().count));
+    }
+
+    /**
+     * Todas as entradas, da mais para a menos frequente
+     */
+    public List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>(counters.size());
+        counters.forEach((id, c) -> entries.add(new Entry(id, c.count, c.error)));
+        entries.sort(Comparator.comparingLong(Entry::count).reversed());
+        return entries;
+    }
+
+    public List<Entry> top(int k) {
+        List<Entry> entries = entries();
+        return entries.size() <= k ? entries : entries.subList(0, k);
+    }
+
+    public record Entry(UUID id, long count, long error) {
+    }
+
+    private static final class Counter {
+        private long count;
+        private final long error;
+
+        private Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.dalivim.suavitrine.suavitrine.infra.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter por chave (ex.: IP do cliente) no algoritmo GCRA, equivalente a
+ * um token bucket: cada chave guarda só o "instante teórico de chegada" num
+ * AtomicLong atualizado por CAS, sem locks no caminho da requisição.
+ * Permite {@code burst} requisições seguidas e depois uma a cada {@code period / limit}.
+ */
+public class RateLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final LongSupplier nanoClock;
+
+    // chave -> instante teórico de chegada (nanoTime) da próxima requisição
+    private final ConcurrentHashMap<String, AtomicLong> arrivals = new ConcurrentHashMap<>();
+
+    public RateLimiter(int limit, Duration period, int burst) {
+        this(limit, period, burst, System::nanoTime);
+    }
+
+    public RateLimiter(int limit, Duration period, int burst, LongSupplier nanoClock) {
+        if (limit <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("limit e burst devem ser maiores que zero");
+        }
+        this.emissionIntervalNanos = period.toNanos() / limit;
+        this.burstToleranceNanos = emissionIntervalNanos * burst;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Consome uma permissão da chave. Retorna {@link Duration#ZERO} se a requisição
+     * foi aceita, ou quanto tempo falta para a próxima ser aceita.
+     */
+    public Duration tryAcquire(String key) {
+        AtomicLong arrival = arrivals.computeIfAbsent(key, k -> new AtomicLong(nanoClock.getAsLong()));
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = arrival.get();
+            long tat = current - now < 0 ? now : current;
+            long next = tat + emissionIntervalNanos;
+            long excess = next - now - burstToleranceNanos;
+            if (excess > 0) {
+                return Duration.ofNanos(excess);
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return Duration.ZERO;
+            }
+        }
+    }
+
+    /**
+     * Remove as chaves cujo bucket já voltou a ficar cheio (equivalem a uma chave nova)
+     */
+    public int purgeIdle() {
+        long now = nanoClock.getAsLong();
+        int before = arrivals.size();
+        arrivals.values().removeIf(arrival -> arrival.get() - now <= 0);
+        return before - arrivals.size();
+    }
+
+    public int size() {
+        return arrivals.size();
+    }
+}
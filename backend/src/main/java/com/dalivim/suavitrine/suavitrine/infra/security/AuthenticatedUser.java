@@ -0,0 +1,43 @@
+package com.dalivim.suavitrine.suavitrine.infra.security;
+
+import com.dalivim.suavitrine.suavitrine.entities.User;
+import com.dalivim.suavitrine.suavitrine.entities.UserRole;
+import io.jsonwebtoken.Claims;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Principal das requisições autenticadas, montado a partir das claims do JWT
+ * já verificado, sem consultar o banco. Quando a entidade {@link User} é
+ * realmente necessária, buscar pelo {@link #id()}.
+ * storeRoles e membershipVersion são null em tokens emitidos sem as lojas do usuário.
+ */
+public record AuthenticatedUser(UUID id, String name, String email,
+                                Map<UUID, UserRole> storeRoles, Long membershipVersion) {
+
+    public static AuthenticatedUser fromClaims(Claims claims) {
+        return new AuthenticatedUser(
+                UUID.fromString(claims.get(JwtService.USER_ID_CLAIM, String.class)),
+                claims.get(JwtService.NAME_CLAIM, String.class),
+                claims.getSubject(),
+                storeRolesFrom(claims.get(JwtService.STORES_CLAIM)),
+                claims.get(JwtService.MEMBERSHIP_VERSION_CLAIM) instanceof Number version ? version.longValue() : null
+        );
+    }
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getId(), user.getName(), user.getEmail(), null, null);
+    }
+
+    private static Map<UUID, UserRole> storeRolesFrom(Object claim) {
+        if (!(claim instanceof Map<?, ?> stores)) {
+            return null;
+        }
+        // Mantém a ordem emitida no token (a primeira loja é a "loja atual")
+        Map<UUID, UserRole> storeRoles = new LinkedHashMap<>();
+        stores.forEach((storeId, role) -> storeRoles.put(UUID.fromString(storeId.toString()), UserRole.valueOf(role.toString())));
+        return storeRoles;
+    }
+}
@@ -1,19 +1,27 @@
 package com.dalivim.suavitrine.suavitrine.infra.security;
 
 import com.dalivim.suavitrine.suavitrine.entities.User;
+import com.dalivim.suavitrine.suavitrine.infra.cache.ExpiringLruCache;
 import com.dalivim.suavitrine.suavitrine.infra.exceptions.InsufficientPermissionException;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
-import java.security.Key;
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -21,20 +29,69 @@ import java.util.Map;
 import java.util.function.Function;
 
 @Service
+@RequiredArgsConstructor
 public class JwtService {
 
+    // Claims que permitem montar o principal sem ir ao banco (ver AuthenticatedUser)
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String NAME_CLAIM = "name";
+    // Lojas do usuário (storeId -> role) e a versão dos vínculos quando o token foi emitido
+    public static final String STORES_CLAIM = "stores";
+    public static final String MEMBERSHIP_VERSION_CLAIM = "mv";
+    // Authorities do usuário (User.getAuthorities), devolvidas ao SecurityContext pelo filtro
+    public static final String AUTHORITIES_CLAIM = "auth";
+
+    private final MeterRegistry meterRegistry;
+
     @Value("${application.security.jwt.secret-key}")
     private String secretKey;
 
     @Value("${application.security.jwt.expiration}")
     private long jwtExpiration;
 
+    @Value("${application.security.jwt.cache-max-entries:10000}")
+    private int verifiedTokenCacheMaxEntries;
+
+    // Chave e parser são imutáveis: montados uma vez na inicialização
+    private SecretKey signInKey;
+    private JwtParser jwtParser;
+
+    // Token já verificado -> claims, válido até o exp do próprio token
+    private ExpiringLruCache<String, Claims> verifiedTokenCache;
+
+    @PostConstruct
+    void init() {
+        signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        jwtParser = Jwts.parser()
+                .verifyWith(signInKey)
+                .build();
+        verifiedTokenCache = new ExpiringLruCache<String, Claims>(verifiedTokenCacheMaxEntries, Duration.ofMillis(jwtExpiration))
+                .bindTo(meterRegistry, "verified-jwt");
+    }
+
+    /**
+     * Verifica a assinatura e a expiração do token e retorna as claims.
+     * Tokens já verificados são servidos do cache até expirarem, sem refazer o HMAC.
+     * Lança ExpiredJwtException, SignatureException ou MalformedJwtException se inválido.
+     */
+    public Claims parseToken(String token) {
+        Claims cached = verifiedTokenCache.getIfPresent(token);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+        if (claims.getExpiration() != null) {
+            verifiedTokenCache.put(token, claims, claims.getExpiration().toInstant());
+        }
+        return claims;
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseToken(token);
         return claimsResolver.apply(claims);
     }
 
@@ -62,39 +119,54 @@ public class JwtService {
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey())
+                .signWith(signInKey)
                 .compact();
     }
 
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+    /**
+     * Confere claims já verificadas por {@link #parseToken(String)} contra o usuário
+     */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return userDetails.getUsername().equals(claims.getSubject()) && !isTokenExpired(claims);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration() == null || claims.getExpiration().before(new Date());
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    /**
+     * Claims de identidade gravadas no token, usadas pelo filtro para autenticar sem consultar o banco
+     */
+    public Map<String, Object> userClaims(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, user.getId().toString());
+        claims.put(NAME_CLAIM, user.getName());
+        claims.put(AUTHORITIES_CLAIM, user.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        return claims;
     }
 
-    private Claims extractAllClaims(String token) {
-            return Jwts.parser()
-                    .setSigningKey(getSignInKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+    /**
+     * Authorities gravadas no token; vazia em tokens emitidos sem a claim
+     */
+    public List<GrantedAuthority> authoritiesFrom(Claims claims) {
+        if (!(claims.get(AUTHORITIES_CLAIM) instanceof Collection<?> authorities)) {
+            return List.of();
+        }
+        return authorities.stream()
+                .map(authority -> (GrantedAuthority) new SimpleGrantedAuthority(authority.toString()))
+                .toList();
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    /**
+     * Indica se o token traz as claims de identidade (tokens antigos não trazem)
+     */
+    public boolean hasUserClaims(Claims claims) {
+        return claims.get(USER_ID_CLAIM) != null;
     }
 
-    public User getCurrentAuthenticatedUser(){
-        var user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        if(user == null) {
+    public AuthenticatedUser getCurrentAuthenticatedUser(){
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if(authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser user)) {
             throw new InsufficientPermissionException("Usuário não autenticado");
         }
         return user;
@@ -1,11 +1,15 @@
 package com.dalivim.suavitrine.suavitrine.infra.security.config;
 
+import com.dalivim.suavitrine.suavitrine.infra.security.BoundedPasswordEncoder;
 import com.dalivim.suavitrine.suavitrine.infra.security.filters.JwtAuthenticationFilter;
+import com.dalivim.suavitrine.suavitrine.infra.security.filters.RateLimitFilter;
 import com.dalivim.suavitrine.suavitrine.infra.security.handlers.CustomAccessDeniedHandler;
 import com.dalivim.suavitrine.suavitrine.infra.security.handlers.CustomAuthenticationEntryPoint;
 import com.dalivim.suavitrine.suavitrine.repositories.UserRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -26,6 +30,8 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
+
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
@@ -33,8 +39,23 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final UserRepository userRepository;
     private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    // Custo do BCrypt (log2 das rodadas); hashes antigos continuam válidos ao mudar
+    @Value("${security.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    @Value("${security.password.hashing-threads:1}")
+    private int hashingThreads;
+
+    @Value("${security.password.hashing-queue-capacity:16}")
+    private int hashingQueueCapacity;
+
+    @Value("${security.password.retry-after:2s}")
+    private Duration hashingRetryAfter;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -50,6 +71,7 @@ public class SecurityConfig {
                                 "/api/v1/metrics/events/category-click/**",
                                 "/api/v1/metrics/events/store-access/**",
                                 "/api/v1/metrics/events/product-conversion/**",
+                                "/api/v1/metrics/events/batch/**",
                                 "/api/v1/billing/webhook",
                                 "/v3/api-docs/**",
                                 "/swagger-ui/**",
@@ -62,7 +84,9 @@ public class SecurityConfig {
                         .authenticationEntryPoint(new CustomAuthenticationEntryPoint(objectMapper)))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider())
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // Rate limit antes do JWT: requisições recusadas não chegam ao banco
+                .addFilterBefore(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -86,9 +110,10 @@ public class SecurityConfig {
                 .orElseThrow(() -> new UsernameNotFoundException("Usuário não encontrado"));
     }
 
-    @Bean
+    @Bean(destroyMethod = "shutdown")
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength),
+                hashingThreads, hashingQueueCapacity, hashingRetryAfter, meterRegistry);
     }
 
     @Bean
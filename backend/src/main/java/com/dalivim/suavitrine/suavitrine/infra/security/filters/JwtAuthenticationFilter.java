@@ -1,15 +1,22 @@
 package com.dalivim.suavitrine.suavitrine.infra.security.filters;
 
+import com.dalivim.suavitrine.suavitrine.entities.User;
+import com.dalivim.suavitrine.suavitrine.infra.cache.ExpiringLruCache;
+import com.dalivim.suavitrine.suavitrine.infra.security.AuthenticatedUser;
 import com.dalivim.suavitrine.suavitrine.infra.security.JwtService;
+import com.dalivim.suavitrine.suavitrine.repositories.UserRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.sentry.Sentry;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -23,19 +30,34 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.UUID;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final UserRepository userRepository;
     private final ObjectMapper objectMapper;
 
-    public JwtAuthenticationFilter(JwtService jwtService, @Lazy UserDetailsService userDetailsService, ObjectMapper objectMapper) {
+    // usuário -> ainda existe; limita o atraso com que um usuário removido perde o acesso
+    private final ExpiringLruCache<UUID, Boolean> activeUsers;
+
+    public JwtAuthenticationFilter(JwtService jwtService,
+                                   @Lazy UserDetailsService userDetailsService,
+                                   @Lazy UserRepository userRepository,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${application.security.jwt.user-status-ttl:10s}") Duration userStatusTtl,
+                                   @Value("${application.security.jwt.cache-max-entries:10000}") int cacheMaxEntries) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.userRepository = userRepository;
         this.objectMapper = objectMapper;
+        this.activeUsers = new ExpiringLruCache<UUID, Boolean>(cacheMaxEntries, userStatusTtl)
+                .bindTo(meterRegistry, "jwt-active-users");
     }
 
     @Override
@@ -46,7 +68,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -56,16 +77,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
         
         try {
-            username = jwtService.extractUsername(jwt);
+            // Uma única verificação por requisição; as claims seguem adiante
+            Claims claims = jwtService.parseToken(jwt);
+            String username = claims.getSubject();
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
+                UsernamePasswordAuthenticationToken authToken = authenticate(claims, username);
+                if (authToken != null) {
                     authToken.setDetails(
                             new WebAuthenticationDetailsSource().buildDetails(request)
                     );
@@ -88,6 +106,35 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Tokens com as claims de identidade montam o principal e as authorities a partir delas,
+     * conferindo só se o usuário ainda existe (consulta por id, em cache por alguns segundos);
+     * tokens emitidos antes delas ainda carregam o usuário pelo email
+     */
+    private UsernamePasswordAuthenticationToken authenticate(Claims claims, String username) {
+        if (jwtService.hasUserClaims(claims)) {
+            AuthenticatedUser principal = AuthenticatedUser.fromClaims(claims);
+            if (!isActiveUser(principal.id())) {
+                return null;
+            }
+            return new UsernamePasswordAuthenticationToken(principal, null, jwtService.authoritiesFrom(claims));
+        }
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        if (jwtService.isTokenValid(claims, userDetails) && userDetails.isEnabled() && userDetails instanceof User user) {
+            return new UsernamePasswordAuthenticationToken(AuthenticatedUser.from(user), null, userDetails.getAuthorities());
+        }
+        return null;
+    }
+
+    private boolean isActiveUser(UUID userId) {
+        Boolean active = activeUsers.getIfPresent(userId);
+        if (active == null) {
+            active = userRepository.existsById(userId);
+            activeUsers.put(userId, active);
+        }
+        return active;
+    }
+
     private void handleJwtException(HttpServletResponse response, HttpServletRequest request, 
                                    String message, HttpStatus status) throws IOException {
         response.setStatus(status.value());
@@ -0,0 +1,160 @@
+package com.dalivim.suavitrine.suavitrine.infra.security.filters;
+
+import com.dalivim.suavitrine.suavitrine.dtos.ErrorResponse;
+import com.dalivim.suavitrine.suavitrine.infra.ratelimit.RateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Limita as rotas públicas por IP do cliente e grupo de rotas (auth, vitrine e
+ * eventos de métricas). Roda antes do JwtAuthenticationFilter, então requisições
+ * recusadas (429 + Retry-After) não chegam a tocar o banco.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final String clientIpHeader;
+    private final List<RouteGroup> groups;
+
+    public RateLimitFilter(ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.client-ip-header:}") String clientIpHeader,
+                           @Value("${rate-limit.auth.requests-per-minute:20}") int authPerMinute,
+                           @Value("${rate-limit.auth.burst:10}") int authBurst,
+                           @Value("${rate-limit.storefront.requests-per-minute:300}") int storefrontPerMinute,
+                           @Value("${rate-limit.storefront.burst:100}") int storefrontBurst,
+                           @Value("${rate-limit.events.requests-per-minute:600}") int eventsPerMinute,
+                           @Value("${rate-limit.events.burst:200}") int eventsBurst) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.clientIpHeader = clientIpHeader;
+        this.groups = List.of(
+                new RouteGroup("auth", List.of("/api/v1/auth/"),
+                        new RateLimiter(authPerMinute, Duration.ofMinutes(1), authBurst), meterRegistry),
+                new RouteGroup("storefront", List.of("/api/v1/stores/public/", "/api/v1/stores/by-slug/"),
+                        new RateLimiter(storefrontPerMinute, Duration.ofMinutes(1), storefrontBurst), meterRegistry),
+                new RouteGroup("events", List.of("/api/v1/metrics/events/"),
+                        new RateLimiter(eventsPerMinute, Duration.ofMinutes(1), eventsBurst), meterRegistry));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || findGroup(request.getRequestURI()) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        RouteGroup group = findGroup(request.getRequestURI());
+        Duration retryAfter = group.limiter().tryAcquire(clientIp(request));
+
+        if (!retryAfter.isZero()) {
+            group.rejected().increment();
+            writeTooManyRequests(request, response, retryAfter);
+            return;
+        }
+
+        group.allowed().increment();
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Remove periodicamente os IPs que já não têm requisições recentes
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.purge-interval:1m}")
+    public void purgeIdleClients() {
+        groups.forEach(group -> group.limiter().purgeIdle());
+    }
+
+    private RouteGroup findGroup(String uri) {
+        for (RouteGroup group : groups) {
+            for (String prefix : group.pathPrefixes()) {
+                if (uri.startsWith(prefix)) {
+                    return group;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * IP do cliente: atrás de um proxy (ex.: Fly-Client-IP no fly.io) o header
+     * configurado tem o IP real; sem ele, o endereço da conexão
+     */
+    private String clientIp(HttpServletRequest request) {
+        if (!clientIpHeader.isBlank()) {
+            String headerValue = request.getHeader(clientIpHeader);
+            if (headerValue != null && !headerValue.isBlank()) {
+                int comma = headerValue.indexOf(',');
+                return (comma >= 0 ? headerValue.substring(0, comma) : headerValue).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private void writeTooManyRequests(HttpServletRequest request, HttpServletResponse response,
+                                      Duration retryAfter) throws IOException {
+        // Arredonda para cima: o cliente não deve voltar antes de haver permissão
+        long retryAfterSeconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        ErrorResponse errorResponse = new ErrorResponse(
+                Instant.now(),
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(),
+                "Muitas requisições. Tente novamente em instantes.",
+                request.getRequestURI()
+        );
+
+        response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
+    }
+
+    private record RouteGroup(String name, List<String> pathPrefixes, RateLimiter limiter,
+                              Counter allowed, Counter rejected) {
+
+        RouteGroup(String name, List<String> pathPrefixes, RateLimiter limiter, MeterRegistry meterRegistry) {
+            this(name, pathPrefixes, limiter,
+                    requestCounter(meterRegistry, name, "allowed"),
+                    requestCounter(meterRegistry, name, "rejected"));
+            Gauge.builder("ratelimit.tracked.clients", limiter, RateLimiter::size)
+                    .description("Clientes com bucket ativo no rate limiter")
+                    .tag("group", name)
+                    .register(meterRegistry);
+        }
+
+        private static Counter requestCounter(MeterRegistry meterRegistry, String group, String result) {
+            return Counter.builder("ratelimit.requests")
+                    .description("Requisições avaliadas pelo rate limiter")
+                    .tag("group", group)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.dalivim.suavitrine.suavitrine.infra.storage;
+
+import java.time.Instant;
+
+/**
+ * URL assinada junto com o instante em que a assinatura deixa de valer
+ */
+public record PresignedUrl(String url, Instant expiresAt) {
+}
@@ -8,32 +8,53 @@ import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.http.SdkHttpRequest;
+import software.amazon.awssdk.http.auth.aws.signer.AwsV4FamilyHttpSigner;
+import software.amazon.awssdk.http.auth.aws.signer.AwsV4HttpSigner;
+import software.amazon.awssdk.http.auth.spi.signer.SignedRequest;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-import software.amazon.awssdk.services.s3.presigner.S3Presigner;
-import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
-import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.utils.http.SdkHttpUtils;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.BufferedInputStream;
 import java.io.InputStream;
 import java.net.URI;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 @Service
 public class S3StorageService implements StorageService {
 
     private final S3Client s3Client;
-    private final S3Presigner s3Presigner;
+    private final AwsV4HttpSigner signer = AwsV4HttpSigner.create();
+    private final AwsBasicCredentials credentials;
+    private final URI endpoint;
 
     // Tipos MIME válidos para imagens (apenas JPG, JPEG e PNG)
     private static final Set<String> ALLOWED_IMAGE_MIME_TYPES = new HashSet<>(Arrays.asList(
@@ -50,6 +71,13 @@ public class S3StorageService implements StorageService {
     // Magic bytes (assinaturas de arquivo) para validação de imagens
     private static final byte[] JPEG_SIGNATURE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
     private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A};
+    private static final int MAGIC_BYTES_LENGTH = PNG_SIGNATURE.length;
+
+    // Limite de KEYs por chamada DeleteObjects
+    private static final int MAX_KEYS_PER_DELETE = 1000;
+
+    // Buffer fixo por upload: a memória por requisição não cresce com o tamanho da imagem
+    private static final int UPLOAD_BUFFER_SIZE = 64 * 1024;
 
     public S3StorageService(@Value("${storage.endpoint}") String endpoint,
                             @Value("${storage.access-key}") String accessKey,
@@ -58,6 +86,8 @@ public class S3StorageService implements StorageService {
 
         // Remove trailing slash from endpoint if present (R2 requirement)
         String cleanEndpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.endpoint = URI.create(cleanEndpoint);
+        this.credentials = AwsBasicCredentials.create(accessKey, secretKey);
 
         S3Configuration s3Config = S3Configuration.builder()
                 .pathStyleAccessEnabled(true)
@@ -68,39 +98,35 @@ public class S3StorageService implements StorageService {
                 .endpointOverride(URI.create(cleanEndpoint))
                 .region(Region.of("auto"))
                 .serviceConfiguration(s3Config)
-                .credentialsProvider(
-                        StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey))
-                )
-                .build();
-
-        this.s3Presigner = S3Presigner.builder()
-                .endpointOverride(URI.create(cleanEndpoint))
-                .region(Region.of("auto"))
-                .serviceConfiguration(s3Config)
-                .credentialsProvider(
-                        StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey))
-                )
+                .credentialsProvider(StaticCredentialsProvider.create(credentials))
                 .build();
     }
 
+    /**
+     * Envia o stream ao storage sem copiá-lo para a memória: os magic bytes são
+     * conferidos no início do buffer e o restante segue direto para o putObject.
+     * O contentLength precisa ser o tamanho exato do conteúdo.
+     */
     @Override
     public String uploadFile(String bucket, String key, InputStream inputStream, String contentType, long contentLength) {
         try {
-            // Valida se é uma imagem
+            // Valida tipo, extensão e tamanho antes de ler qualquer byte
             validateImageFile(inputStream, contentType, key, contentLength);
 
-            // Reset do stream após validação (precisamos ler novamente para o upload)
-            // Como já validamos, vamos criar um novo stream a partir dos bytes lidos
-            byte[] imageBytes = readInputStream(inputStream, contentLength);
-            validateImageMagicBytes(imageBytes);
+            BufferedInputStream buffered = new BufferedInputStream(inputStream, UPLOAD_BUFFER_SIZE);
+            buffered.mark(MAGIC_BYTES_LENGTH);
+            byte[] header = buffered.readNBytes(MAGIC_BYTES_LENGTH);
+            buffered.reset();
+            validateImageMagicBytes(header);
 
             s3Client.putObject(
                     PutObjectRequest.builder()
                             .bucket(bucket)
                             .key(key)
                             .contentType(contentType)
+                            .contentLength(contentLength)
                             .build(),
-                    RequestBody.fromBytes(imageBytes)
+                    RequestBody.fromInputStream(buffered, contentLength)
             );
         } catch (IllegalUserArgumentException e) {
             throw e; // Re-throw validation errors
@@ -193,28 +219,6 @@ public class S3StorageService implements StorageService {
         return true;
     }
 
-    /**
-     * Lê o InputStream para um array de bytes
-     */
-    private byte[] readInputStream(InputStream inputStream, long contentLength) throws IOException {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        byte[] data = new byte[8192];
-        int nRead;
-        long totalRead = 0;
-        
-        while ((nRead = inputStream.read(data, 0, data.length)) != -1) {
-            buffer.write(data, 0, nRead);
-            totalRead += nRead;
-            
-            // Proteção contra leitura excessiva
-            if (totalRead > contentLength) {
-                throw new IOException("Tamanho do arquivo excede o esperado.");
-            }
-        }
-        
-        return buffer.toByteArray();
-    }
-
     @Override
     public InputStream getFile(String bucket, String key) {
         ResponseInputStream<GetObjectResponse> response =
@@ -227,22 +231,139 @@ public class S3StorageService implements StorageService {
         s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
     }
 
+    /**
+     * Remove em lotes de até 1000 KEYs. Em modo quiet o S3 só devolve as que falharam;
+     * se a chamada inteira falhar, todas as KEYs do lote voltam como falha.
+     */
+    @Override
+    public Map<String, String> deleteFiles(String bucket, Collection<String> keys) {
+        Map<String, String> failures = new HashMap<>();
+        List<String> distinctKeys = keys.stream().distinct().toList();
+        for (int start = 0; start < distinctKeys.size(); start += MAX_KEYS_PER_DELETE) {
+            List<String> chunk = distinctKeys.subList(start, Math.min(start + MAX_KEYS_PER_DELETE, distinctKeys.size()));
+            List<ObjectIdentifier> objects = new ArrayList<>(chunk.size());
+            for (String key : chunk) {
+                objects.add(ObjectIdentifier.builder().key(key).build());
+            }
+            try {
+                DeleteObjectsResponse response = s3Client.deleteObjects(request -> request
+                        .bucket(bucket)
+                        .delete(Delete.builder().objects(objects).quiet(true).build()));
+                for (S3Error error : response.errors()) {
+                    failures.put(error.key(), error.code() + ": " + error.message());
+                }
+            } catch (RuntimeException e) {
+                Sentry.captureException(e);
+                for (String key : chunk) {
+                    failures.put(key, e.getClass().getSimpleName() + ": " + e.getMessage());
+                }
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public StoredObjectPage listFiles(String bucket, String prefix, String startAfter, int maxKeys) {
+        ListObjectsV2Response response = s3Client.listObjectsV2(request -> request
+                .bucket(bucket)
+                .prefix(prefix)
+                .startAfter(startAfter)
+                .maxKeys(maxKeys));
+        List<StoredObject> objects = response.contents().stream()
+                .map(object -> new StoredObject(object.key(), object.lastModified()))
+                .toList();
+        return new StoredObjectPage(objects, Boolean.TRUE.equals(response.isTruncated()));
+    }
+
+    /**
+     * Assina a URL de GET usando o instante informado como data da assinatura.
+     * O S3Presigner sempre assina com o relógio atual; aqui o relógio é fixado para que
+     * a mesma key, assinada no mesmo instante, gere a mesma URL em qualquer nó.
+     * A URL também pede ao R2 um Cache-Control que não ultrapasse a validade da assinatura.
+     */
+    @Override
+    public PresignedUrl getPresignedUrl(String bucket, String key, Instant signedAt, Duration expiration, Duration cacheMaxAge) {
+        SdkHttpRequest request = SdkHttpRequest.builder()
+                .method(SdkHttpMethod.GET)
+                .uri(endpoint)
+                .encodedPath(objectPath(bucket, key))
+                .putRawQueryParameter("response-cache-control",
+                        "public, max-age=" + Math.max(0, cacheMaxAge.toSeconds()) + ", immutable")
+                .build();
+        return presign(request, signedAt, expiration);
+    }
+
+    /**
+     * Assina um PUT direto do navegador para o bucket. Content-Type e Content-Length
+     * entram na assinatura, então o R2 recusa um upload com tipo ou tamanho diferente
+     * do que foi validado aqui.
+     */
+    @Override
+    public PresignedUrl getPresignedUploadUrl(String bucket, String key, String contentType, long contentLength, Duration expiration) {
+        validateImageFile(null, contentType, key, contentLength);
+
+        SdkHttpRequest request = SdkHttpRequest.builder()
+                .method(SdkHttpMethod.PUT)
+                .uri(endpoint)
+                .encodedPath(objectPath(bucket, key))
+                .putHeader("Content-Type", contentType.toLowerCase(Locale.ROOT).trim())
+                .putHeader("Content-Length", String.valueOf(contentLength))
+                .build();
+        return presign(request, Instant.now(), expiration);
+    }
+
+    /**
+     * Confere um objeto enviado pelo navegador: tamanho pelo HEAD e magic bytes por
+     * um GET parcial dos primeiros bytes. Objeto inválido é removido do bucket.
+     */
     @Override
-    public String getPresignedUrl(String bucket, String key, Duration expiration) {
+    public void verifyUploadedImage(String bucket, String key) {
+        HeadObjectResponse head;
+        try {
+            head = s3Client.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+        } catch (NoSuchKeyException e) {
+            throw new IllegalUserArgumentException("Upload não encontrado. Envie o arquivo antes de confirmar.");
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new IllegalUserArgumentException("Upload não encontrado. Envie o arquivo antes de confirmar.");
+            }
+            Sentry.captureException(e);
+            throw new RuntimeException("Failed to check uploaded file: " + e.getMessage(), e);
+        }
+
         try {
-            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+            validateImageFile(null, head.contentType(), key, head.contentLength());
+            byte[] header = s3Client.getObjectAsBytes(GetObjectRequest.builder()
                     .bucket(bucket)
                     .key(key)
-                    .build();
-
+                    .range("bytes=0-" + (MAGIC_BYTES_LENGTH - 1))
+                    .build()).asByteArray();
+            validateImageMagicBytes(header);
+        } catch (IllegalUserArgumentException e) {
+            deleteFile(bucket, key);
+            throw e;
+        }
+    }
 
-            GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
-                    .signatureDuration(expiration)
-                    .getObjectRequest(getObjectRequest)
-                    .build();
+    private String objectPath(String bucket, String key) {
+        return endpoint.getRawPath() + "/" + bucket + "/" + SdkHttpUtils.urlEncodeIgnoreSlashes(key);
+    }
 
-            PresignedGetObjectRequest presignedRequest = s3Presigner.presignGetObject(presignRequest);
-            return presignedRequest.url().toString();
+    private PresignedUrl presign(SdkHttpRequest request, Instant signedAt, Duration expiration) {
+        try {
+            SignedRequest signed = signer.sign(r -> r
+                    .identity(credentials)
+                    .request(request)
+                    .putProperty(AwsV4HttpSigner.SERVICE_SIGNING_NAME, "s3")
+                    .putProperty(AwsV4HttpSigner.REGION_NAME, "auto")
+                    .putProperty(AwsV4HttpSigner.SIGNING_CLOCK, Clock.fixed(signedAt, ZoneOffset.UTC))
+                    .putProperty(AwsV4HttpSigner.AUTH_LOCATION, AwsV4FamilyHttpSigner.AuthLocation.QUERY_STRING)
+                    .putProperty(AwsV4HttpSigner.EXPIRATION_DURATION, expiration)
+                    .putProperty(AwsV4HttpSigner.PAYLOAD_SIGNING_ENABLED, false)
+                    .putProperty(AwsV4HttpSigner.DOUBLE_URL_ENCODE, false)
+                    .putProperty(AwsV4HttpSigner.NORMALIZE_PATH, false));
+
+            return new PresignedUrl(signed.request().getUri().toString(), signedAt.plus(expiration));
         } catch (Exception e) {
             Sentry.captureException(e);
             System.err.println("Error generating presigned URL: " + e.getMessage());
@@ -2,10 +2,24 @@ package com.dalivim.suavitrine.suavitrine.infra.storage;
 
 import java.io.InputStream;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
 
 public interface StorageService {
     String uploadFile(String bucket, String key, InputStream inputStream, String contentType, long contentLength);
     InputStream getFile(String bucket, String key);
     void deleteFile(String bucket, String key);
-    String getPresignedUrl(String bucket, String key, Duration expiration);
+    /**
+     * Remove várias KEYs numa chamada (DeleteObjects, até 1000 por vez).
+     * Retorna as KEYs que não foram removidas, com a mensagem de erro.
+     */
+    Map<String, String> deleteFiles(String bucket, Collection<String> keys);
+    /**
+     * Lista uma página (ListObjectsV2) das KEYs com o prefixo, em ordem, depois de startAfter
+     */
+    StoredObjectPage listFiles(String bucket, String prefix, String startAfter, int maxKeys);
+    PresignedUrl getPresignedUrl(String bucket, String key, Instant signedAt, Duration expiration, Duration cacheMaxAge);
+    PresignedUrl getPresignedUploadUrl(String bucket, String key, String contentType, long contentLength, Duration expiration);
+    void verifyUploadedImage(String bucket, String key);
 }
@@ -0,0 +1,9 @@
+package com.dalivim.suavitrine.suavitrine.infra.storage;
+
+import java.time.Instant;
+
+/**
+ * Objeto listado no storage: KEY e data da última gravação
+ */
+public record StoredObject(String key, Instant lastModified) {
+}
@@ -0,0 +1,10 @@
+package com.dalivim.suavitrine.suavitrine.infra.storage;
+
+import java.util.List;
+
+/**
+ * Página de uma listagem do storage, em ordem de KEY; truncated indica que há mais objetos
+ * depois da última KEY da página
+ */
+public record StoredObjectPage(List<StoredObject> objects, boolean truncated) {
+}
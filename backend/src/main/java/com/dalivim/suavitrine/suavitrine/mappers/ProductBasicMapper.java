@@ -2,13 +2,22 @@ package com.dalivim.suavitrine.suavitrine.mappers;
 
 import com.dalivim.suavitrine.suavitrine.dtos.ProductBasicResponse;
 import com.dalivim.suavitrine.suavitrine.entities.Product;
+import com.dalivim.suavitrine.suavitrine.entities.ProductImage;
 
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 public interface ProductBasicMapper {
     
     ProductBasicResponse toDto(Product product);
     
     List<ProductBasicResponse> toDtoList(List<Product> products);
+
+    /**
+     * Converte usando imagens já carregadas (agrupadas por ID do produto),
+     * sem acessar a coleção lazy {@code product.images}
+     */
+    List<ProductBasicResponse> toDtoList(List<Product> products, Map<UUID, List<ProductImage>> imagesByProduct);
 }
 
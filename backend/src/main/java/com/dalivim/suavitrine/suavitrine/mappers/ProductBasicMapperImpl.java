@@ -9,6 +9,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -18,8 +20,32 @@ public class ProductBasicMapperImpl implements ProductBasicMapper {
 
     @Override
     public ProductBasicResponse toDto(Product product) {
+        return toDto(product, product.getImages());
+    }
+
+    @Override
+    public List<ProductBasicResponse> toDtoList(List<Product> products) {
+        if (products == null) {
+            return List.of();
+        }
+        return products.stream()
+                .map(this::toDto)
+                .toList();
+    }
+
+    @Override
+    public List<ProductBasicResponse> toDtoList(List<Product> products, Map<UUID, List<ProductImage>> imagesByProduct) {
+        if (products == null) {
+            return List.of();
+        }
+        return products.stream()
+                .map(product -> toDto(product, imagesByProduct.getOrDefault(product.getId(), List.of())))
+                .toList();
+    }
+
+    private ProductBasicResponse toDto(Product product, List<ProductImage> images) {
         // Gera presigned URLs para todas as imagens
-        List<ProductImageResponse> imageResponses = convertImagesToDto(product.getImages());
+        List<ProductImageResponse> imageResponses = convertImagesToDto(images);
         
         return new ProductBasicResponse(
                 product.getId(),
@@ -35,16 +61,6 @@ public class ProductBasicMapperImpl implements ProductBasicMapper {
         );
     }
 
-    @Override
-    public List<ProductBasicResponse> toDtoList(List<Product> products) {
-        if (products == null) {
-            return List.of();
-        }
-        return products.stream()
-                .map(this::toDto)
-                .toList();
-    }
-
     /**
      * Converte as imagens do produto para DTOs, gerando presigned URLs na hora
      */
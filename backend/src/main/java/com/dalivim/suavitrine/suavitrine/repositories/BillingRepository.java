@@ -2,8 +2,10 @@ package com.dalivim.suavitrine.suavitrine.repositories;
 
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -21,4 +23,8 @@ public interface BillingRepository extends JpaRepository<Billing, UUID> {
 
     Optional<Billing> findByExternalId(String externalId);
 
+    // Planos ativos da loja, o de maior validade primeiro (usar com PageRequest.of(0, 1))
+    @Query("SELECT b FROM Billing b WHERE b.store.id = :storeId AND b.paidAt IS NOT NULL AND (b.expiresAt IS NULL OR CURRENT_TIMESTAMP < b.expiresAt) ORDER BY b.expiresAt DESC NULLS FIRST")
+    List<Billing> findActivePlansByStoreId(@Param("storeId") UUID storeId, Pageable pageable);
+
 }
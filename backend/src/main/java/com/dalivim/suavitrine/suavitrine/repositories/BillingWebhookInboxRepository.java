@@ -0,0 +1,44 @@
+package com.dalivim.suavitrine.suavitrine.repositories;
+
+import com.dalivim.suavitrine.suavitrine.entities.billing.BillingWebhookInbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface BillingWebhookInboxRepository extends JpaRepository<BillingWebhookInbox, Long> {
+
+    /**
+     * Grava o webhook se o webhook_id ainda não existe. Retorna 0 para entregas repetidas.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO billing_webhook_inbox (webhook_id, event, payload)
+            VALUES (:webhookId, :event, :payload)
+            ON CONFLICT (webhook_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("webhookId") String webhookId,
+                       @Param("event") String event,
+                       @Param("payload") String payload);
+
+    /**
+     * Próximo webhook pendente em ordem de chegada, travado para esta transação.
+     * SKIP LOCKED deixa outra instância pegar o seguinte em vez de esperar.
+     */
+    @Query(value = """
+            SELECT * FROM billing_webhook_inbox
+            WHERE status = 'PENDING' AND next_attempt_at <= NOW()
+            ORDER BY id
+            LIMIT 1
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    Optional<BillingWebhookInbox> lockNextDue();
+
+    @Query("SELECT MIN(w.nextAttemptAt) FROM BillingWebhookInbox w WHERE w.status = :status")
+    Optional<Instant> findNextAttemptAt(@Param("status") BillingWebhookInbox.Status status);
+}
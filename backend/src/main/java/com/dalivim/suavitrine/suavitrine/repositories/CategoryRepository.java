@@ -3,13 +3,19 @@ package com.dalivim.suavitrine.suavitrine.repositories;
 import com.dalivim.suavitrine.suavitrine.entities.Category;
 import com.dalivim.suavitrine.suavitrine.entities.Store;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, UUID> {
     List<Category> findByStoreAndDeletedAtIsNull(Store store);
+
+    @Query("SELECT c.store.id FROM Category c WHERE c.id = :categoryId")
+    Optional<UUID> findStoreIdById(@Param("categoryId") UUID categoryId);
 }
 
@@ -2,7 +2,10 @@ package com.dalivim.suavitrine.suavitrine.repositories;
 
 import com.dalivim.suavitrine.suavitrine.entities.Product;
 import com.dalivim.suavitrine.suavitrine.entities.ProductImage;
+import com.dalivim.suavitrine.suavitrine.entities.Store;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,6 +14,16 @@ import java.util.UUID;
 @Repository
 public interface ProductImageRepository extends JpaRepository<ProductImage, UUID> {
     List<ProductImage> findByProductAndDeletedAtIsNull(Product product);
+
+    /**
+     * Busca em uma única consulta as imagens ativas de todos os produtos
+     * disponíveis da loja, ordenadas por displayOrder
+     * Usado pela vitrine pública para evitar uma consulta de imagens por produto
+     */
+    @Query("SELECT i FROM ProductImage i JOIN i.product p WHERE p.store = :store AND p.deletedAt IS NULL " +
+            "AND (p.available IS NULL OR p.available = true) AND i.deletedAt IS NULL " +
+            "ORDER BY i.displayOrder ASC")
+    List<ProductImage> findActiveImagesOfAvailableProductsByStore(@Param("store") Store store);
 }
 
 
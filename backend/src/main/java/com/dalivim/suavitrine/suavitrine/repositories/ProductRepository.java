@@ -10,11 +10,15 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, UUID> {
 
+       @Query("SELECT p.store.id FROM Product p WHERE p.id = :productId")
+       Optional<UUID> findStoreIdById(@Param("productId") UUID productId);
+
        /**
         * Busca produtos da loja ordenados por displayOrder (valores menores primeiro)
         * Produtos sem displayOrder aparecem por último
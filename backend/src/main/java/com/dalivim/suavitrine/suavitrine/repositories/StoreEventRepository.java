@@ -67,4 +67,29 @@ public interface StoreEventRepository extends JpaRepository<StoreEvent, UUID> {
                                                           @Param("eventType") StoreEvent.EventType eventType,
                                                           @Param("startDate") Instant startDate,
                                                           @Param("endDate") Instant endDate);
+
+    @Query("""
+        SELECT DISTINCT se.store.id
+        FROM StoreEvent se
+        WHERE se.createdAt >= :startDate
+          AND se.createdAt < :endDate
+    """)
+    List<UUID> findStoreIdsWithEventsBetween(@Param("startDate") Instant startDate,
+                                             @Param("endDate") Instant endDate);
+
+    /**
+     * Contagem por (loja, tipo de evento, entidade) no intervalo, usada pelo rollup horário
+     */
+    @Query("""
+        SELECT se.store.id, se.eventType, se.entityId, COUNT(se)
+        FROM StoreEvent se
+        WHERE se.createdAt >= :startDate
+          AND se.createdAt < :endDate
+          AND se.entityId IS NOT NULL
+          AND se.eventType <> :excludedType
+        GROUP BY se.store.id, se.eventType, se.entityId
+    """)
+    List<Object[]> countEntitiesByStoreAndEventTypeBetween(@Param("startDate") Instant startDate,
+                                                           @Param("endDate") Instant endDate,
+                                                           @Param("excludedType") StoreEvent.EventType excludedType);
 }
@@ -0,0 +1,54 @@
+package com.dalivim.suavitrine.suavitrine.repositories;
+
+import com.dalivim.suavitrine.suavitrine.entities.StoreMetricsHourly;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface StoreMetricsHourlyRepository extends JpaRepository<StoreMetricsHourly, UUID> {
+
+    @Query("SELECT smh FROM StoreMetricsHourly smh WHERE smh.store.id = :storeId AND smh.hour >= :startHour AND smh.hour <= :endHour ORDER BY smh.hour ASC")
+    List<StoreMetricsHourly> findByStoreIdAndHourRange(@Param("storeId") UUID storeId,
+                                                       @Param("startHour") Instant startHour,
+                                                       @Param("endHour") Instant endHour);
+
+    @Query("SELECT smh FROM StoreMetricsHourly smh WHERE smh.hour = :hour")
+    List<StoreMetricsHourly> findByHour(@Param("hour") Instant hour);
+
+    /**
+     * Recalcula os contadores da hora para todas as lojas com eventos nela
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO store_metrics_hourly (store_id, hour, accesses, product_clicks, product_conversions, category_clicks, category_accesses)
+        SELECT se.store_id, CAST(:hour AS TIMESTAMP WITH TIME ZONE),
+               COUNT(*) FILTER (WHERE se.event_type = 'STORE_ACCESS'),
+               COUNT(*) FILTER (WHERE se.event_type = 'PRODUCT_CLICK'),
+               COUNT(*) FILTER (WHERE se.event_type = 'PRODUCT_CONVERSION'),
+               COUNT(*) FILTER (WHERE se.event_type = 'CATEGORY_CLICK'),
+               COUNT(*) FILTER (WHERE se.event_type = 'CATEGORY_ACCESS')
+        FROM store_events se
+        WHERE se.created_at >= :hour
+          AND se.created_at < :nextHour
+        GROUP BY se.store_id
+        ON CONFLICT (store_id, hour) DO UPDATE SET
+            accesses = EXCLUDED.accesses,
+            product_clicks = EXCLUDED.product_clicks,
+            product_conversions = EXCLUDED.product_conversions,
+            category_clicks = EXCLUDED.category_clicks,
+            category_accesses = EXCLUDED.category_accesses,
+            updated_at = NOW()
+    """, nativeQuery = true)
+    int rollupHour(@Param("hour") Instant hour, @Param("nextHour") Instant nextHour);
+
+    @Modifying
+    @Query("DELETE FROM StoreMetricsHourly smh WHERE smh.hour < :cutoff")
+    int deleteOlderThan(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,50 @@
+package com.dalivim.suavitrine.suavitrine.repositories;
+
+import com.dalivim.suavitrine.suavitrine.entities.StoreMetricsMonthly;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface StoreMetricsMonthlyRepository extends JpaRepository<StoreMetricsMonthly, UUID> {
+
+    @Query("SELECT smm FROM StoreMetricsMonthly smm WHERE smm.store.id = :storeId AND smm.month >= :startMonth AND smm.month <= :endMonth ORDER BY smm.month ASC")
+    List<StoreMetricsMonthly> findByStoreIdAndMonthRange(@Param("storeId") UUID storeId,
+                                                         @Param("startMonth") LocalDate startMonth,
+                                                         @Param("endMonth") LocalDate endMonth);
+
+    @Query("SELECT smm FROM StoreMetricsMonthly smm WHERE smm.month = :month")
+    List<StoreMetricsMonthly> findByMonth(@Param("month") LocalDate month);
+
+    /**
+     * Recalcula os contadores do mês somando as linhas diárias de store_metrics
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO store_metrics_monthly (store_id, month, accesses, product_clicks, product_conversions, category_clicks, category_accesses)
+        SELECT sm.store_id, CAST(:month AS DATE),
+               SUM(sm.daily_accesses),
+               SUM(sm.product_clicks),
+               SUM(sm.product_conversions),
+               SUM(sm.category_clicks),
+               SUM(sm.category_accesses)
+        FROM store_metrics sm
+        WHERE sm.date >= :month
+          AND sm.date < :nextMonth
+        GROUP BY sm.store_id
+        ON CONFLICT (store_id, month) DO UPDATE SET
+            accesses = EXCLUDED.accesses,
+            product_clicks = EXCLUDED.product_clicks,
+            product_conversions = EXCLUDED.product_conversions,
+            category_clicks = EXCLUDED.category_clicks,
+            category_accesses = EXCLUDED.category_accesses,
+            updated_at = NOW()
+    """, nativeQuery = true)
+    int rollupMonth(@Param("month") LocalDate month, @Param("nextMonth") LocalDate nextMonth);
+}
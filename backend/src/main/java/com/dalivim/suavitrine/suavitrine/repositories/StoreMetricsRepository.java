@@ -2,10 +2,12 @@ package com.dalivim.suavitrine.suavitrine.repositories;
 
 import com.dalivim.suavitrine.suavitrine.entities.StoreMetrics;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -19,6 +21,10 @@ public interface StoreMetricsRepository extends JpaRepository<StoreMetrics, UUID
                                                 @Param("startDate") LocalDate startDate,
                                                 @Param("endDate") LocalDate endDate);
 
+    @Query("SELECT sm FROM StoreMetrics sm WHERE sm.date >= :startDate AND sm.date < :endDate")
+    List<StoreMetrics> findAllByDateRange(@Param("startDate") LocalDate startDate,
+                                          @Param("endDate") LocalDate endDate);
+
     @Query("SELECT sm FROM StoreMetrics sm WHERE sm.store.id = :storeId AND sm.date = :date")
     Optional<StoreMetrics> findByStoreIdAndDate(@Param("storeId") UUID storeId, @Param("date") LocalDate date);
 
@@ -46,4 +52,57 @@ public interface StoreMetricsRepository extends JpaRepository<StoreMetrics, UUID
     Long getTotalCategoryAccessesByStoreIdAndDateRange(@Param("storeId") UUID storeId,
                                                       @Param("startDate") LocalDate startDate,
                                                       @Param("endDate") LocalDate endDate);
+
+    /**
+     * Soma os deltas aos contadores do dia, criando a linha se ainda não existir
+     * (usa o índice único idx_store_metrics_store_date_unique)
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO store_metrics (store_id, date, daily_accesses, product_clicks, product_conversions, category_clicks, category_accesses)
+        VALUES (:storeId, :date, :dailyAccesses, :productClicks, :productConversions, :categoryClicks, :categoryAccesses)
+        ON CONFLICT (store_id, date) DO UPDATE SET
+            daily_accesses = store_metrics.daily_accesses + EXCLUDED.daily_accesses,
+            product_clicks = store_metrics.product_clicks + EXCLUDED.product_clicks,
+            product_conversions = store_metrics.product_conversions + EXCLUDED.product_conversions,
+            category_clicks = store_metrics.category_clicks + EXCLUDED.category_clicks,
+            category_accesses = store_metrics.category_accesses + EXCLUDED.category_accesses,
+            updated_at = NOW()
+    """, nativeQuery = true)
+    void incrementDailyCounters(@Param("storeId") UUID storeId,
+                                @Param("date") LocalDate date,
+                                @Param("dailyAccesses") int dailyAccesses,
+                                @Param("productClicks") int productClicks,
+                                @Param("productConversions") int productConversions,
+                                @Param("categoryClicks") int categoryClicks,
+                                @Param("categoryAccesses") int categoryAccesses);
+
+    /**
+     * Recalcula os contadores do dia a partir dos eventos brutos, sobrescrevendo os valores atuais
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO store_metrics (store_id, date, daily_accesses, product_clicks, product_conversions, category_clicks, category_accesses)
+        SELECT CAST(:storeId AS UUID), CAST(:date AS DATE),
+               COUNT(*) FILTER (WHERE se.event_type = 'STORE_ACCESS'),
+               COUNT(*) FILTER (WHERE se.event_type = 'PRODUCT_CLICK'),
+               COUNT(*) FILTER (WHERE se.event_type = 'PRODUCT_CONVERSION'),
+               COUNT(*) FILTER (WHERE se.event_type = 'CATEGORY_CLICK'),
+               COUNT(*) FILTER (WHERE se.event_type = 'CATEGORY_ACCESS')
+        FROM store_events se
+        WHERE se.store_id = :storeId
+          AND se.created_at >= :startOfDay
+          AND se.created_at < :endOfDay
+        ON CONFLICT (store_id, date) DO UPDATE SET
+            daily_accesses = EXCLUDED.daily_accesses,
+            product_clicks = EXCLUDED.product_clicks,
+            product_conversions = EXCLUDED.product_conversions,
+            category_clicks = EXCLUDED.category_clicks,
+            category_accesses = EXCLUDED.category_accesses,
+            updated_at = NOW()
+    """, nativeQuery = true)
+    void recomputeDailyCounters(@Param("storeId") UUID storeId,
+                                @Param("date") LocalDate date,
+                                @Param("startOfDay") Instant startOfDay,
+                                @Param("endOfDay") Instant endOfDay);
 }
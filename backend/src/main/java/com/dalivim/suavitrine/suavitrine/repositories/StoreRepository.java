@@ -1,6 +1,7 @@
 package com.dalivim.suavitrine.suavitrine.repositories;
 
 import com.dalivim.suavitrine.suavitrine.entities.Store;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -12,6 +13,12 @@ public interface StoreRepository extends JpaRepository<Store, UUID> {
     Optional<Store> findByEmail(String email);
     boolean existsByEmail(String email);
     Optional<Store> findBySlug(String slug);
+
+    /**
+     * Busca a loja pelo slug já carregando o endereço na mesma consulta
+     */
+    @EntityGraph(attributePaths = "address")
+    Optional<Store> findWithAddressBySlug(String slug);
     boolean existsBySlug(String slug);
 }
 
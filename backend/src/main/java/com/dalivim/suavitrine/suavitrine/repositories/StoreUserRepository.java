@@ -3,7 +3,10 @@ package com.dalivim.suavitrine.suavitrine.repositories;
 import com.dalivim.suavitrine.suavitrine.entities.Store;
 import com.dalivim.suavitrine.suavitrine.entities.StoreUser;
 import com.dalivim.suavitrine.suavitrine.entities.User;
+import com.dalivim.suavitrine.suavitrine.entities.UserRole;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,7 +17,17 @@ import java.util.UUID;
 public interface StoreUserRepository extends JpaRepository<StoreUser, UUID> {
     List<StoreUser> findByStore(Store store);
     List<StoreUser> findByUser(User user);
+    // Mais antigo primeiro: o primeiro vínculo é a "loja atual" do usuário
+    List<StoreUser> findByUserOrderByCreatedAtAscIdAsc(User user);
     Optional<StoreUser> findByStoreAndUser(Store store, User user);
+    Optional<StoreUser> findByStoreAndUserId(Store store, UUID userId);
     boolean existsByStoreAndUser(Store store, User user);
+
+    @Query("SELECT su.role FROM StoreUser su WHERE su.store.id = :storeId AND su.user.id = :userId AND su.deletedAt IS NULL")
+    Optional<UserRole> findActiveRole(@Param("storeId") UUID storeId, @Param("userId") UUID userId);
+
+    // [storeId, role] dos vínculos ativos do usuário, na mesma ordem de findByUserOrderByCreatedAtAscIdAsc
+    @Query("SELECT su.store.id, su.role FROM StoreUser su WHERE su.user.id = :userId AND su.deletedAt IS NULL ORDER BY su.createdAt ASC, su.id ASC")
+    List<Object[]> findActiveRolesByUserId(@Param("userId") UUID userId);
 }
 
@@ -2,6 +2,9 @@ package com.dalivim.suavitrine.suavitrine.repositories;
 
 import com.dalivim.suavitrine.suavitrine.entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -11,5 +14,12 @@ import java.util.UUID;
 public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    @Query("SELECT u.membershipVersion FROM User u WHERE u.id = :userId")
+    Optional<Long> findMembershipVersion(@Param("userId") UUID userId);
+
+    @Modifying
+    @Query("UPDATE User u SET u.membershipVersion = u.membershipVersion + 1 WHERE u.id = :userId")
+    void incrementMembershipVersion(@Param("userId") UUID userId);
 }
 
@@ -12,7 +12,6 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @Service
@@ -22,6 +21,7 @@ public class AuthenticationService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final StoreAccessService storeAccessService;
     private final AuthenticationManager authenticationManager;
 
     public AuthenticationResponse register(RegisterRequest request) {
@@ -40,7 +40,8 @@ public class AuthenticationService {
         userRepository.save(user);
 
         // Gerar token JWT
-        Map<String, Object> extraClaims = new HashMap<>();
+        Map<String, Object> extraClaims = jwtService.userClaims(user);
+        extraClaims.putAll(storeAccessService.membershipClaims(user.getId()));
         var jwtToken = jwtService.generateToken(extraClaims, user);
 
         return new AuthenticationResponse(jwtToken, user.getId(), user.getEmail(), user.getName());
@@ -60,7 +61,8 @@ public class AuthenticationService {
                 .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
 
         // Gerar token JWT
-        Map<String, Object> extraClaims = new HashMap<>();
+        Map<String, Object> extraClaims = jwtService.userClaims(user);
+        extraClaims.putAll(storeAccessService.membershipClaims(user.getId()));
         var jwtToken = jwtService.generateToken(extraClaims, user);
 
         return new AuthenticationResponse(jwtToken, user.getId(), user.getEmail(), user.getName());
@@ -5,16 +5,14 @@ import com.dalivim.suavitrine.suavitrine.entities.Category;
 import com.dalivim.suavitrine.suavitrine.entities.Product;
 import com.dalivim.suavitrine.suavitrine.mappers.*;
 import com.dalivim.suavitrine.suavitrine.entities.Store;
-import com.dalivim.suavitrine.suavitrine.entities.UserRole;
 import com.dalivim.suavitrine.suavitrine.infra.exceptions.IllegalUserArgumentException;
 import com.dalivim.suavitrine.suavitrine.infra.exceptions.InsufficientPermissionException;
 import com.dalivim.suavitrine.suavitrine.infra.exceptions.ObjectNotFoundException;
-import com.dalivim.suavitrine.suavitrine.infra.security.JwtService;
 import com.dalivim.suavitrine.suavitrine.repositories.CategoryRepository;
 import com.dalivim.suavitrine.suavitrine.repositories.ProductRepository;
 import com.dalivim.suavitrine.suavitrine.repositories.StoreRepository;
-import com.dalivim.suavitrine.suavitrine.repositories.StoreUserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,12 +26,12 @@ public class CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final StoreRepository storeRepository;
-    private final StoreUserRepository storeUserRepository;
     private final ImageService imageService;
-    private final JwtService jwtService;
+    private final StoreAccessService storeAccessService;
     private final CategoryMapper categoryMapper;
     private final CategoryResponseMapper categoryResponseMapper;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Cria uma nova categoria (método que recebe DTO)
@@ -62,7 +60,7 @@ public class CategoryService {
             throw new IllegalUserArgumentException("Loja foi deletada");
         }
 
-        if (!userHasPermissionToEditStore(store)) {
+        if (!storeAccessService.currentUserCanEditStore(store.getId())) {
             throw new InsufficientPermissionException("Usuário não tem permissão para criar categorias nesta loja.");
         }
 
@@ -70,7 +68,10 @@ public class CategoryService {
 
         // Faz upload da imagem se fornecida
         if (imageRequest != null) {
-            String key = imageService.uploadBase64Image(
+            String key = imageService.resolveImageKey(
+                storeId,
+                ImageUploadTarget.CATEGORY_IMAGE,
+                imageRequest.uploadKey(),
                 imageRequest.base64Image(),
                 imageRequest.fileName(),
                 imageRequest.contentType()
@@ -78,7 +79,9 @@ public class CategoryService {
             category.setImageUrl(key);
         }
 
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new StoreCatalogChangedEvent(storeId));
+        return savedCategory;
     }
 
     /**
@@ -94,7 +97,7 @@ public class CategoryService {
             throw new IllegalUserArgumentException("Categoria foi deletada e não pode ser atualizada");
         }
 
-        if (!userHasPermissionToEditStore(existingCategory.getStore())) {
+        if (!storeAccessService.currentUserCanEditStore(existingCategory.getStore().getId())) {
             throw new InsufficientPermissionException("Usuário não tem permissão para atualizar esta categoria.");
         }
 
@@ -117,7 +120,10 @@ public class CategoryService {
             }
 
             // Faz upload da nova imagem para o storage (retorna KEY)
-            String key = imageService.uploadBase64Image(
+            String key = imageService.resolveImageKey(
+                existingCategory.getStore().getId(),
+                ImageUploadTarget.CATEGORY_IMAGE,
+                request.image().uploadKey(),
                 request.image().base64Image(),
                 request.image().fileName(),
                 request.image().contentType()
@@ -127,6 +133,7 @@ public class CategoryService {
 
         // Salva as alterações
         Category updatedCategory = categoryRepository.save(existingCategory);
+        eventPublisher.publishEvent(new StoreCatalogChangedEvent(updatedCategory.getStore().getId()));
         
         // Converte para DTO de resposta
         return toCategoryResponse(updatedCategory);
@@ -144,7 +151,7 @@ public class CategoryService {
             throw new IllegalUserArgumentException("Categoria foi deletada e não pode ser atualizada");
         }
 
-        if (!userHasPermissionToEditStore(existingCategory.getStore())) {
+        if (!storeAccessService.currentUserCanEditStore(existingCategory.getStore().getId())) {
             throw new InsufficientPermissionException("Usuário não tem permissão para atualizar esta categoria.");
         }
 
@@ -163,7 +170,10 @@ public class CategoryService {
             }
 
             // Faz upload da nova imagem para o storage (retorna KEY)
-            String key = imageService.uploadBase64Image(
+            String key = imageService.resolveImageKey(
+                existingCategory.getStore().getId(),
+                ImageUploadTarget.CATEGORY_IMAGE,
+                imageRequest.uploadKey(),
                 imageRequest.base64Image(),
                 imageRequest.fileName(),
                 imageRequest.contentType()
@@ -171,7 +181,9 @@ public class CategoryService {
             existingCategory.setImageUrl(key);
         }
 
-        return categoryRepository.save(existingCategory);
+        Category savedCategory = categoryRepository.save(existingCategory);
+        eventPublisher.publishEvent(new StoreCatalogChangedEvent(savedCategory.getStore().getId()));
+        return savedCategory;
     }
 
     /**
@@ -189,7 +201,7 @@ public class CategoryService {
             throw new IllegalUserArgumentException("Categoria já foi deletada");
         }
 
-        if (!userHasPermissionToEditStore(category.getStore())) {
+        if (!storeAccessService.currentUserCanEditStore(category.getStore().getId())) {
             throw new InsufficientPermissionException("Usuário não tem permissão para deletar esta categoria.");
         }
 
@@ -200,6 +212,7 @@ public class CategoryService {
 
         category.setDeletedAt(Instant.now());
         categoryRepository.save(category);
+        eventPublisher.publishEvent(new StoreCatalogChangedEvent(category.getStore().getId()));
     }
     /**
      * Busca uma categoria por ID (método que retorna DTO)
@@ -209,6 +222,16 @@ public class CategoryService {
         return toCategoryResponse(category);
     }
 
+    /**
+     * Loja da categoria, se o usuário autenticado pode editá-la. Categoria inexistente
+     * responde como sem permissão, para não revelar quais IDs existem.
+     */
+    public UUID getEditableStoreId(UUID categoryId) {
+        return categoryRepository.findStoreIdById(categoryId)
+                .filter(storeAccessService::currentUserCanEditStore)
+                .orElseThrow(() -> new InsufficientPermissionException("Usuário não tem permissão para atualizar esta categoria."));
+    }
+
     /**
      * Busca uma categoria por ID (método que retorna entidade)
      */
@@ -268,19 +291,6 @@ public class CategoryService {
         );
     }
 
-    /**
-     * Verifica se o usuário tem permissão para editar a loja
-     * O usuário deve ser OWNER ou MANAGER da loja
-     */
-    private boolean userHasPermissionToEditStore(Store store) {
-        var storeUsers = storeUserRepository.findByStore(store);
-        var currentUser = jwtService.getCurrentAuthenticatedUser();
-
-        return storeUsers.stream()
-                .anyMatch(su -> su.getUser().getId().equals(currentUser.getId()) &&
-                        (su.getRole() == UserRole.OWNER || su.getRole() == UserRole.MANAGER) &&
-                        su.getDeletedAt() == null);
-    }
 
 }
 
@@ -1,32 +1,160 @@
 package com.dalivim.suavitrine.suavitrine.services;
 
+import com.dalivim.suavitrine.suavitrine.dtos.ConfirmImageUploadRequest;
+import com.dalivim.suavitrine.suavitrine.dtos.ConfirmImageUploadResponse;
+import com.dalivim.suavitrine.suavitrine.dtos.CreateImageUploadRequest;
+import com.dalivim.suavitrine.suavitrine.dtos.ImageUploadResponse;
+import com.dalivim.suavitrine.suavitrine.dtos.ImageUploadTarget;
 import com.dalivim.suavitrine.suavitrine.dtos.ProductImageRequest;
+import com.dalivim.suavitrine.suavitrine.infra.cache.ExpiringLruCache;
+import com.dalivim.suavitrine.suavitrine.infra.exceptions.ExternalServiceException;
 import com.dalivim.suavitrine.suavitrine.infra.exceptions.IllegalUserArgumentException;
+import com.dalivim.suavitrine.suavitrine.infra.exceptions.InsufficientPermissionException;
+import com.dalivim.suavitrine.suavitrine.infra.storage.PresignedUrl;
 import com.dalivim.suavitrine.suavitrine.infra.storage.StorageService;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.sentry.Sentry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ImageService {
 
+    // KEYs enviadas pelo upload multipart nesta requisição (já validadas; não precisam de novo HEAD)
+    private static final String REQUEST_UPLOADED_KEYS_ATTRIBUTE = ImageService.class.getName() + ".uploadedKeys";
+
+    // KEY já usada por alguma entidade (inclusive com soft delete) ou já agendada para remoção
+    private static final String KEY_IN_USE_SQL = """
+            SELECT EXISTS (SELECT 1 FROM product_image WHERE url = ?)
+                OR EXISTS (SELECT 1 FROM category WHERE image_url = ?)
+                OR EXISTS (SELECT 1 FROM product_variation WHERE image_url = ?)
+                OR EXISTS (SELECT 1 FROM store
+                           WHERE logo_url = ? OR banner_desktop_url = ? OR banner_tablet_url = ? OR banner_mobile_url = ?)
+                OR EXISTS (SELECT 1 FROM storage_deletion_queue WHERE object_key = ?)
+            """;
+
+    // Reserva a KEY para uma única entidade; na transação da entidade, é desfeita junto com ela
+    private static final String CLAIM_KEY_SQL =
+            "INSERT INTO storage_upload_claim (object_key) VALUES (?) ON CONFLICT (object_key) DO NOTHING";
+
+    private static final String KEY_CLAIMED_SQL =
+            "SELECT EXISTS (SELECT 1 FROM storage_upload_claim WHERE object_key = ?)";
+
     private final StorageService storageService;
+    private final StoreAccessService storeAccessService;
+    private final StorageDeletionQueueService storageDeletionQueueService;
+    private final MeterRegistry meterRegistry;
+    private final JdbcTemplate jdbcTemplate;
 
     @Value("${storage.bucket-name}")
     private String bucketName;
 
+    @Value("${storage.presign.validity:1h}")
+    private Duration presignValidity;
+
+    /**
+     * Janela de assinatura: dentro dela todos os nós assinam com o mesmo instante
+     * (início da janela) e geram a mesma URL, que o navegador/CDN consegue cachear.
+     * validity - bucket é o mínimo de validade que resta para quem recebe a URL e
+     * deve ser maior que o TTL do snapshot da vitrine pública, que embute essas URLs.
+     */
+    @Value("${storage.presign.bucket:15m}")
+    private Duration presignBucket;
+
+    @Value("${storage.presign.cache-max-entries:10000}")
+    private int presignCacheMaxEntries;
+
+    // Validade da URL de PUT entregue ao navegador no upload direto
+    @Value("${storage.upload.presign-validity:10m}")
+    private Duration uploadPresignValidity;
+
+    // Uploads de um mesmo produto são enviados juntos neste pool (fila cheia: roda na thread da requisição)
+    @Value("${storage.upload.threads:8}")
+    private int uploadThreads;
+
+    @Value("${storage.upload.queue-capacity:64}")
+    private int uploadQueueCapacity;
+
+    // Prazo para todas as imagens de uma escrita chegarem ao storage
+    @Value("${storage.upload.timeout:30s}")
+    private Duration uploadTimeout;
+
+    // KEY do storage -> presigned URL ainda válida
+    private ExpiringLruCache<String, String> presignedUrlCache;
+
+    private ThreadPoolExecutor uploadExecutor;
+
+    @PostConstruct
+    void initPresignedUrlCache() {
+        if (presignBucket.isZero() || presignBucket.isNegative() || presignBucket.compareTo(presignValidity) >= 0) {
+            throw new IllegalStateException("storage.presign.bucket deve ser positivo e menor que storage.presign.validity");
+        }
+        presignedUrlCache = new ExpiringLruCache<String, String>(presignCacheMaxEntries, presignValidity)
+                .bindTo(meterRegistry, "presigned-urls");
+    }
+
+    @PostConstruct
+    void initUploadExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        uploadExecutor = new ThreadPoolExecutor(uploadThreads, uploadThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(uploadQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-upload-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdownUploadExecutor() {
+        uploadExecutor.shutdownNow();
+    }
+
     /**
      * Faz upload de uma imagem base64 para o storage e retorna a KEY
      */
     public String uploadBase64Image(String base64Image, String fileName, String contentType) {
+        return uploadBase64ToKey(base64Image, generateUniqueFileName(fileName), contentType,
+                "Erro ao fazer upload da imagem: ");
+    }
+
+    /**
+     * Decodifica o base64 e envia para a KEY informada
+     */
+    private String uploadBase64ToKey(String base64Image, String key, String contentType, String errorMessage) {
         try {
             // Remove o prefixo data:image/png;base64, se existir
             String base64Data = base64Image;
@@ -40,38 +168,314 @@ public class ImageService {
             // Valida o tamanho da imagem (máximo 5MB)
             validateImageSize(imageBytes);
 
-            // Gera um nome único para o arquivo
-            String uniqueFileName = generateUniqueFileName(fileName);
-
             // Faz upload para o storage
             InputStream inputStream = new ByteArrayInputStream(imageBytes);
-            String key = storageService.uploadFile(bucketName, uniqueFileName, inputStream, contentType, imageBytes.length);
 
             // Retorna apenas a KEY (não a URL)
-            return key;
+            return storageService.uploadFile(bucketName, key, inputStream, contentType, imageBytes.length);
 
         } catch (Exception e) {
             Sentry.captureException(e);
-            throw new IllegalUserArgumentException("Erro ao fazer upload da imagem: " + e.getMessage());
+            throw new IllegalUserArgumentException(errorMessage + e.getMessage());
         }
     }
     
     /**
-     * Gera uma presigned URL para a imagem (válida por 1 hora)
+     * Upload direto, fase 1: gera a KEY (prefixada pela loja) e a URL de PUT para o
+     * navegador enviar a imagem ao storage sem passar pela aplicação
+     */
+    public ImageUploadResponse createImageUpload(CreateImageUploadRequest request) {
+        checkCanUpload(request.storeId(), request.target());
+
+        String contentType = request.contentType() != null ? request.contentType().toLowerCase(Locale.ROOT).trim() : null;
+        long contentLength = request.contentLength() != null ? request.contentLength() : 0;
+        String key = uploadKeyPrefix(request.storeId(), request.target()) + uniqueFileNameSuffix(request.fileName());
+
+        PresignedUrl presigned = storageService.getPresignedUploadUrl(
+                bucketName, key, contentType, contentLength, uploadPresignValidity);
+        return new ImageUploadResponse(key, presigned.url(), "PUT", Map.of("Content-Type", contentType), presigned.expiresAt());
+    }
+
+    /**
+     * Upload direto, fase 2: confere o objeto enviado e devolve a KEY com uma URL de visualização.
+     * A KEY é então informada em uploadKey ao criar/atualizar a entidade.
+     */
+    public ConfirmImageUploadResponse confirmImageUpload(ConfirmImageUploadRequest request) {
+        checkCanUpload(request.storeId(), request.target());
+        String key = verifyUploadedImage(request.storeId(), request.target(), request.key(), requestUploadedKeys(), false);
+        return new ConfirmImageUploadResponse(key, getPresignedUrl(key));
+    }
+
+    /**
+     * KEY da imagem de uma requisição: confere o upload direto quando veio uploadKey,
+     * senão faz o upload do base64 (caminho antigo). A permissão na loja já foi verificada.
+     */
+    public String resolveImageKey(UUID storeId, ImageUploadTarget target, String uploadKey,
+                                  String base64Image, String fileName, String contentType) {
+        if (uploadKey != null && !uploadKey.isBlank()) {
+            return verifyUploadedImage(storeId, target, uploadKey);
+        }
+        if (target == ImageUploadTarget.STORE_LOGO) {
+            return uploadStoreLogo(base64Image, fileName, contentType);
+        }
+        return uploadBase64Image(base64Image, fileName, contentType);
+    }
+
+    /**
+     * Resolve as KEYs de várias imagens ao mesmo tempo, fora de transação: os base64 são
+     * enviados em paralelo (KEY prefixada pela loja, como no upload direto) e os uploadKey
+     * conferidos. Espera todos juntos até storage.upload.timeout; se algum falhar, remove
+     * os que foram enviados aqui. As KEYs voltam na ordem de entrada e entram na
+     * requisição como uploadKey, sem nova conferência no storage nesta requisição.
+     */
+    public ResolvedImages resolveImageKeys(UUID storeId, ImageUploadTarget target, List<ImageSource> images) {
+        if (images == null || images.isEmpty()) {
+            return new ResolvedImages(List.of(), List.of());
+        }
+        checkCanUpload(storeId, target);
+
+        // KEYs já conferidas nesta requisição (ex.: multipart), lidas nas threads do pool sem o contexto da requisição
+        Set<String> requestKeys = requestUploadedKeys();
+        Set<String> knownKeys = requestKeys != null ? Set.copyOf(requestKeys) : Set.of();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (ImageSource image : images) {
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> resolveImageKey(storeId, target, image, knownKeys), uploadExecutor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(uploadTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            discardUploads(images, futures);
+            throw new ExternalServiceException("Tempo esgotado ao enviar as imagens para o storage.");
+        } catch (InterruptedException e) {
+            discardUploads(images, futures);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando o upload das imagens", e);
+        } catch (ExecutionException e) {
+            discardUploads(images, futures);
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Erro ao enviar as imagens", e.getCause());
+        }
+
+        List<String> keys = new ArrayList<>();
+        List<String> uploadedKeys = new ArrayList<>();
+        for (int i = 0; i < images.size(); i++) {
+            String key = futures.get(i).join();
+            keys.add(key);
+            if (!images.get(i).hasUploadKey()) {
+                uploadedKeys.add(key);
+            }
+        }
+        // Todas as KEYs resolvidas (uploadKey conferido ou base64 enviado) ficam registradas na
+        // requisição: a transação que grava a entidade as aceita sem voltar ao storage
+        if (requestKeys != null) {
+            requestKeys.addAll(keys);
+        }
+        return new ResolvedImages(keys, uploadedKeys);
+    }
+
+    private String resolveImageKey(UUID storeId, ImageUploadTarget target, ImageSource image, Set<String> knownKeys) {
+        if (image.hasUploadKey()) {
+            return verifyUploadedImage(storeId, target, image.uploadKey(), knownKeys, true);
+        }
+        if (image.base64Image() == null || image.base64Image().isBlank()) {
+            throw new IllegalUserArgumentException("Imagem sem conteúdo.");
+        }
+        String key = uploadKeyPrefix(storeId, target) + uniqueFileNameSuffix(image.fileName());
+        return uploadBase64ToKey(image.base64Image(), key, image.contentType(), "Erro ao fazer upload da imagem: ");
+    }
+
+    /**
+     * Remove o que já foi enviado (base64) e, para os uploads ainda em andamento, remove ao terminar
+     */
+    private void discardUploads(List<ImageSource> images, List<CompletableFuture<String>> futures) {
+        for (int i = 0; i < images.size(); i++) {
+            if (images.get(i).hasUploadKey()) {
+                continue;
+            }
+            futures.get(i).whenComplete((key, error) -> {
+                if (key != null) {
+                    discardImages(List.of(key));
+                }
+            });
+        }
+    }
+
+    /**
+     * Imagem de uma requisição: uploadKey de um upload direto ou o base64 (caminho antigo)
+     */
+    public record ImageSource(String uploadKey, String base64Image, String fileName, String contentType) {
+
+        boolean hasUploadKey() {
+            return uploadKey != null && !uploadKey.isBlank();
+        }
+    }
+
+    /**
+     * KEYs na ordem das imagens; uploadedKeys são as enviadas aqui, a remover se a escrita falhar
+     */
+    public record ResolvedImages(List<String> keys, List<String> uploadedKeys) {
+    }
+
+    /**
+     * Upload multipart: envia cada parte direto ao storage (stream do arquivo temporário
+     * do Tomcat, sem base64 nem cópia em memória) e executa a ação com as KEYs geradas,
+     * que entram na requisição como uploadKey. Se a ação falhar, as imagens enviadas
+     * são removidas. Partes nulas ou vazias geram KEY null na mesma posição.
+     */
+    public <T> T withUploadedImages(UUID storeId, List<MultipartImage> images, Function<List<String>, T> action) {
+        List<String> keys = new ArrayList<>();
+        try {
+            for (MultipartImage image : images) {
+                keys.add(image.isEmpty() ? null : uploadMultipartImage(storeId, image.target(), image.file()));
+            }
+            return action.apply(keys);
+        } catch (RuntimeException e) {
+            discardImages(keys.stream().filter(key -> key != null).toList());
+            throw e;
+        }
+    }
+
+    private String uploadMultipartImage(UUID storeId, ImageUploadTarget target, MultipartFile file) {
+        checkCanUpload(storeId, target);
+        String key = uploadKeyPrefix(storeId, target) + uniqueFileNameSuffix(file.getOriginalFilename());
+        try (InputStream inputStream = file.getInputStream()) {
+            storageService.uploadFile(bucketName, key, inputStream, file.getContentType(), file.getSize());
+        } catch (IOException e) {
+            Sentry.captureException(e);
+            throw new IllegalUserArgumentException("Erro ao ler a imagem enviada: " + e.getMessage());
+        }
+        Set<String> uploadedKeys = requestUploadedKeys();
+        if (uploadedKeys != null) {
+            uploadedKeys.add(key);
+        }
+        return key;
+    }
+
+    /**
+     * Parte de um upload multipart e o destino dela
+     */
+    public record MultipartImage(ImageUploadTarget target, MultipartFile file) {
+
+        boolean isEmpty() {
+            return file == null || file.isEmpty();
+        }
+    }
+
+    /**
+     * Só aceita KEYs geradas para esta loja e destino (evita anexar o arquivo de outra loja)
+     * e ainda não usadas: a mesma KEY em duas entidades faria a remoção de uma apagar a
+     * imagem da outra. O uso único é garantido no banco pela reserva em storage_upload_claim
+     * (ver V36); a busca nas entidades cobre as KEYs anexadas antes dela e as do base64.
+     */
+    private String verifyUploadedImage(UUID storeId, ImageUploadTarget target, String key) {
+        return verifyUploadedImage(storeId, target, key, requestUploadedKeys(), true);
+    }
+
+    /**
+     * @param claim reserva a KEY (ao anexar a uma entidade); sem reserva só confere se está livre
+     */
+    private String verifyUploadedImage(UUID storeId, ImageUploadTarget target, String key, Set<String> uploadedKeys,
+                                       boolean claim) {
+        if (key == null || !key.startsWith(uploadKeyPrefix(storeId, target)) || key.contains("..")) {
+            throw new IllegalUserArgumentException("Upload inválido para esta loja.");
+        }
+        if (uploadedKeys == null || !uploadedKeys.contains(key)) {
+            boolean available = claim ? claimKey(key) : !isKeyClaimed(key);
+            if (!available || isKeyInUse(key)) {
+                throw new IllegalUserArgumentException("Este upload já foi utilizado. Envie a imagem novamente.");
+            }
+            storageService.verifyUploadedImage(bucketName, key);
+        }
+        return key;
+    }
+
+    /**
+     * Reserva a KEY; false se outra requisição já a reservou
+     */
+    private boolean claimKey(String key) {
+        return jdbcTemplate.update(CLAIM_KEY_SQL, key) == 1;
+    }
+
+    private boolean isKeyClaimed(String key) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(KEY_CLAIMED_SQL, Boolean.class, key));
+    }
+
+    private boolean isKeyInUse(String key) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                KEY_IN_USE_SQL, Boolean.class, key, key, key, key, key, key, key, key));
+    }
+
+    /**
+     * KEYs enviadas nesta requisição, ou null fora de uma requisição HTTP
+     */
+    @SuppressWarnings("unchecked")
+    private Set<String> requestUploadedKeys() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Object keys = attributes.getAttribute(REQUEST_UPLOADED_KEYS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (keys == null) {
+            keys = new HashSet<String>();
+            attributes.setAttribute(REQUEST_UPLOADED_KEYS_ATTRIBUTE, keys, RequestAttributes.SCOPE_REQUEST);
+        }
+        return (Set<String>) keys;
+    }
+
+    private void checkCanUpload(UUID storeId, ImageUploadTarget target) {
+        if (storeId == null || target == null) {
+            throw new IllegalUserArgumentException("Loja e destino do upload são obrigatórios.");
+        }
+        if (!storeAccessService.currentUserCanEditStore(storeId)) {
+            throw new InsufficientPermissionException("Usuário não tem permissão para enviar imagens para esta loja.");
+        }
+    }
+
+    private static String uploadKeyPrefix(UUID storeId, ImageUploadTarget target) {
+        return target.getKeyPrefix() + storeId + "/";
+    }
+
+    /**
+     * Retorna uma presigned URL para a imagem (válida por 1 hora a partir do início da janela)
+     * A mesma URL é reutilizada até o fim da janela de assinatura
      */
     public String getPresignedUrl(String key) {
         if (key == null || key.isEmpty()) {
             return null;
         }
+        String cachedUrl = presignedUrlCache.getIfPresent(key);
+        if (cachedUrl != null) {
+            return cachedUrl;
+        }
         try {
-            return storageService.getPresignedUrl(bucketName, key, java.time.Duration.ofHours(1));
+            Instant bucketStart = currentBucketStart();
+            Instant bucketEnd = bucketStart.plus(presignBucket);
+            // Quem recebe a URL no fim da janela ainda tem validity - bucket para usá-la
+            PresignedUrl presigned = storageService.getPresignedUrl(
+                    bucketName, key, bucketStart, presignValidity, presignValidity.minus(presignBucket));
+            presignedUrlCache.put(key, presigned.url(), bucketEnd);
+            return presigned.url();
         } catch (Exception e) {
             Sentry.captureException(e);
-            System.err.println("Erro ao gerar presigned URL: " + e.getMessage());
+            log.error("Erro ao gerar presigned URL da imagem {}: {}", key, e.getMessage(), e);
             return null;
         }
     }
 
+    /**
+     * Início da janela de assinatura atual, alinhado ao epoch (igual em todos os nós)
+     */
+    private Instant currentBucketStart() {
+        long bucketMillis = presignBucket.toMillis();
+        long now = System.currentTimeMillis();
+        return Instant.ofEpochMilli(now - Math.floorMod(now, bucketMillis));
+    }
+
     /**
      * Faz upload de múltiplas imagens e retorna as URLs
      */
@@ -89,82 +493,66 @@ public class ImageService {
      * Faz upload de uma imagem de logo da loja base64 para o storage e retorna a KEY
      */
     public String uploadStoreLogo(String base64Image, String fileName, String contentType) {
-        try {
-            // Remove o prefixo data:image/png;base64, se existir
-            String base64Data = base64Image;
-            if (base64Image.contains(",")) {
-                base64Data = base64Image.substring(base64Image.indexOf(",") + 1);
-            }
-
-            // Decodifica o base64
-            byte[] imageBytes = Base64.getDecoder().decode(base64Data);
-
-            // Valida o tamanho da imagem (máximo 5MB)
-            validateImageSize(imageBytes);
-
-            // Gera um nome único para o arquivo usando o prefixo "stores/logos/"
-            String uniqueFileName = generateUniqueStoreLogoFileName(fileName);
-
-            // Faz upload para o storage
-            InputStream inputStream = new ByteArrayInputStream(imageBytes);
-            String key = storageService.uploadFile(bucketName, uniqueFileName, inputStream, contentType, imageBytes.length);
-
-            // Retorna apenas a KEY (não a URL)
-            return key;
-
-        } catch (Exception e) {
-            Sentry.captureException(e);
-            throw new IllegalUserArgumentException("Erro ao fazer upload do logo: " + e.getMessage());
-        }
+        // Gera um nome único para o arquivo usando o prefixo "stores/logos/"
+        return uploadBase64ToKey(base64Image, generateUniqueStoreLogoFileName(fileName), contentType,
+                "Erro ao fazer upload do logo: ");
     }
 
     /**
-     * Deleta uma imagem do storage usando a key
+     * Agenda a remoção de uma imagem do storage usando a key. A KEY entra na fila
+     * na transação atual e só é removida depois do commit (ver StorageDeletionQueueService)
      */
     public void deleteImage(String key) {
         if (key == null || key.isEmpty()) {
             return;
         }
 
-        try {
-            storageService.deleteFile(bucketName, key);
-        } catch (Exception e) {
-            // Log error but don't throw - deletion of images should not fail the main operation
-            Sentry.captureException(e);
-            System.err.println("Erro ao deletar imagem do storage: " + e.getMessage());
-        }
+        deleteMultipleImages(List.of(key));
     }
 
     /**
-     * Deleta múltiplas imagens do storage
+     * Agenda a remoção de múltiplas imagens do storage
      */
     public void deleteMultipleImages(List<String> imageUrls) {
         if (imageUrls == null || imageUrls.isEmpty()) {
             return;
         }
 
-        imageUrls.forEach(this::deleteImage);
+        imageUrls.forEach(presignedUrlCache::invalidate);
+        storageDeletionQueueService.enqueue(imageUrls);
     }
 
     /**
-     * Gera um nome único para o arquivo
+     * Remove imagens enviadas por uma escrita que falhou. Erros só são registrados,
+     * para não esconder o erro original da escrita.
      */
-    private String generateUniqueFileName(String originalFileName) {
-        String extension = "";
-        if (originalFileName != null && originalFileName.contains(".")) {
-            extension = originalFileName.substring(originalFileName.lastIndexOf("."));
+    public void discardImages(List<String> keys) {
+        try {
+            deleteMultipleImages(keys);
+        } catch (Exception e) {
+            Sentry.captureException(e);
+            log.error("Erro ao agendar a remoção de {} imagens do storage: {}", keys.size(), e.getMessage(), e);
         }
+    }
 
-        String uuid = UUID.randomUUID().toString();
-        String timestamp = String.valueOf(System.currentTimeMillis());
-
-        return "products/" + uuid + "-" + timestamp + extension;
+    /**
+     * Gera um nome único para o arquivo
+     */
+    private String generateUniqueFileName(String originalFileName) {
+        return "products/" + uniqueFileNameSuffix(originalFileName);
     }
 
     /**
      * Gera um nome único para o arquivo de logo da loja
      */
     public String generateUniqueStoreLogoFileName(String originalFileName) {
+        return "stores/logos/" + uniqueFileNameSuffix(originalFileName);
+    }
+
+    /**
+     * uuid-timestamp mais a extensão do arquivo original
+     */
+    private String uniqueFileNameSuffix(String originalFileName) {
         String extension = "";
         if (originalFileName != null && originalFileName.contains(".")) {
             extension = originalFileName.substring(originalFileName.lastIndexOf("."));
@@ -173,7 +561,7 @@ public class ImageService {
         String uuid = UUID.randomUUID().toString();
         String timestamp = String.valueOf(System.currentTimeMillis());
 
-        return "stores/logos/" + uuid + "-" + timestamp + extension;
+        return uuid + "-" + timestamp + extension;
     }
 
 
@@ -0,0 +1,52 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import com.dalivim.suavitrine.suavitrine.repositories.StoreEventRepository;
+import io.sentry.Sentry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Recalcula diariamente, a partir dos eventos brutos, as métricas do dia anterior
+ * de cada loja que teve eventos. Corrige eventuais divergências dos contadores
+ * incrementais (ex.: lote com falha parcial). Roda sobre um dia já fechado para não
+ * competir com os incrementos da ingestão.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MetricsReconciliationJob {
+
+    private final StoreEventRepository storeEventRepository;
+    private final MetricsService metricsService;
+
+    @Scheduled(cron = "${metrics.reconciliation.cron:0 30 3 * * *}", zone = "UTC")
+    public void reconcilePreviousDay() {
+        reconcileDay(LocalDate.now(ZoneOffset.UTC).minusDays(1));
+    }
+
+    /**
+     * Recalcula o dia informado para todas as lojas com eventos nele
+     */
+    public void reconcileDay(LocalDate date) {
+        Instant startOfDay = date.atStartOfDay().toInstant(ZoneOffset.UTC);
+        List<UUID> storeIds = storeEventRepository.findStoreIdsWithEventsBetween(startOfDay, startOfDay.plusSeconds(86400));
+        log.info("Reconciling metrics of {} for {} stores", date, storeIds.size());
+
+        for (UUID storeId : storeIds) {
+            try {
+                metricsService.reconcileDailyMetrics(storeId, date);
+            } catch (Exception e) {
+                Sentry.captureException(e);
+                log.error("Erro ao reconciliar métricas da loja {} em {}: {}", storeId, date, e.getMessage(), e);
+            }
+        }
+    }
+}
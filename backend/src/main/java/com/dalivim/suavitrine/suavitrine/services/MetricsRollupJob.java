@@ -0,0 +1,117 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import io.sentry.Sentry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Agenda os rollups de métricas. O rollup horário continua de onde parou
+ * (metrics_rollup_checkpoint, ver V34): horas perdidas por deploy, indisponibilidade
+ * ou falha são refeitas nos ciclos seguintes, até metrics.rollup.max-catch-up-hours
+ * por ciclo. A hora atual e a anterior são sempre refeitas (eventos da fila de
+ * ingestão podem chegar alguns segundos depois da virada da hora); o mês atual
+ * também, e o anterior nos primeiros dias do mês, quando a reconciliação noturna
+ * ainda pode corrigir o último dia dele.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MetricsRollupJob {
+
+    private static final String READ_CHECKPOINT_SQL =
+            "SELECT hourly_rolled_up_until FROM metrics_rollup_checkpoint WHERE id = 1";
+
+    // GREATEST ignora NULL e não deixa uma execução concorrente atrasar o checkpoint
+    private static final String ADVANCE_CHECKPOINT_SQL = """
+            UPDATE metrics_rollup_checkpoint
+            SET hourly_rolled_up_until = GREATEST(hourly_rolled_up_until, ?), updated_at = NOW()
+            WHERE id = 1
+            """;
+
+    private final MetricsRollupService metricsRollupService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${metrics.rollup.hourly-retention-days:35}")
+    private int hourlyRetentionDays;
+
+    @Value("${metrics.rollup.max-catch-up-hours:72}")
+    private int maxCatchUpHours;
+
+    @Scheduled(cron = "${metrics.rollup.hourly-cron:0 */5 * * * *}", zone = "UTC")
+    public void rollupRecentHours() {
+        Instant currentHour = Instant.now().truncatedTo(ChronoUnit.HOURS);
+        Instant previousHour = currentHour.minus(1, ChronoUnit.HOURS);
+        Instant retentionStart = currentHour.minus(hourlyRetentionDays, ChronoUnit.DAYS);
+
+        Instant from = readCheckpoint();
+        if (from == null || from.isBefore(retentionStart)) {
+            from = retentionStart;
+        }
+        if (from.isAfter(previousHour)) {
+            from = previousHour;
+        }
+
+        Instant hour = from;
+        for (int i = 0; i < maxCatchUpHours && !hour.isAfter(currentHour); i++) {
+            if (!rollupHour(hour)) {
+                break; // o checkpoint para na hora que falhou; o próximo ciclo tenta de novo
+            }
+            hour = hour.plus(1, ChronoUnit.HOURS);
+            // A hora anterior nunca é dada como concluída: ainda pode receber eventos atrasados
+            Instant done = hour.isAfter(previousHour) ? previousHour : hour;
+            jdbcTemplate.update(ADVANCE_CHECKPOINT_SQL, Timestamp.from(done));
+        }
+
+        if (hour.isBefore(previousHour)) {
+            log.info("Rollup horário atrasado: continua em {} no próximo ciclo", hour);
+            // Enquanto o atraso é recuperado, as horas recentes continuam atualizadas
+            rollupHour(previousHour);
+            rollupHour(currentHour);
+        }
+    }
+
+    @Scheduled(cron = "${metrics.rollup.monthly-cron:0 */15 * * * *}", zone = "UTC")
+    public void rollupRecentMonths() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate currentMonth = today.withDayOfMonth(1);
+        if (today.getDayOfMonth() <= 2) {
+            rollupMonth(currentMonth.minusMonths(1));
+        }
+        rollupMonth(currentMonth);
+    }
+
+    private boolean rollupHour(Instant hour) {
+        try {
+            metricsRollupService.rollupHour(hour);
+            return true;
+        } catch (Exception e) {
+            Sentry.captureException(e);
+            log.error("Erro no rollup horário de {}: {}", hour, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private Instant readCheckpoint() {
+        Timestamp checkpoint = jdbcTemplate.queryForObject(READ_CHECKPOINT_SQL, Timestamp.class);
+        return checkpoint != null ? checkpoint.toInstant() : null;
+    }
+
+    private void rollupMonth(LocalDate month) {
+        try {
+            metricsRollupService.rollupMonth(month);
+        } catch (Exception e) {
+            Sentry.captureException(e);
+            log.error("Erro no rollup mensal de {}: {}", month, e.getMessage(), e);
+        }
+    }
+}
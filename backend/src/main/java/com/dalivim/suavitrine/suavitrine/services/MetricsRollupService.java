@@ -0,0 +1,97 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import com.dalivim.suavitrine.suavitrine.entities.StoreEvent;
+import com.dalivim.suavitrine.suavitrine.entities.StoreMetrics;
+import com.dalivim.suavitrine.suavitrine.entities.StoreMetricsHourly;
+import com.dalivim.suavitrine.suavitrine.entities.StoreMetricsMonthly;
+import com.dalivim.suavitrine.suavitrine.infra.metrics.TopKSketch;
+import com.dalivim.suavitrine.suavitrine.repositories.StoreEventRepository;
+import com.dalivim.suavitrine.suavitrine.repositories.StoreMetricsHourlyRepository;
+import com.dalivim.suavitrine.suavitrine.repositories.StoreMetricsMonthlyRepository;
+import com.dalivim.suavitrine.suavitrine.repositories.StoreMetricsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Mantém os rollups horário (store_metrics_hourly, a partir de store_events) e
+ * mensal (store_metrics_monthly, a partir das linhas diárias de store_metrics).
+ * O rollup diário é o próprio store_metrics, mantido na ingestão.
+ * Cada rollup recalcula o período inteiro, então pode ser repetido sem duplicar contagens.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MetricsRollupService {
+
+    private final StoreEventRepository storeEventRepository;
+    private final StoreMetricsRepository storeMetricsRepository;
+    private final StoreMetricsHourlyRepository storeMetricsHourlyRepository;
+    private final StoreMetricsMonthlyRepository storeMetricsMonthlyRepository;
+    private final StoreTopEntitiesService storeTopEntitiesService;
+
+    /**
+     * Recalcula a hora que começa em {@code hour} para todas as lojas com eventos nela
+     */
+    @Transactional
+    public void rollupHour(Instant hour) {
+        Instant nextHour = hour.plus(1, ChronoUnit.HOURS);
+        int stores = storeMetricsHourlyRepository.rollupHour(hour, nextHour);
+        log.debug("Rollup horário de {}: {} lojas", hour, stores);
+        if (stores == 0) {
+            return;
+        }
+
+        // loja -> tipo de evento -> entidade -> contagem
+        Map<UUID, Map<StoreEvent.EventType, Map<UUID, Long>>> countsByStore = new HashMap<>();
+        for (Object[] row : storeEventRepository.countEntitiesByStoreAndEventTypeBetween(
+                hour, nextHour, StoreEvent.EventType.STORE_ACCESS)) {
+            countsByStore.computeIfAbsent((UUID) row[0], k -> new EnumMap<>(StoreEvent.EventType.class))
+                    .computeIfAbsent((StoreEvent.EventType) row[1], k -> new HashMap<>())
+                    .put((UUID) row[2], (Long) row[3]);
+        }
+
+        for (StoreMetricsHourly hourly : storeMetricsHourlyRepository.findByHour(hour)) {
+            Map<String, TopKSketch> products = new LinkedHashMap<>();
+            Map<String, TopKSketch> categories = new LinkedHashMap<>();
+            storeTopEntitiesService.addCounts(products, categories,
+                    countsByStore.getOrDefault(hourly.getStore().getId(), Map.of()));
+            hourly.setTopProducts(storeTopEntitiesService.write(products));
+            hourly.setTopCategories(storeTopEntitiesService.write(categories));
+        }
+    }
+
+    /**
+     * Recalcula o mês que começa em {@code month} para todas as lojas com métricas diárias nele
+     */
+    @Transactional
+    public void rollupMonth(LocalDate month) {
+        LocalDate nextMonth = month.plusMonths(1);
+        int stores = storeMetricsMonthlyRepository.rollupMonth(month, nextMonth);
+        log.debug("Rollup mensal de {}: {} lojas", month, stores);
+        if (stores == 0) {
+            return;
+        }
+
+        Map<UUID, List<StoreMetrics>> daysByStore = storeMetricsRepository.findAllByDateRange(month, nextMonth).stream()
+                .collect(Collectors.groupingBy(sm -> sm.getStore().getId()));
+
+        for (StoreMetricsMonthly monthly : storeMetricsMonthlyRepository.findByMonth(month)) {
+            List<StoreMetrics> days = daysByStore.getOrDefault(monthly.getStore().getId(), List.of());
+            monthly.setTopProducts(storeTopEntitiesService.merge(days.stream().map(StoreMetrics::getTopProducts).toList()));
+            monthly.setTopCategories(storeTopEntitiesService.merge(days.stream().map(StoreMetrics::getTopCategories).toList()));
+        }
+    }
+}
@@ -1,18 +1,20 @@
 package com.dalivim.suavitrine.suavitrine.services;
 
-import com.dalivim.suavitrine.suavitrine.dtos.StoreEventRequest;
-import com.dalivim.suavitrine.suavitrine.dtos.StoreEventResponse;
 import com.dalivim.suavitrine.suavitrine.dtos.StoreMetricsResponse;
 import com.dalivim.suavitrine.suavitrine.entities.*;
+import com.dalivim.suavitrine.suavitrine.infra.exceptions.IllegalUserArgumentException;
+import com.dalivim.suavitrine.suavitrine.infra.metrics.TopKSketch;
 import com.dalivim.suavitrine.suavitrine.repositories.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -21,82 +23,43 @@ import java.util.stream.Collectors;
 @Slf4j
 public class MetricsService {
 
+    private static final int TOP_LIMIT = 10;
+
     private final StoreEventRepository storeEventRepository;
     private final StoreMetricsRepository storeMetricsRepository;
     private final StoreRepository storeRepository;
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final StoreTopEntitiesService storeTopEntitiesService;
+    private final StoreMetricsHourlyRepository storeMetricsHourlyRepository;
+    private final StoreMetricsMonthlyRepository storeMetricsMonthlyRepository;
 
-    @Transactional
-    public StoreEventResponse createEvent(UUID storeId, StoreEventRequest request) {
-        log.info("Creating event for store {}: {}", storeId, request.getEventType());
-        
-        Store store = storeRepository.findById(storeId)
-                .orElseThrow(() -> new RuntimeException("Store not found"));
+    // Janelas de até N dias usam o rollup horário
+    @Value("${metrics.query.hourly-max-days:2}")
+    private int hourlyMaxDays;
 
-        StoreEvent event = StoreEvent.builder()
-                .store(store)
-                .eventType(request.getEventType())
-                .entityId(request.getEntityId())
-                .entityType(request.getEntityType())
-                .metadata(request.getMetadata())
-                .build();
+    // Janelas de até N dias usam o rollup diário; acima disso, o mensal
+    @Value("${metrics.query.daily-max-days:92}")
+    private int dailyMaxDays;
 
-        StoreEvent savedEvent = storeEventRepository.save(event);
-        
-        // Processar métricas em background (assíncrono seria ideal, mas para MVP vamos fazer síncrono)
-        updateDailyMetrics(storeId, Instant.now());
-        
-        // Converte para DTO de resposta
-        return StoreEventResponse.builder()
-                .id(savedEvent.getId())
-                .storeId(savedEvent.getStore().getId())
-                .eventType(savedEvent.getEventType().name())
-                .entityId(savedEvent.getEntityId())
-                .entityType(savedEvent.getEntityType() != null ? savedEvent.getEntityType().name() : null)
-                .metadata(savedEvent.getMetadata())
-                .createdAt(savedEvent.getCreatedAt())
-                .build();
-    }
+    @Value("${metrics.query.max-days:730}")
+    private int maxWindowDays;
 
+    /**
+     * Reconciliação: recalcula as métricas de um dia a partir dos eventos brutos.
+     * No fluxo normal os contadores são incrementados na ingestão; isto só é usado
+     * para corrigir divergências (ver MetricsReconciliationJob).
+     */
     @Transactional
-    public void updateDailyMetrics(UUID storeId, Instant date) {
-        log.info("Updating daily metrics for store {} on date {}", storeId, date);
-        
-        // Normalizar data para início do dia
-        LocalDate localDate = LocalDate.ofInstant(date, ZoneOffset.UTC);
-        Instant startOfDay = localDate.atStartOfDay().toInstant(ZoneOffset.UTC);
-        Instant endOfDay = startOfDay.plusSeconds(86400); // 24 horas depois
+    public void reconcileDailyMetrics(UUID storeId, LocalDate date) {
+        log.info("Reconciling daily metrics for store {} on date {}", storeId, date);
 
-        // Buscar ou criar métricas do dia
-        StoreMetrics dailyMetrics = storeMetricsRepository.findByStoreIdAndDate(storeId, localDate)
-                .orElse(StoreMetrics.builder()
-                        .store(storeRepository.findById(storeId).orElseThrow())
-                        .date(localDate)
-                        .build());
+        Instant startOfDay = date.atStartOfDay().toInstant(ZoneOffset.UTC);
+        Instant endOfDay = startOfDay.plusSeconds(86400); // 24 horas depois
 
-        // Recalcular métricas do dia
-        Long dailyAccesses = storeEventRepository.countByStoreIdAndEventTypeAndEntityIdAndDateRange(
-                storeId, StoreEvent.EventType.STORE_ACCESS, null, startOfDay, endOfDay);
-        
-        Long productClicks = storeEventRepository.countByStoreIdAndEventTypeAndEntityIdAndDateRange(
-                storeId, StoreEvent.EventType.PRODUCT_CLICK, null, startOfDay, endOfDay);
-        
-        Long productConversions = storeEventRepository.countByStoreIdAndEventTypeAndEntityIdAndDateRange(
-                storeId, StoreEvent.EventType.PRODUCT_CONVERSION, null, startOfDay, endOfDay);
-        
-        Long categoryClicks = storeEventRepository.countByStoreIdAndEventTypeAndEntityIdAndDateRange(
-                storeId, StoreEvent.EventType.CATEGORY_CLICK, null, startOfDay, endOfDay);
-        
-        Long categoryAccesses = storeEventRepository.countByStoreIdAndEventTypeAndEntityIdAndDateRange(
-                storeId, StoreEvent.EventType.CATEGORY_ACCESS, null, startOfDay, endOfDay);
+        storeMetricsRepository.recomputeDailyCounters(storeId, date, startOfDay, endOfDay);
 
-        // Atualizar métricas
-        dailyMetrics.setDailyAccesses(dailyAccesses.intValue());
-        dailyMetrics.setProductClicks(productClicks.intValue());
-        dailyMetrics.setProductConversions(productConversions.intValue());
-        dailyMetrics.setCategoryClicks(categoryClicks.intValue());
-        dailyMetrics.setCategoryAccesses(categoryAccesses.intValue());
+        StoreMetrics dailyMetrics = storeMetricsRepository.findByStoreIdAndDate(storeId, date).orElseThrow();
 
         // Calcular top produtos e categorias do dia
         updateTopProductsAndCategories(dailyMetrics, storeId, startOfDay, endOfDay);
@@ -121,173 +84,217 @@ public class MetricsService {
         List<Object[]> topCategoryAccesses = storeEventRepository.findTopEntitiesByEventTypeAndDateRange(
                 storeId, StoreEvent.EventType.CATEGORY_ACCESS, startOfDay, endOfDay);
 
-        // Converter para JSON (simplificado para MVP)
-        dailyMetrics.setTopProducts(convertToJson(topProductClicks, topProductConversions));
-        dailyMetrics.setTopCategories(convertToJson(topCategoryClicks, topCategoryAccesses));
-    }
-
-    private String convertToJson(List<Object[]> clicks, List<Object[]> conversions) {
-        // Implementação simplificada para MVP - em produção usar Jackson ou Gson
-        Map<String, Object> result = new HashMap<>();
-        result.put("clicks", clicks.stream().map(arr -> Map.of("id", arr[0], "count", arr[1])).collect(Collectors.toList()));
-        result.put("conversions", conversions.stream().map(arr -> Map.of("id", arr[0], "count", arr[1])).collect(Collectors.toList()));
-        return result.toString(); // Simplificado - usar JSON serializer adequado
+        // Sketches exatos a partir dos eventos brutos, no mesmo formato mantido pela ingestão
+        dailyMetrics.setTopProducts(storeTopEntitiesService.write(Map.of(
+                StoreTopEntitiesService.CLICKS, storeTopEntitiesService.fromGroupedCounts(topProductClicks),
+                StoreTopEntitiesService.CONVERSIONS, storeTopEntitiesService.fromGroupedCounts(topProductConversions))));
+        dailyMetrics.setTopCategories(storeTopEntitiesService.write(Map.of(
+                StoreTopEntitiesService.CLICKS, storeTopEntitiesService.fromGroupedCounts(topCategoryClicks),
+                StoreTopEntitiesService.ACCESSES, storeTopEntitiesService.fromGroupedCounts(topCategoryAccesses))));
     }
 
+    /**
+     * Métricas dos últimos N dias. Lê a resolução mais grossa que cobre a janela:
+     * horas (store_metrics_hourly) para janelas curtas, dias (store_metrics) e, acima
+     * disso, meses (store_metrics_monthly). O início da janela é alinhado ao início
+     * da hora ou do dia; na resolução mensal os meses parciais das pontas vêm dos dias.
+     */
     public StoreMetricsResponse getStoreMetrics(UUID storeId, int days) {
         log.info("Getting metrics for store {} for last {} days", storeId, days);
-        
+
+        if (days < 1 || days > maxWindowDays) {
+            throw new IllegalUserArgumentException("O período deve ser entre 1 e " + maxWindowDays + " dias");
+        }
+
         Store store = storeRepository.findById(storeId)
                 .orElseThrow(() -> new RuntimeException("Store not found"));
 
         Instant endDate = Instant.now();
-        Instant startDate = endDate.minusSeconds(days * 86400L); // days * 24 * 60 * 60
-        
-        // Converter para LocalDate para busca de métricas agregadas
-        LocalDate startLocalDate = LocalDate.ofInstant(startDate, ZoneOffset.UTC);
+        Instant windowStart = endDate.minus(days, ChronoUnit.DAYS);
         LocalDate endLocalDate = LocalDate.ofInstant(endDate, ZoneOffset.UTC);
 
-        // Buscar métricas agregadas
-        List<StoreMetrics> metrics = storeMetricsRepository.findByStoreIdAndDateRange(storeId, startLocalDate, endLocalDate);
-        
-        // Calcular totais
-        Long totalAccesses = storeMetricsRepository.getTotalAccessesByStoreIdAndDateRange(storeId, startLocalDate, endLocalDate);
-        Long totalProductClicks = storeMetricsRepository.getTotalProductClicksByStoreIdAndDateRange(storeId, startLocalDate, endLocalDate);
-        Long totalProductConversions = storeMetricsRepository.getTotalProductConversionsByStoreIdAndDateRange(storeId, startLocalDate, endLocalDate);
-        Long totalCategoryClicks = storeMetricsRepository.getTotalCategoryClicksByStoreIdAndDateRange(storeId, startLocalDate, endLocalDate);
-        Long totalCategoryAccesses = storeMetricsRepository.getTotalCategoryAccessesByStoreIdAndDateRange(storeId, startLocalDate, endLocalDate);
-
-        // Converter métricas diárias
-        List<StoreMetricsResponse.DailyMetrics> dailyMetrics = metrics.stream()
-                .map(m -> {
-                    // Converter LocalDate para Instant (início do dia)
-                    Instant dateInstant = m.getDate().atStartOfDay(ZoneOffset.UTC).toInstant();
-                    return StoreMetricsResponse.DailyMetrics.builder()
-                            .date(dateInstant)
-                            .accesses(m.getDailyAccesses().longValue())
-                            .productClicks(m.getProductClicks().longValue())
-                            .productConversions(m.getProductConversions().longValue())
-                            .categoryClicks(m.getCategoryClicks().longValue())
-                            .categoryAccesses(m.getCategoryAccesses().longValue())
-                            .build();
-                })
+        String resolution;
+        Instant startDate;
+        List<MetricsBucket> buckets;
+        if (days <= hourlyMaxDays) {
+            resolution = "HOUR";
+            startDate = windowStart.truncatedTo(ChronoUnit.HOURS);
+            buckets = storeMetricsHourlyRepository.findByStoreIdAndHourRange(storeId, startDate, endDate).stream()
+                    .map(h -> new MetricsBucket(h.getHour(), h.getAccesses(), h.getProductClicks(),
+                            h.getProductConversions(), h.getCategoryClicks(), h.getCategoryAccesses(),
+                            h.getTopProducts(), h.getTopCategories()))
+                    .toList();
+        } else if (days <= dailyMaxDays) {
+            resolution = "DAY";
+            LocalDate startLocalDate = LocalDate.ofInstant(windowStart, ZoneOffset.UTC);
+            startDate = startLocalDate.atStartOfDay(ZoneOffset.UTC).toInstant();
+            buckets = storeMetricsRepository.findByStoreIdAndDateRange(storeId, startLocalDate, endLocalDate).stream()
+                    .map(d -> new MetricsBucket(d.getDate().atStartOfDay(ZoneOffset.UTC).toInstant(), d.getDailyAccesses(),
+                            d.getProductClicks(), d.getProductConversions(), d.getCategoryClicks(),
+                            d.getCategoryAccesses(), d.getTopProducts(), d.getTopCategories()))
+                    .toList();
+        } else {
+            resolution = "MONTH";
+            LocalDate startLocalDate = LocalDate.ofInstant(windowStart, ZoneOffset.UTC);
+            startDate = startLocalDate.atStartOfDay(ZoneOffset.UTC).toInstant();
+            LocalDate firstFullMonth = startLocalDate.getDayOfMonth() == 1
+                    ? startLocalDate
+                    : startLocalDate.withDayOfMonth(1).plusMonths(1);
+            LocalDate currentMonth = endLocalDate.withDayOfMonth(1);
+
+            // Só os meses inteiros dentro da janela vêm do rollup mensal; o início e o
+            // mês atual (parciais) são somados a partir das linhas diárias
+            buckets = new ArrayList<>();
+            if (startLocalDate.isBefore(firstFullMonth)) {
+                partialMonthBucket(storeId, startLocalDate, firstFullMonth.minusDays(1)).ifPresent(buckets::add);
+            }
+            if (firstFullMonth.isBefore(currentMonth)) {
+                storeMetricsMonthlyRepository.findByStoreIdAndMonthRange(storeId, firstFullMonth, currentMonth.minusMonths(1)).stream()
+                        .map(m -> new MetricsBucket(m.getMonth().atStartOfDay(ZoneOffset.UTC).toInstant(), m.getAccesses(),
+                                m.getProductClicks(), m.getProductConversions(), m.getCategoryClicks(),
+                                m.getCategoryAccesses(), m.getTopProducts(), m.getTopCategories()))
+                        .forEach(buckets::add);
+            }
+            partialMonthBucket(storeId, currentMonth, endLocalDate).ifPresent(buckets::add);
+        }
+
+        // Série no tamanho do bucket escolhido
+        List<StoreMetricsResponse.DailyMetrics> dailyMetrics = buckets.stream()
+                .map(b -> StoreMetricsResponse.DailyMetrics.builder()
+                        .date(b.start())
+                        .accesses(b.accesses())
+                        .productClicks(b.productClicks())
+                        .productConversions(b.productConversions())
+                        .categoryClicks(b.categoryClicks())
+                        .categoryAccesses(b.categoryAccesses())
+                        .build())
                 .collect(Collectors.toList());
 
-        // Buscar top produtos e categorias do período
-        List<StoreMetricsResponse.ProductMetrics> topProductsByClicks = getTopProductsByClicks(storeId, startDate, endDate);
-        List<StoreMetricsResponse.ProductMetrics> topProductsByConversions = getTopProductsByConversions(storeId, startDate, endDate);
-        List<StoreMetricsResponse.CategoryMetrics> topCategoriesByClicks = getTopCategoriesByClicks(storeId, startDate, endDate);
-        List<StoreMetricsResponse.CategoryMetrics> topCategoriesByAccesses = getTopCategoriesByAccesses(storeId, startDate, endDate);
+        // Top produtos e categorias do período a partir dos sketches dos buckets
+        List<String> topProducts = buckets.stream().map(MetricsBucket::topProducts).toList();
+        List<String> topCategories = buckets.stream().map(MetricsBucket::topCategories).toList();
 
         return StoreMetricsResponse.builder()
                 .storeId(storeId.toString())
                 .storeName(store.getName())
                 .startDate(startDate)
                 .endDate(endDate)
-                .totalAccesses(totalAccesses != null ? totalAccesses : 0L)
-                .totalProductClicks(totalProductClicks != null ? totalProductClicks : 0L)
-                .totalProductConversions(totalProductConversions != null ? totalProductConversions : 0L)
-                .totalCategoryClicks(totalCategoryClicks != null ? totalCategoryClicks : 0L)
-                .totalCategoryAccesses(totalCategoryAccesses != null ? totalCategoryAccesses : 0L)
+                .resolution(resolution)
+                .totalAccesses(buckets.stream().mapToLong(MetricsBucket::accesses).sum())
+                .totalProductClicks(buckets.stream().mapToLong(MetricsBucket::productClicks).sum())
+                .totalProductConversions(buckets.stream().mapToLong(MetricsBucket::productConversions).sum())
+                .totalCategoryClicks(buckets.stream().mapToLong(MetricsBucket::categoryClicks).sum())
+                .totalCategoryAccesses(buckets.stream().mapToLong(MetricsBucket::categoryAccesses).sum())
                 .dailyMetrics(dailyMetrics)
-                .topProductsByClicks(topProductsByClicks)
-                .topProductsByConversions(topProductsByConversions)
-                .topCategoriesByClicks(topCategoriesByClicks)
-                .topCategoriesByAccesses(topCategoriesByAccesses)
+                .topProductsByClicks(getTopProductsByClicks(topProducts))
+                .topProductsByConversions(getTopProductsByConversions(topProducts))
+                .topCategoriesByClicks(getTopCategoriesByClicks(topCategories))
+                .topCategoriesByAccesses(getTopCategoriesByAccesses(topCategories))
                 .build();
     }
 
-    private List<StoreMetricsResponse.ProductMetrics> getTopProductsByClicks(UUID storeId, Instant startDate, Instant endDate) {
-        List<Object[]> results = storeEventRepository.findTopEntitiesByEventTypeAndDateRange(
-                storeId, StoreEvent.EventType.PRODUCT_CLICK, startDate, endDate);
-        
-        return results.stream()
-                .limit(10) // Top 10
-                .map(arr -> {
-                    UUID productId = (UUID) arr[0];
-                    Long clicks = (Long) arr[1];
-                    
-                    Product product = productRepository.findById(productId).orElse(null);
-                    String productTitle = product != null ? product.getTitle() : "Produto não encontrado";
-                    
-                    return StoreMetricsResponse.ProductMetrics.builder()
-                            .productId(productId.toString())
-                            .productTitle(productTitle)
-                            .clicks(clicks)
-                            .conversions(0L) // Seria calculado separadamente
-                            .conversionRate(0.0)
-                            .build();
-                })
+    /**
+     * Soma os dias [from, to] (de um mesmo mês) num único bucket que começa em {@code from}
+     */
+    private Optional<MetricsBucket> partialMonthBucket(UUID storeId, LocalDate from, LocalDate to) {
+        List<StoreMetrics> days = storeMetricsRepository.findByStoreIdAndDateRange(storeId, from, to);
+        if (days.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new MetricsBucket(from.atStartOfDay(ZoneOffset.UTC).toInstant(),
+                days.stream().mapToLong(StoreMetrics::getDailyAccesses).sum(),
+                days.stream().mapToLong(StoreMetrics::getProductClicks).sum(),
+                days.stream().mapToLong(StoreMetrics::getProductConversions).sum(),
+                days.stream().mapToLong(StoreMetrics::getCategoryClicks).sum(),
+                days.stream().mapToLong(StoreMetrics::getCategoryAccesses).sum(),
+                storeTopEntitiesService.merge(days.stream().map(StoreMetrics::getTopProducts).toList()),
+                storeTopEntitiesService.merge(days.stream().map(StoreMetrics::getTopCategories).toList())));
+    }
+
+    private List<StoreMetricsResponse.ProductMetrics> getTopProductsByClicks(List<String> sketches) {
+        List<TopKSketch.Entry> top = storeTopEntitiesService.topOfPeriod(
+                sketches, StoreTopEntitiesService.CLICKS, TOP_LIMIT);
+        Map<UUID, String> titles = getProductTitles(top);
+
+        return top.stream()
+                .map(entry -> StoreMetricsResponse.ProductMetrics.builder()
+                        .productId(entry.id().toString())
+                        .productTitle(titles.getOrDefault(entry.id(), "Produto não encontrado"))
+                        .clicks(entry.count())
+                        .conversions(0L) // Seria calculado separadamente
+                        .conversionRate(0.0)
+                        .build())
                 .collect(Collectors.toList());
     }
 
-    private List<StoreMetricsResponse.ProductMetrics> getTopProductsByConversions(UUID storeId, Instant startDate, Instant endDate) {
-        List<Object[]> results = storeEventRepository.findTopEntitiesByEventTypeAndDateRange(
-                storeId, StoreEvent.EventType.PRODUCT_CONVERSION, startDate, endDate);
-        
-        return results.stream()
-                .limit(10)
-                .map(arr -> {
-                    UUID productId = (UUID) arr[0];
-                    Long conversions = (Long) arr[1];
-                    
-                    Product product = productRepository.findById(productId).orElse(null);
-                    String productTitle = product != null ? product.getTitle() : "Produto não encontrado";
-                    
-                    return StoreMetricsResponse.ProductMetrics.builder()
-                            .productId(productId.toString())
-                            .productTitle(productTitle)
-                            .clicks(0L) // Seria calculado separadamente
-                            .conversions(conversions)
-                            .conversionRate(0.0)
-                            .build();
-                })
+    private List<StoreMetricsResponse.ProductMetrics> getTopProductsByConversions(List<String> sketches) {
+        List<TopKSketch.Entry> top = storeTopEntitiesService.topOfPeriod(
+                sketches, StoreTopEntitiesService.CONVERSIONS, TOP_LIMIT);
+        Map<UUID, String> titles = getProductTitles(top);
+
+        return top.stream()
+                .map(entry -> StoreMetricsResponse.ProductMetrics.builder()
+                        .productId(entry.id().toString())
+                        .productTitle(titles.getOrDefault(entry.id(), "Produto não encontrado"))
+                        .clicks(0L) // Seria calculado separadamente
+                        .conversions(entry.count())
+                        .conversionRate(0.0)
+                        .build())
                 .collect(Collectors.toList());
     }
 
-    private List<StoreMetricsResponse.CategoryMetrics> getTopCategoriesByClicks(UUID storeId, Instant startDate, Instant endDate) {
-        List<Object[]> results = storeEventRepository.findTopEntitiesByEventTypeAndDateRange(
-                storeId, StoreEvent.EventType.CATEGORY_CLICK, startDate, endDate);
-        
-        return results.stream()
-                .limit(10)
-                .map(arr -> {
-                    UUID categoryId = (UUID) arr[0];
-                    Long clicks = (Long) arr[1];
-                    
-                    Category category = categoryRepository.findById(categoryId).orElse(null);
-                    String categoryName = category != null ? category.getName() : "Categoria não encontrada";
-                    
-                    return StoreMetricsResponse.CategoryMetrics.builder()
-                            .categoryId(categoryId.toString())
-                            .categoryName(categoryName)
-                            .clicks(clicks)
-                            .accesses(0L) // Seria calculado separadamente
-                            .build();
-                })
+    private List<StoreMetricsResponse.CategoryMetrics> getTopCategoriesByClicks(List<String> sketches) {
+        List<TopKSketch.Entry> top = storeTopEntitiesService.topOfPeriod(
+                sketches, StoreTopEntitiesService.CLICKS, TOP_LIMIT);
+        Map<UUID, String> names = getCategoryNames(top);
+
+        return top.stream()
+                .map(entry -> StoreMetricsResponse.CategoryMetrics.builder()
+                        .categoryId(entry.id().toString())
+                        .categoryName(names.getOrDefault(entry.id(), "Categoria não encontrada"))
+                        .clicks(entry.count())
+                        .accesses(0L) // Seria calculado separadamente
+                        .build())
                 .collect(Collectors.toList());
     }
 
-    private List<StoreMetricsResponse.CategoryMetrics> getTopCategoriesByAccesses(UUID storeId, Instant startDate, Instant endDate) {
-        List<Object[]> results = storeEventRepository.findTopEntitiesByEventTypeAndDateRange(
-                storeId, StoreEvent.EventType.CATEGORY_ACCESS, startDate, endDate);
-        
-        return results.stream()
-                .limit(10)
-                .map(arr -> {
-                    UUID categoryId = (UUID) arr[0];
-                    Long accesses = (Long) arr[1];
-                    
-                    Category category = categoryRepository.findById(categoryId).orElse(null);
-                    String categoryName = category != null ? category.getName() : "Categoria não encontrada";
-                    
-                    return StoreMetricsResponse.CategoryMetrics.builder()
-                            .categoryId(categoryId.toString())
-                            .categoryName(categoryName)
-                            .clicks(0L) // Seria calculado separadamente
-                            .accesses(accesses)
-                            .build();
-                })
+    private List<StoreMetricsResponse.CategoryMetrics> getTopCategoriesByAccesses(List<String> sketches) {
+        List<TopKSketch.Entry> top = storeTopEntitiesService.topOfPeriod(
+                sketches, StoreTopEntitiesService.ACCESSES, TOP_LIMIT);
+        Map<UUID, String> names = getCategoryNames(top);
+
+        return top.stream()
+                .map(entry -> StoreMetricsResponse.CategoryMetrics.builder()
+                        .categoryId(entry.id().toString())
+                        .categoryName(names.getOrDefault(entry.id(), "Categoria não encontrada"))
+                        .clicks(0L) // Seria calculado separadamente
+                        .accesses(entry.count())
+                        .build())
                 .collect(Collectors.toList());
     }
+
+    private Map<UUID, String> getProductTitles(List<TopKSketch.Entry> top) {
+        return productRepository.findAllById(top.stream().map(TopKSketch.Entry::id).toList()).stream()
+                .filter(product -> product.getTitle() != null)
+                .collect(Collectors.toMap(Product::getId, Product::getTitle));
+    }
+
+    private Map<UUID, String> getCategoryNames(List<TopKSketch.Entry> top) {
+        return categoryRepository.findAllById(top.stream().map(TopKSketch.Entry::id).toList()).stream()
+                .filter(category -> category.getName() != null)
+                .collect(Collectors.toMap(Category::getId, Category::getName));
+    }
+
+    /**
+     * Um ponto da série (hora, dia ou mês) independente da tabela de origem
+     */
+    private record MetricsBucket(Instant start,
+                                 long accesses,
+                                 long productClicks,
+                                 long productConversions,
+                                 long categoryClicks,
+                                 long categoryAccesses,
+                                 String topProducts,
+                                 String topCategories) {
+    }
 }
@@ -6,12 +6,13 @@ import com.dalivim.suavitrine.suavitrine.mappers.*;
 import com.dalivim.suavitrine.suavitrine.infra.exceptions.IllegalUserArgumentException;
 import com.dalivim.suavitrine.suavitrine.infra.exceptions.InsufficientPermissionException;
 import com.dalivim.suavitrine.suavitrine.infra.exceptions.ObjectNotFoundException;
-import com.dalivim.suavitrine.suavitrine.infra.security.JwtService;
 import com.dalivim.suavitrine.suavitrine.repositories.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.util.ArrayList;
@@ -26,36 +27,59 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final StoreRepository storeRepository;
-    private final StoreUserRepository storeUserRepository;
     private final ProductVariationRepository productVariationRepository;
     private final ProductImageRepository productImageRepository;
     private final ImageService imageService;
-    private final JwtService jwtService;
+    private final StoreAccessService storeAccessService;
     private final ProductMapper productMapper;
     private final ProductResponseMapper productResponseMapper;
     private final ProductVariationMapper productVariationMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
+    /**
+     * Cria um produto: as imagens são enviadas em paralelo antes da transação, que só
+     * grava as KEYs. Se a gravação falhar, as imagens enviadas são removidas.
+     */
     public ProductResponse createProduct(CreateProductRequest request) {
-        // Converte o DTO para Entity usando MapStruct
-        Product product = productMapper.toEntity(request);
+        List<ProductImageRequest> imageRequests = request.images() != null ? request.images() : List.of();
+        validateImageCount(imageRequests);
 
-        // Converte variações se fornecidas
-        List<ProductVariation> variations = null;
-        if (request.variations() != null && !request.variations().isEmpty()) {
-            variations = productVariationMapper.toEntityList(request.variations());
-        }
-
-        // Chama o método que trabalha com entidades
-        Product createdProduct = createProduct(
-                product,
+        ImageService.ResolvedImages resolvedImages = imageService.resolveImageKeys(
                 request.storeId(),
-                request.categoryId(),
-                request.images(),
-                variations);
-
-        // Converte para DTO de resposta
-        return productResponseMapper.toDto(createdProduct);
+                ImageUploadTarget.PRODUCT_IMAGE,
+                imageRequests.stream().map(ProductService::imageSource).toList());
+        List<ProductImageRequest> uploadedImages = new ArrayList<>();
+        for (int i = 0; i < imageRequests.size(); i++) {
+            uploadedImages.add(withUploadKey(imageRequests.get(i), resolvedImages.keys().get(i)));
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                // Converte o DTO para Entity usando MapStruct
+                Product product = productMapper.toEntity(request);
+
+                // Converte variações se fornecidas
+                List<ProductVariation> variations = null;
+                if (request.variations() != null && !request.variations().isEmpty()) {
+                    variations = productVariationMapper.toEntityList(request.variations());
+                }
+
+                // Chama o método que trabalha com entidades
+                Product createdProduct = createProduct(
+                        product,
+                        request.storeId(),
+                        request.categoryId(),
+                        uploadedImages,
+                        variations);
+
+                // Converte para DTO de resposta
+                return productResponseMapper.toDto(createdProduct);
+            });
+        } catch (RuntimeException e) {
+            imageService.discardImages(resolvedImages.uploadedKeys());
+            throw e;
+        }
     }
 
     @Transactional
@@ -68,7 +92,7 @@ public class ProductService {
             throw new IllegalUserArgumentException("Loja foi deletada");
         }
 
-        if (!userHasPermissionToEditStore(store)) {
+        if (!storeAccessService.currentUserCanEditStore(store.getId())) {
             throw new InsufficientPermissionException("Usuário não tem permissão para criar produtos nesta loja.");
         }
 
@@ -105,7 +129,10 @@ public class ProductService {
             // Faz upload das imagens para o storage (retorna as KEYS)
             List<String> uploadedKeys = new ArrayList<>();
             for (ProductImageRequest imageRequest : imageRequests) {
-                String key = imageService.uploadBase64Image(
+                String key = imageService.resolveImageKey(
+                        storeId,
+                        ImageUploadTarget.PRODUCT_IMAGE,
+                        imageRequest.uploadKey(),
                         imageRequest.base64Image(),
                         imageRequest.fileName(),
                         imageRequest.contentType());
@@ -135,42 +162,81 @@ public class ProductService {
             savedProduct.setVariations(savedVariations);
         }
 
+        eventPublisher.publishEvent(new StoreCatalogChangedEvent(storeId));
         return savedProduct;
     }
 
-    @Transactional
+    /**
+     * Atualiza um produto: as novas imagens são enviadas em paralelo antes da transação,
+     * que só grava as KEYs. Se a gravação falhar, as imagens enviadas são removidas.
+     */
     public ProductResponse updateProduct(UUID productId, UpdateProductRequest request) {
-        // Busca o produto existente
-        Product existingProduct = productRepository.findById(productId)
-                .orElseThrow(() -> new ObjectNotFoundException("Produto não encontrado"));
-
-        if (existingProduct.getDeletedAt() != null) {
-            throw new IllegalUserArgumentException("Produto foi deletado e não pode ser atualizado");
+        Product product = getProductByIdEntity(productId);
+        List<ProductGenericRequest> imageRequests = request.images() != null ? request.images() : List.of();
+        List<ProductImageRequest> newImageRequests = new ArrayList<>();
+        for (ProductGenericRequest imageRequest : imageRequests) {
+            if (imageRequest.existingImage() == null) {
+                if (imageRequest.newImage() == null) {
+                    throw new IllegalUserArgumentException("Imagem sem existingImage nem newImage");
+                }
+                newImageRequests.add(imageRequest.newImage());
+            }
         }
 
-        if (!userHasPermissionToEditStore(existingProduct.getStore())) {
-            throw new InsufficientPermissionException("Usuário não tem permissão para atualizar este produto.");
+        ImageService.ResolvedImages resolvedImages = imageService.resolveImageKeys(
+                product.getStore().getId(),
+                ImageUploadTarget.PRODUCT_IMAGE,
+                newImageRequests.stream().map(ProductService::imageSource).toList());
+        List<ProductGenericRequest> uploadedImages = new ArrayList<>();
+        int newImageIndex = 0;
+        for (ProductGenericRequest imageRequest : imageRequests) {
+            if (imageRequest.existingImage() != null) {
+                uploadedImages.add(imageRequest);
+            } else {
+                uploadedImages.add(new ProductGenericRequest(null, withUploadKey(
+                        imageRequest.newImage(), resolvedImages.keys().get(newImageIndex++))));
+            }
         }
-
-        // Atualiza a entidade com os dados do DTO usando MapStruct
-        productMapper.updateEntityFromDto(request, existingProduct);
-
-        // Converte variações se fornecidas
-        List<ProductVariation> variations = null;
-        if (request.variations() != null && !request.variations().isEmpty()) {
-            variations = productVariationMapper.toEntityList(request.variations());
+        UpdateProductRequest uploadedRequest = request.images() != null ? request.withImages(uploadedImages) : request;
+
+        try {
+            return transactionTemplate.execute(status -> {
+                // Busca o produto existente
+                Product existingProduct = productRepository.findById(productId)
+                        .orElseThrow(() -> new ObjectNotFoundException("Produto não encontrado"));
+
+                if (existingProduct.getDeletedAt() != null) {
+                    throw new IllegalUserArgumentException("Produto foi deletado e não pode ser atualizado");
+                }
+
+                if (!storeAccessService.currentUserCanEditStore(existingProduct.getStore().getId())) {
+                    throw new InsufficientPermissionException("Usuário não tem permissão para atualizar este produto.");
+                }
+
+                // Atualiza a entidade com os dados do DTO usando MapStruct
+                productMapper.updateEntityFromDto(uploadedRequest, existingProduct);
+
+                // Converte variações se fornecidas
+                List<ProductVariation> variations = null;
+                if (uploadedRequest.variations() != null && !uploadedRequest.variations().isEmpty()) {
+                    variations = productVariationMapper.toEntityList(uploadedRequest.variations());
+                }
+
+                // Chama o método que trabalha com entidades
+                Product updatedProduct = updateProduct(
+                        productId,
+                        existingProduct,
+                        uploadedRequest.categoryId(),
+                        uploadedRequest.images(),
+                        variations);
+
+                // Converte para DTO de resposta
+                return productResponseMapper.toDto(updatedProduct);
+            });
+        } catch (RuntimeException e) {
+            imageService.discardImages(resolvedImages.uploadedKeys());
+            throw e;
         }
-
-        // Chama o método que trabalha com entidades
-        Product updatedProduct = updateProduct(
-                productId,
-                existingProduct,
-                request.categoryId(),
-                request.images(),
-                variations);
-
-        // Converte para DTO de resposta
-        return productResponseMapper.toDto(updatedProduct);
     }
 
     /**
@@ -186,7 +252,7 @@ public class ProductService {
             throw new IllegalUserArgumentException("Produto foi deletado e não pode ser atualizado");
         }
 
-        if (!userHasPermissionToEditStore(existingProduct.getStore())) {
+        if (!storeAccessService.currentUserCanEditStore(existingProduct.getStore().getId())) {
             throw new InsufficientPermissionException("Usuário não tem permissão para atualizar este produto.");
         }
 
@@ -255,7 +321,9 @@ public class ProductService {
             existingProduct.setVariations(savedVariations);
         }
 
-        return productRepository.save(existingProduct);
+        Product savedProduct = productRepository.save(existingProduct);
+        eventPublisher.publishEvent(new StoreCatalogChangedEvent(savedProduct.getStore().getId()));
+        return savedProduct;
     }
 
     /**
@@ -270,18 +338,19 @@ public class ProductService {
             throw new IllegalUserArgumentException("Produto já foi deletado");
         }
 
-        if (!userHasPermissionToEditStore(product.getStore())) {
+        if (!storeAccessService.currentUserCanEditStore(product.getStore().getId())) {
             throw new InsufficientPermissionException("Usuário não tem permissão para deletar este produto.");
         }
 
-        // Soft delete das imagens também e delete do storage
+        // Soft delete das imagens também e remoção do storage (um lote na fila, após o commit)
         List<ProductImage> images = productImageRepository.findByProductAndDeletedAtIsNull(product);
+        List<String> imageKeys = new ArrayList<>();
         for (ProductImage image : images) {
-            // Delete a imagem do storage
-            imageService.deleteImage(image.getUrl());
+            imageKeys.add(image.getUrl());
             image.setDeletedAt(Instant.now());
             productImageRepository.save(image);
         }
+        imageService.deleteMultipleImages(imageKeys);
 
         // Soft delete das variações também
         List<ProductVariation> variations = productVariationRepository.findByProductAndDeletedAtIsNull(product);
@@ -292,6 +361,7 @@ public class ProductService {
 
         product.setDeletedAt(Instant.now());
         productRepository.save(product);
+        eventPublisher.publishEvent(new StoreCatalogChangedEvent(product.getStore().getId()));
     }
 
     public ProductResponse getProductById(UUID productId) {
@@ -299,6 +369,16 @@ public class ProductService {
         return productResponseMapper.toDto(product);
     }
 
+    /**
+     * Loja do produto, se o usuário autenticado pode editá-lo. Produto inexistente
+     * responde como sem permissão, para não revelar quais IDs existem.
+     */
+    public UUID getEditableStoreId(UUID productId) {
+        return productRepository.findStoreIdById(productId)
+                .filter(storeAccessService::currentUserCanEditStore)
+                .orElseThrow(() -> new InsufficientPermissionException("Usuário não tem permissão para atualizar este produto."));
+    }
+
     public Product getProductByIdEntity(UUID productId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ObjectNotFoundException("Produto não encontrado"));
@@ -338,15 +418,6 @@ public class ProductService {
         return productRepository.findByCategoryAndDeletedAtIsNullOrderByDisplayOrder(category);
     }
 
-    private boolean userHasPermissionToEditStore(Store store) {
-        var storeUsers = storeUserRepository.findByStore(store);
-        var currentUser = jwtService.getCurrentAuthenticatedUser();
-
-        return storeUsers.stream()
-                .anyMatch(su -> su.getUser().getId().equals(currentUser.getId()) &&
-                        (su.getRole() == UserRole.OWNER || su.getRole() == UserRole.MANAGER) &&
-                        su.getDeletedAt() == null);
-    }
 
     @Transactional
     public void updateProductsOrder(UUID categoryId, List<UUID> productIds) {
@@ -357,7 +428,7 @@ public class ProductService {
             throw new IllegalUserArgumentException("Categoria foi deletada");
         }
 
-        if (!userHasPermissionToEditStore(category.getStore())) {
+        if (!storeAccessService.currentUserCanEditStore(category.getStore().getId())) {
             throw new InsufficientPermissionException(
                     "Usuário não tem permissão para atualizar a ordem dos produtos desta categoria.");
         }
@@ -383,6 +454,8 @@ public class ProductService {
             product.setDisplayOrder(i + 1); // Ordem começa em 1
             productRepository.save(product);
         }
+
+        eventPublisher.publishEvent(new StoreCatalogChangedEvent(category.getStore().getId()));
     }
 
     private void validateImageCount(List<ProductImageRequest> images) {
@@ -391,6 +464,17 @@ public class ProductService {
         }
     }
 
+    private static ImageService.ImageSource imageSource(ProductImageRequest image) {
+        return new ImageService.ImageSource(image.uploadKey(), image.base64Image(), image.fileName(), image.contentType());
+    }
+
+    /**
+     * Requisição de imagem já enviada: segue só com a KEY, sem o base64
+     */
+    private static ProductImageRequest withUploadKey(ProductImageRequest image, String key) {
+        return new ProductImageRequest(null, image.fileName(), image.contentType(), image.displayOrder(), key);
+    }
+
     /**
      * Alterna a disponibilidade de um produto
      */
@@ -403,7 +487,7 @@ public class ProductService {
             throw new IllegalUserArgumentException("Produto foi deletado");
         }
 
-        if (!userHasPermissionToEditStore(product.getStore())) {
+        if (!storeAccessService.currentUserCanEditStore(product.getStore().getId())) {
             throw new InsufficientPermissionException(
                     "Usuário não tem permissão para alterar a disponibilidade deste produto.");
         }
@@ -411,6 +495,7 @@ public class ProductService {
         // Alterna o valor de available (se null, considera como false)
         product.setAvailable(product.getAvailable() == null || !product.getAvailable());
         Product updatedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new StoreCatalogChangedEvent(updatedProduct.getStore().getId()));
 
         return productResponseMapper.toDto(updatedProduct);
     }
@@ -465,7 +550,10 @@ public class ProductService {
             log.debug("Fazendo upload da nova imagem {}/{} - Nome do arquivo: {}", 
                     i + 1, newImages.size(), newReq.newImage().fileName());
             
-            String key = imageService.uploadBase64Image(
+            String key = imageService.resolveImageKey(
+                    existingProduct.getStore().getId(),
+                    ImageUploadTarget.PRODUCT_IMAGE,
+                    newReq.newImage().uploadKey(),
                     newReq.newImage().base64Image(),
                     newReq.newImage().fileName(),
                     newReq.newImage().contentType());
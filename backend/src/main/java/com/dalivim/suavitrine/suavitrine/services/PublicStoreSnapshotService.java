@@ -0,0 +1,127 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import com.dalivim.suavitrine.suavitrine.dtos.StorePublicResponse;
+import com.dalivim.suavitrine.suavitrine.infra.cache.ExpiringLruCache;
+import com.dalivim.suavitrine.suavitrine.services.billing.BillingPaidEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Mantém snapshots prontos da vitrine pública ({@link StorePublicResponse}) por slug.
+ * O snapshot é montado uma vez e servido da memória até expirar ou até que a
+ * loja, suas categorias ou seus produtos sejam alterados, ou um pagamento da loja seja confirmado.
+ * O TTL deve ficar abaixo da validade das presigned URLs embutidas no snapshot.
+ */
+@Slf4j
+@Service
+public class PublicStoreSnapshotService {
+
+    private final ExpiringLruCache<String, StorePublicResponse> snapshots;
+
+    // Montagens em andamento por slug: requisições concorrentes aguardam a mesma montagem
+    private final ConcurrentHashMap<String, CompletableFuture<StorePublicResponse>> inFlight = new ConcurrentHashMap<>();
+
+    // Incrementado a cada invalidação; guarda por loja a geração da última invalidação.
+    // Só não são armazenadas as montagens iniciadas antes da última invalidação da própria loja.
+    // A geração expira junto com o TTL do snapshot: depois disso, um snapshot montado antes
+    // da invalidação já teria expirado de qualquer forma.
+    private final AtomicLong generation = new AtomicLong();
+    private final ExpiringLruCache<UUID, Long> evictedGenerations;
+
+    public PublicStoreSnapshotService(MeterRegistry meterRegistry,
+                                      @Value("${storefront.snapshot.max-entries:500}") int maxEntries,
+                                      @Value("${storefront.snapshot.ttl:10m}") Duration ttl) {
+        this.snapshots = new ExpiringLruCache<String, StorePublicResponse>(maxEntries, ttl)
+                .bindTo(meterRegistry, "public-store-snapshots");
+        // Mais lojas são invalidadas do que ficam em cache ao mesmo tempo
+        this.evictedGenerations = new ExpiringLruCache<UUID, Long>(maxEntries * 10, ttl)
+                .bindTo(meterRegistry, "public-store-snapshot-generations");
+    }
+
+    /**
+     * Retorna o snapshot da loja ou monta um novo usando o builder informado
+     */
+    public StorePublicResponse getOrBuild(String slug, Supplier<StorePublicResponse> builder) {
+        StorePublicResponse cached = snapshots.getIfPresent(slug);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<StorePublicResponse> ownBuild = new CompletableFuture<>();
+        CompletableFuture<StorePublicResponse> runningBuild = inFlight.putIfAbsent(slug, ownBuild);
+        if (runningBuild != null) {
+            return await(runningBuild);
+        }
+
+        try {
+            long startGeneration = generation.get();
+            StorePublicResponse snapshot = builder.get();
+            Long evictedGeneration = evictedGenerations.getIfPresent(snapshot.id());
+            if (evictedGeneration == null || evictedGeneration <= startGeneration) {
+                snapshots.put(slug, snapshot);
+            }
+            ownBuild.complete(snapshot);
+            return snapshot;
+        } catch (RuntimeException e) {
+            ownBuild.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(slug, ownBuild);
+        }
+    }
+
+    /**
+     * Remove os snapshots da loja (inclusive de slugs antigos)
+     */
+    public void evict(UUID storeId) {
+        // Incremento e gravação juntos: uma invalidação concorrente não grava uma geração menor por cima
+        synchronized (evictedGenerations) {
+            evictedGenerations.put(storeId, generation.incrementAndGet());
+        }
+        snapshots.invalidateIf((slug, snapshot) -> storeId.equals(snapshot.id()));
+        log.debug("Snapshot público invalidado para a loja {}", storeId);
+    }
+
+    /**
+     * Invalida o snapshot somente depois do commit, para que a próxima montagem
+     * já enxergue os dados novos
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStoreCatalogChanged(StoreCatalogChangedEvent event) {
+        evict(event.storeId());
+    }
+
+    /**
+     * O snapshot embute o plano ativo da loja: um pagamento confirmado também o invalida.
+     * Roda depois da invalidação do cache de plano, para a remontagem já ver o plano pago.
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBillingPaid(BillingPaidEvent event) {
+        evict(event.storeId());
+    }
+
+    private StorePublicResponse await(CompletableFuture<StorePublicResponse> build) {
+        try {
+            return build.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+/**
+ * Evento publicado quando KEYs entram na fila de remoção do storage
+ */
+public record StorageDeletionEnqueuedEvent(int count) {
+}
@@ -0,0 +1,261 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import com.dalivim.suavitrine.suavitrine.infra.storage.StorageService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.sentry.Sentry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fila durável de remoções do storage (ver V32).
+ * As KEYs são gravadas na transação de quem altera a entidade: se ela for revertida,
+ * a imagem continua no storage e referenciada. Uma thread própria remove os pendentes
+ * em lotes com DeleteObjects, fora de transação, e falhas são retentadas com backoff
+ * exponencial até storage.deletion.max-attempts.
+ */
+@Slf4j
+@Service
+public class StorageDeletionQueueService {
+
+    private static final String INSERT_SQL = "INSERT INTO storage_deletion_queue (object_key) VALUES (?)";
+
+    // Reserva o lote adiando next_attempt_at (lease): a chamada ao storage roda sem transação
+    // aberta e, se a instância cair no meio, o lote volta para a fila quando a lease vence
+    private static final String CLAIM_SQL = """
+            UPDATE storage_deletion_queue
+            SET attempts = attempts + 1, next_attempt_at = NOW() + (? * INTERVAL '1 second')
+            WHERE id IN (
+                SELECT id FROM storage_deletion_queue
+                WHERE status = 'PENDING' AND next_attempt_at <= NOW()
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING id, object_key, attempts
+            """;
+
+    private static final String DELETE_SQL = "DELETE FROM storage_deletion_queue WHERE id = ?";
+
+    private static final String RESCHEDULE_SQL = """
+            UPDATE storage_deletion_queue SET status = ?, next_attempt_at = ?, last_error = ? WHERE id = ?
+            """;
+
+    private static final String NEXT_ATTEMPT_SQL =
+            "SELECT MIN(next_attempt_at) FROM storage_deletion_queue WHERE status = 'PENDING'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StorageService storageService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final String bucketName;
+    private final int batchSize;
+    private final Duration lease;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final int maxAttempts;
+    private final Duration sweepInterval;
+
+    private final Counter enqueuedCounter;
+    private final Counter deletedCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+
+    // Uma única thread esvazia a fila; pedidos enquanto ela roda são agrupados num só
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "storage-deletion-queue");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    // Há KEYs novas desde o último esvaziamento; a remoção espera o próximo ciclo para juntar mais KEYs no lote
+    private final AtomicBoolean pendingEnqueued = new AtomicBoolean();
+    // Próxima retentativa conhecida; evita consultar o banco a cada verificação agendada
+    private volatile Instant nextRetryAt;
+    private volatile Instant lastSweepAt = Instant.EPOCH;
+
+    public StorageDeletionQueueService(JdbcTemplate jdbcTemplate,
+                                       StorageService storageService,
+                                       ApplicationEventPublisher eventPublisher,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${storage.bucket-name}") String bucketName,
+                                       @Value("${storage.deletion.batch-size:1000}") int batchSize,
+                                       @Value("${storage.deletion.lease:5m}") Duration lease,
+                                       @Value("${storage.deletion.retry-backoff:30s}") Duration retryBackoff,
+                                       @Value("${storage.deletion.max-retry-backoff:6h}") Duration maxRetryBackoff,
+                                       @Value("${storage.deletion.max-attempts:10}") int maxAttempts,
+                                       @Value("${storage.deletion.sweep-interval:10m}") Duration sweepInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.storageService = storageService;
+        this.eventPublisher = eventPublisher;
+        this.bucketName = bucketName;
+        this.batchSize = batchSize;
+        this.lease = lease;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+        this.maxAttempts = maxAttempts;
+        this.sweepInterval = sweepInterval;
+
+        this.enqueuedCounter = queueCounter(meterRegistry, "enqueued");
+        this.deletedCounter = queueCounter(meterRegistry, "deleted");
+        this.retriedCounter = queueCounter(meterRegistry, "retried");
+        this.failedCounter = queueCounter(meterRegistry, "failed");
+    }
+
+    /**
+     * Agenda a remoção das KEYs na transação atual (ou numa nova, se não houver)
+     */
+    @Transactional
+    public void enqueue(Collection<String> keys) {
+        List<String> validKeys = keys.stream()
+                .filter(key -> key != null && !key.isBlank())
+                .distinct()
+                .toList();
+        if (validKeys.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, validKeys, validKeys.size(), (ps, key) -> ps.setString(1, key));
+        enqueuedCounter.increment(validKeys.size());
+        eventPublisher.publishEvent(new StorageDeletionEnqueuedEvent(validKeys.size()));
+    }
+
+    /**
+     * Marca a fila como não vazia só depois do commit (rollback não remove nada)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeletionEnqueued(StorageDeletionEnqueuedEvent event) {
+        pendingEnqueued.set(true);
+    }
+
+    /**
+     * Na subida remove o que ficou pendente (ex.: KEYs enfileiradas antes de um restart)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        wakeUp();
+    }
+
+    /**
+     * Verificação leve: só vai ao banco com KEYs novas, retentativa vencida ou na varredura periódica
+     */
+    @Scheduled(fixedDelayString = "${storage.deletion.flush-interval:10s}")
+    public void flushPending() {
+        Instant now = Instant.now();
+        Instant retryAt = nextRetryAt;
+        if (pendingEnqueued.get()
+                || (retryAt != null && !now.isBefore(retryAt))
+                || !now.isBefore(lastSweepAt.plus(sweepInterval))) {
+            wakeUp();
+        }
+    }
+
+    public void wakeUp() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                drainScheduled.set(false);
+                drain();
+            });
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private void drain() {
+        lastSweepAt = Instant.now();
+        pendingEnqueued.set(false);
+        try {
+            while (deleteNextBatch()) {
+                // continua até não haver pendentes vencidos
+            }
+            Timestamp next = jdbcTemplate.queryForObject(NEXT_ATTEMPT_SQL, Timestamp.class);
+            nextRetryAt = next != null ? next.toInstant() : null;
+        } catch (Exception e) {
+            Sentry.captureException(e);
+            log.error("Erro ao processar a fila de remoção do storage: {}", e.getMessage(), e);
+            nextRetryAt = Instant.now().plus(retryBackoff);
+        }
+    }
+
+    /**
+     * Remove o próximo lote vencido. Retorna false quando não há mais nenhum.
+     */
+    private boolean deleteNextBatch() {
+        List<QueuedKey> batch = jdbcTemplate.query(CLAIM_SQL,
+                (rs, rowNum) -> new QueuedKey(rs.getLong("id"), rs.getString("object_key"), rs.getInt("attempts")),
+                lease.toSeconds(), batchSize);
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        Map<String, String> failures = storageService.deleteFiles(bucketName,
+                batch.stream().map(QueuedKey::key).toList());
+
+        List<Object[]> deleted = new ArrayList<>();
+        List<Object[]> rescheduled = new ArrayList<>();
+        for (QueuedKey queued : batch) {
+            String error = failures.get(queued.key());
+            if (error == null) {
+                deleted.add(new Object[]{queued.id()});
+                continue;
+            }
+            if (queued.attempts() >= maxAttempts) {
+                failedCounter.increment();
+                log.error("Remoção do storage descartada após {} tentativa(s). KEY: {}, erro: {}",
+                        queued.attempts(), queued.key(), error);
+                rescheduled.add(new Object[]{"FAILED", Timestamp.from(Instant.now()), error, queued.id()});
+            } else {
+                retriedCounter.increment();
+                Instant retryAt = Instant.now().plus(backoff(queued.attempts()));
+                rescheduled.add(new Object[]{"PENDING", Timestamp.from(retryAt), error, queued.id()});
+            }
+        }
+        if (!deleted.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, deleted);
+            deletedCounter.increment(deleted.size());
+        }
+        if (!rescheduled.isEmpty()) {
+            jdbcTemplate.batchUpdate(RESCHEDULE_SQL, rescheduled);
+            log.warn("Falha ao remover {} objeto(s) do storage; nova tentativa agendada", rescheduled.size());
+        }
+        return true;
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : delay;
+    }
+
+    private static Counter queueCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("storage.deletion.queue")
+                .description("KEYs da fila de remoção do storage por resultado")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record QueuedKey(long id, String key, int attempts) {
+    }
+}
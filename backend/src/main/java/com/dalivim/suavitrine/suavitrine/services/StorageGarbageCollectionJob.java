@@ -0,0 +1,35 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import io.sentry.Sentry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Agenda a coleta de lixo do storage (objetos sem referência no banco)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StorageGarbageCollectionJob {
+
+    private final StorageGarbageCollectionService storageGarbageCollectionService;
+
+    @Value("${storage.gc.enabled:false}")
+    private boolean enabled;
+
+    @Scheduled(cron = "${storage.gc.cron:0 0 5 * * *}", zone = "UTC")
+    public void collectGarbage() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            storageGarbageCollectionService.collect();
+        } catch (Exception e) {
+            Sentry.captureException(e);
+            log.error("Erro na coleta de lixo do storage: {}", e.getMessage(), e);
+        }
+    }
+}
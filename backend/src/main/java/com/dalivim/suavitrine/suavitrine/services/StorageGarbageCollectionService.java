@@ -0,0 +1,245 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import com.dalivim.suavitrine.suavitrine.infra.storage.BloomFilter;
+import com.dalivim.suavitrine.suavitrine.infra.storage.StorageService;
+import com.dalivim.suavitrine.suavitrine.infra.storage.StoredObject;
+import com.dalivim.suavitrine.suavitrine.infra.storage.StoredObjectPage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coleta de lixo do storage: remove objetos que nenhuma entidade referencia mais
+ * (transações que falharam depois do upload, remoções perdidas no caminho antigo).
+ * As KEYs referenciadas no banco vão para um filtro de Bloom (memória fixa); o bucket
+ * é listado página a página e só os objetos ausentes do filtro e mais velhos que o
+ * período de carência viram candidatos. Os candidatos são conferidos de novo no banco,
+ * por igualdade com as KEYs gravadas, e entram na fila de remoção (ver StorageDeletionQueueService).
+ * O progresso fica em storage_gc_checkpoint (ver V33): cada execução tem um tempo
+ * máximo e a seguinte continua da última KEY reconciliada.
+ */
+@Slf4j
+@Service
+public class StorageGarbageCollectionService {
+
+    // Todas as colunas que guardam KEYs do storage, inclusive de linhas com soft delete
+    // (essas já tiveram a remoção agendada quando foram apagadas)
+    private static final String REFERENCED_KEYS_SQL = """
+            SELECT url FROM product_image
+            UNION ALL SELECT image_url FROM category WHERE image_url IS NOT NULL
+            UNION ALL SELECT image_url FROM product_variation WHERE image_url IS NOT NULL
+            UNION ALL SELECT logo_url FROM store WHERE logo_url IS NOT NULL
+            UNION ALL SELECT banner_desktop_url FROM store WHERE banner_desktop_url IS NOT NULL
+            UNION ALL SELECT banner_tablet_url FROM store WHERE banner_tablet_url IS NOT NULL
+            UNION ALL SELECT banner_mobile_url FROM store WHERE banner_mobile_url IS NOT NULL
+            """;
+
+    private static final String REFERENCED_KEYS_COUNT_SQL = "SELECT COUNT(*) FROM (" + REFERENCED_KEYS_SQL + ") refs";
+
+    // Conferência exata dos candidatos por igualdade, nos índices de cada coluna (ver V35,
+    // que normalizou as URLs completas antigas para KEY).
+    // KEYs que já estão na fila de remoção não são enfileiradas de novo.
+    private static final String UNREFERENCED_KEYS_SQL = """
+            SELECT k FROM unnest(?::text[]) AS k
+            WHERE NOT EXISTS (SELECT 1 FROM product_image WHERE url = k)
+              AND NOT EXISTS (SELECT 1 FROM category WHERE image_url = k)
+              AND NOT EXISTS (SELECT 1 FROM product_variation WHERE image_url = k)
+              AND NOT EXISTS (SELECT 1 FROM store WHERE logo_url = k)
+              AND NOT EXISTS (SELECT 1 FROM store WHERE banner_desktop_url = k)
+              AND NOT EXISTS (SELECT 1 FROM store WHERE banner_tablet_url = k)
+              AND NOT EXISTS (SELECT 1 FROM store WHERE banner_mobile_url = k)
+              AND NOT EXISTS (SELECT 1 FROM storage_deletion_queue WHERE object_key = k)
+            """;
+
+    private static final String CLAIM_CHECKPOINT_SQL = """
+            UPDATE storage_gc_checkpoint
+            SET locked_until = NOW() + (? * INTERVAL '1 second')
+            WHERE id = 1 AND (locked_until IS NULL OR locked_until < NOW())
+            RETURNING prefix, start_after
+            """;
+
+    private static final String SAVE_CHECKPOINT_SQL = """
+            UPDATE storage_gc_checkpoint SET prefix = ?, start_after = ?, updated_at = NOW() WHERE id = 1
+            """;
+
+    private static final String RELEASE_CHECKPOINT_SQL =
+            "UPDATE storage_gc_checkpoint SET locked_until = NULL WHERE id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    // Mesmo DataSource com fetch size: o Postgres só entrega o resultado aos poucos dentro de transação
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StorageService storageService;
+    private final StorageDeletionQueueService storageDeletionQueueService;
+
+    private final String bucketName;
+    private final List<String> prefixes;
+    private final Duration gracePeriod;
+    private final Duration maxRunDuration;
+    private final int pageSize;
+    private final double falsePositiveRate;
+    private final boolean dryRun;
+
+    private final Counter scannedCounter;
+    private final Counter referencedCounter;
+    private final Counter recentCounter;
+    private final Counter deletedCounter;
+
+    public StorageGarbageCollectionService(JdbcTemplate jdbcTemplate,
+                                           TransactionTemplate transactionTemplate,
+                                           StorageService storageService,
+                                           StorageDeletionQueueService storageDeletionQueueService,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${storage.bucket-name}") String bucketName,
+                                           @Value("${storage.gc.prefixes:products/,categories/,stores/banners/,stores/logos/}") List<String> prefixes,
+                                           @Value("${storage.gc.grace-period:2d}") Duration gracePeriod,
+                                           @Value("${storage.gc.max-run-duration:20m}") Duration maxRunDuration,
+                                           @Value("${storage.gc.page-size:1000}") int pageSize,
+                                           @Value("${storage.gc.false-positive-rate:0.01}") double falsePositiveRate,
+                                           @Value("${storage.gc.dry-run:false}") boolean dryRun) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(1000);
+        this.transactionTemplate = transactionTemplate;
+        this.storageService = storageService;
+        this.storageDeletionQueueService = storageDeletionQueueService;
+        this.bucketName = bucketName;
+        this.prefixes = prefixes;
+        this.gracePeriod = gracePeriod;
+        this.maxRunDuration = maxRunDuration;
+        this.pageSize = pageSize;
+        this.falsePositiveRate = falsePositiveRate;
+        this.dryRun = dryRun;
+
+        this.scannedCounter = gcCounter(meterRegistry, "scanned");
+        this.referencedCounter = gcCounter(meterRegistry, "referenced");
+        this.recentCounter = gcCounter(meterRegistry, "recent");
+        this.deletedCounter = gcCounter(meterRegistry, "deleted");
+    }
+
+    /**
+     * Reconcilia o bucket a partir do checkpoint até terminar o ciclo ou esgotar
+     * storage.gc.max-run-duration. Não faz nada se outra instância estiver rodando.
+     */
+    public void collect() {
+        // A lease dura o tempo máximo da execução mais uma folga para a última página
+        List<Checkpoint> claimed = jdbcTemplate.query(CLAIM_CHECKPOINT_SQL,
+                (rs, rowNum) -> new Checkpoint(rs.getString("prefix"), rs.getString("start_after")),
+                maxRunDuration.plusMinutes(10).toSeconds());
+        if (claimed.isEmpty()) {
+            log.info("Coleta de lixo do storage já em andamento em outra instância");
+            return;
+        }
+        try {
+            collectFrom(claimed.get(0));
+        } finally {
+            jdbcTemplate.update(RELEASE_CHECKPOINT_SQL);
+        }
+    }
+
+    private void collectFrom(Checkpoint checkpoint) {
+        Instant startedAt = Instant.now();
+        Instant deadline = startedAt.plus(maxRunDuration);
+        Instant modifiedBefore = startedAt.minus(gracePeriod);
+        BloomFilter referencedKeys = loadReferencedKeys();
+
+        int prefixIndex = checkpoint.prefix() != null ? prefixes.indexOf(checkpoint.prefix()) : 0;
+        String startAfter = prefixIndex >= 0 ? checkpoint.startAfter() : null;
+        prefixIndex = Math.max(prefixIndex, 0);
+
+        long scanned = 0;
+        long deleted = 0;
+        while (prefixIndex < prefixes.size()) {
+            if (!Instant.now().isBefore(deadline)) {
+                log.info("Coleta de lixo do storage pausada em {} após {} objeto(s); continua na próxima execução",
+                        startAfter, scanned);
+                return;
+            }
+            String prefix = prefixes.get(prefixIndex);
+            StoredObjectPage page = storageService.listFiles(bucketName, prefix, startAfter, pageSize);
+
+            List<String> candidates = new ArrayList<>();
+            for (StoredObject object : page.objects()) {
+                scanned++;
+                scannedCounter.increment();
+                if (object.lastModified() == null || !object.lastModified().isBefore(modifiedBefore)) {
+                    recentCounter.increment();
+                } else if (referencedKeys.mightContain(object.key())) {
+                    referencedCounter.increment();
+                } else {
+                    candidates.add(object.key());
+                }
+            }
+            deleted += deleteUnreferenced(candidates);
+
+            if (page.truncated() && !page.objects().isEmpty()) {
+                startAfter = page.objects().get(page.objects().size() - 1).key();
+            } else {
+                prefixIndex++;
+                startAfter = null;
+            }
+            // Checkpoint só depois de enfileirar os candidatos da página: nada fica para trás
+            jdbcTemplate.update(SAVE_CHECKPOINT_SQL,
+                    prefixIndex < prefixes.size() ? prefixes.get(prefixIndex) : null, startAfter);
+        }
+        log.info("Coleta de lixo do storage concluiu o ciclo: {} objeto(s) verificado(s), {} sem referência{} em {}",
+                scanned, deleted, dryRun ? " (dry-run, nada removido)" : "",
+                Duration.between(startedAt, Instant.now()));
+    }
+
+    /**
+     * Filtro de Bloom com todas as KEYs referenciadas, lido em stream (memória só do filtro)
+     */
+    private BloomFilter loadReferencedKeys() {
+        Long count = jdbcTemplate.queryForObject(REFERENCED_KEYS_COUNT_SQL, Long.class);
+        // Folga para KEYs gravadas durante a leitura
+        BloomFilter filter = new BloomFilter(Math.max(1000, (count != null ? count : 0) * 2), falsePositiveRate);
+        transactionTemplate.executeWithoutResult(status -> streamingJdbcTemplate.query(REFERENCED_KEYS_SQL, rs -> {
+            filter.add(rs.getString(1));
+        }));
+        log.debug("Filtro de KEYs referenciadas do storage: {} KEY(s), {} bytes", count, filter.sizeInBytes());
+        return filter;
+    }
+
+    /**
+     * Confere os candidatos no banco (busca exata) e enfileira a remoção dos que seguem sem referência
+     */
+    private int deleteUnreferenced(List<String> candidates) {
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        List<String> unreferenced = jdbcTemplate.query(UNREFERENCED_KEYS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", candidates.toArray())),
+                (rs, rowNum) -> rs.getString(1));
+        if (unreferenced.isEmpty()) {
+            return 0;
+        }
+        if (dryRun) {
+            log.info("Coleta de lixo do storage (dry-run): {} objeto(s) sem referência, ex.: {}",
+                    unreferenced.size(), unreferenced.get(0));
+        } else {
+            storageDeletionQueueService.enqueue(unreferenced);
+            deletedCounter.increment(unreferenced.size());
+        }
+        return unreferenced.size();
+    }
+
+    private static Counter gcCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("storage.gc.objects")
+                .description("Objetos do storage verificados pela coleta de lixo, por resultado")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Checkpoint(String prefix, String startAfter) {
+    }
+}
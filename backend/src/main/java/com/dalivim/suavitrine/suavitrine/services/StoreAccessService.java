@@ -0,0 +1,209 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import com.dalivim.suavitrine.suavitrine.entities.UserRole;
+import com.dalivim.suavitrine.suavitrine.infra.cache.ExpiringLruCache;
+import com.dalivim.suavitrine.suavitrine.infra.security.AuthenticatedUser;
+import com.dalivim.suavitrine.suavitrine.infra.security.JwtService;
+import com.dalivim.suavitrine.suavitrine.repositories.StoreUserRepository;
+import com.dalivim.suavitrine.suavitrine.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Centraliza as checagens de vínculo usuário/loja.
+ * A role vem de uma consulta indexada por (store_id, user_id), memoizada na
+ * requisição atual e guardada num cache entre requisições junto com a versão de
+ * vínculos do usuário em que foi lida.
+ * Para o usuário autenticado, a role vem direto do token enquanto a versão de
+ * vínculos gravada nele (claim "mv") for a atual.
+ * Cada mudança de vínculo incrementa user.membership_version: roles em cache ou
+ * em tokens de uma versão anterior deixam de valer em todas as instâncias assim
+ * que a versão em cache expira (store-access.membership-version-ttl, poucos
+ * segundos). Na instância que fez a mudança a invalidação é imediata
+ * ({@link StoreMembershipChangedEvent}).
+ */
+@Service
+@RequiredArgsConstructor
+public class StoreAccessService {
+
+    private static final String REQUEST_MEMO_ATTRIBUTE = StoreAccessService.class.getName() + ".memo";
+
+    private final StoreUserRepository storeUserRepository;
+    private final UserRepository userRepository;
+    private final JwtService jwtService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${store-access.cache-ttl:5m}")
+    private Duration cacheTtl;
+
+    @Value("${store-access.cache-max-entries:10000}")
+    private int cacheMaxEntries;
+
+    /**
+     * Por quanto tempo a versão de vínculos lida do banco é considerada atual.
+     * Limita o atraso com que outras instâncias percebem uma mudança de vínculo.
+     */
+    @Value("${store-access.membership-version-ttl:3s}")
+    private Duration membershipVersionTtl;
+
+    // (loja, usuário) -> role ativa e a versão de vínculos em que foi lida
+    private ExpiringLruCache<MembershipKey, CachedRole> roleCache;
+
+    // usuário -> user.membership_version
+    private ExpiringLruCache<UUID, Long> membershipVersionCache;
+
+    @PostConstruct
+    void initRoleCache() {
+        roleCache = new ExpiringLruCache<MembershipKey, CachedRole>(cacheMaxEntries, cacheTtl)
+                .bindTo(meterRegistry, "store-access");
+        membershipVersionCache = new ExpiringLruCache<UUID, Long>(cacheMaxEntries, membershipVersionTtl)
+                .bindTo(meterRegistry, "membership-version");
+    }
+
+    /**
+     * Claims com as lojas do usuário e a versão dos vínculos, gravadas no token no login/registro
+     */
+    public Map<String, Object> membershipClaims(UUID userId) {
+        // Lê a versão antes das roles: se um vínculo mudar no meio, o token já nasce desatualizado
+        long version = userRepository.findMembershipVersion(userId).orElse(0L);
+        Map<String, String> stores = new LinkedHashMap<>();
+        for (Object[] row : storeUserRepository.findActiveRolesByUserId(userId)) {
+            stores.put(row[0].toString(), ((UserRole) row[1]).name());
+        }
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtService.STORES_CLAIM, stores);
+        claims.put(JwtService.MEMBERSHIP_VERSION_CLAIM, version);
+        return claims;
+    }
+
+    /**
+     * Loja atual do usuário autenticado segundo o token, se as roles do token ainda valem.
+     * É a primeira do claim, que segue a ordem dos vínculos (mais antigo primeiro).
+     */
+    public Optional<UUID> findCurrentUserStoreIdFromToken() {
+        AuthenticatedUser currentUser = jwtService.getCurrentAuthenticatedUser();
+        if (!hasCurrentStoreRoles(currentUser)) {
+            return Optional.empty();
+        }
+        return currentUser.storeRoles().keySet().stream().findFirst();
+    }
+
+    /**
+     * O usuário autenticado é OWNER ou MANAGER da loja
+     */
+    public boolean currentUserCanEditStore(UUID storeId) {
+        return getCurrentUserRole(storeId)
+                .map(role -> role == UserRole.OWNER || role == UserRole.MANAGER)
+                .orElse(false);
+    }
+
+    public Optional<UserRole> getCurrentUserRole(UUID storeId) {
+        AuthenticatedUser currentUser = jwtService.getCurrentAuthenticatedUser();
+        if (hasCurrentStoreRoles(currentUser)) {
+            return Optional.ofNullable(currentUser.storeRoles().get(storeId));
+        }
+        return getRole(storeId, currentUser.id());
+    }
+
+    public boolean belongsToStore(UUID storeId, UUID userId) {
+        return getRole(storeId, userId).isPresent();
+    }
+
+    /**
+     * Role ativa (vínculo não removido) do usuário na loja
+     */
+    public Optional<UserRole> getRole(UUID storeId, UUID userId) {
+        MembershipKey key = new MembershipKey(storeId, userId);
+        Map<MembershipKey, Optional<UserRole>> memo = requestMemo();
+        if (memo != null && memo.containsKey(key)) {
+            return memo.get(key);
+        }
+
+        // A role em cache só vale se nenhum vínculo do usuário mudou desde a leitura
+        long version = currentMembershipVersion(userId);
+        CachedRole cached = roleCache.getIfPresent(key);
+        Optional<UserRole> role;
+        if (cached != null && cached.membershipVersion() == version) {
+            role = cached.role();
+        } else {
+            role = storeUserRepository.findActiveRole(storeId, userId);
+            roleCache.put(key, new CachedRole(role, version));
+        }
+        if (memo != null) {
+            memo.put(key, role);
+        }
+        return role;
+    }
+
+    /**
+     * Invalida após o commit, para que a próxima consulta já enxergue o vínculo novo
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMembershipChanged(StoreMembershipChangedEvent event) {
+        MembershipKey key = new MembershipKey(event.storeId(), event.userId());
+        roleCache.invalidate(key);
+        membershipVersionCache.invalidate(event.userId());
+        Map<MembershipKey, Optional<UserRole>> memo = requestMemo();
+        if (memo != null) {
+            memo.remove(key);
+        }
+    }
+
+    /**
+     * As roles do token valem enquanto a versão gravada nele for a versão atual do usuário
+     */
+    private boolean hasCurrentStoreRoles(AuthenticatedUser user) {
+        if (user.storeRoles() == null || user.membershipVersion() == null) {
+            return false;
+        }
+        return currentMembershipVersion(user.id()) == user.membershipVersion();
+    }
+
+    /**
+     * user.membership_version, relida do banco quando a entrada em cache expira
+     */
+    private long currentMembershipVersion(UUID userId) {
+        Long version = membershipVersionCache.getIfPresent(userId);
+        if (version == null) {
+            version = userRepository.findMembershipVersion(userId).orElse(-1L);
+            membershipVersionCache.put(userId, version);
+        }
+        return version;
+    }
+
+    /**
+     * Memo da requisição atual, ou null fora de uma requisição HTTP (jobs, listeners assíncronos)
+     */
+    @SuppressWarnings("unchecked")
+    private Map<MembershipKey, Optional<UserRole>> requestMemo() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Object memo = attributes.getAttribute(REQUEST_MEMO_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null) {
+            memo = new HashMap<MembershipKey, Optional<UserRole>>();
+            attributes.setAttribute(REQUEST_MEMO_ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return (Map<MembershipKey, Optional<UserRole>>) memo;
+    }
+
+    private record MembershipKey(UUID storeId, UUID userId) {
+    }
+
+    private record CachedRole(Optional<UserRole> role, long membershipVersion) {
+    }
+}
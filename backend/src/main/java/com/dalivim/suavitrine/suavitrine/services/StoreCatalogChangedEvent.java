@@ -0,0 +1,10 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import java.util.UUID;
+
+/**
+ * Evento publicado quando dados visíveis na vitrine pública de uma loja mudam
+ * (loja, tema, categorias ou produtos)
+ */
+public record StoreCatalogChangedEvent(UUID storeId) {
+}
@@ -0,0 +1,402 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import com.dalivim.suavitrine.suavitrine.dtos.StoreEventRequest;
+import com.dalivim.suavitrine.suavitrine.entities.StoreEvent;
+import com.dalivim.suavitrine.suavitrine.infra.exceptions.IllegalUserArgumentException;
+import com.dalivim.suavitrine.suavitrine.infra.exceptions.TooManyRequestsException;
+import com.dalivim.suavitrine.suavitrine.repositories.StoreMetricsRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.sentry.Sentry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Pipeline de ingestão dos eventos de métricas.
+ * A requisição só coloca o evento numa fila em memória limitada e retorna; uma
+ * thread de escrita drena a fila em lotes com batch insert via JDBC e, na mesma
+ * transação, soma os contadores de store_metrics com um upsert por loja/dia do lote
+ * e atualiza os sketches de top produtos/categorias do dia.
+ * Eventos enviados juntos (lote do tracker) entram na fila como uma unidade: ou
+ * todos são aceitos ou todos recusados. Com a fila cheia a requisição é recusada
+ * (429) em vez de segurar conexões do pool.
+ * No shutdown a fila para de aceitar só depois do graceful shutdown do servidor web
+ * e é drenada antes de o DataSource ser fechado.
+ */
+@Slf4j
+@Service
+public class StoreEventIngestionService implements SmartLifecycle {
+
+    private static final int MAX_METADATA_LENGTH = 1000;
+    private static final long POLL_TIMEOUT_MS = 500;
+    private static final TypeReference<List<StoreEventRequest>> EVENT_LIST_TYPE = new TypeReference<>() {
+    };
+
+    // Ignora eventos de lojas inexistentes sem derrubar o lote inteiro por FK
+    private static final String INSERT_EVENT_SQL = """
+            INSERT INTO store_events (store_id, event_type, entity_id, entity_type, metadata, created_at)
+            SELECT ?, ?, ?, ?, ?, ?
+            WHERE EXISTS (SELECT 1 FROM store WHERE id = ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StoreMetricsRepository storeMetricsRepository;
+    private final StoreTopEntitiesService storeTopEntitiesService;
+    private final ObjectMapper objectMapper;
+    // Unidades enfileiradas; a capacidade em eventos é controlada pelo semáforo
+    private final BlockingQueue<List<PendingStoreEvent>> queue = new LinkedBlockingQueue<>();
+    private final Semaphore queuePermits;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final int maxEventsPerRequest;
+    private final int maxBodyBytes;
+    private final Duration shutdownTimeout;
+
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public StoreEventIngestionService(JdbcTemplate jdbcTemplate,
+                                      TransactionTemplate transactionTemplate,
+                                      StoreMetricsRepository storeMetricsRepository,
+                                      StoreTopEntitiesService storeTopEntitiesService,
+                                      ObjectMapper objectMapper,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${metrics.ingestion.queue-capacity:10000}") int queueCapacity,
+                                      @Value("${metrics.ingestion.batch-size:500}") int batchSize,
+                                      @Value("${metrics.ingestion.max-events-per-request:100}") int maxEventsPerRequest,
+                                      @Value("${metrics.ingestion.max-body-bytes:65536}") int maxBodyBytes,
+                                      @Value("${metrics.ingestion.shutdown-timeout:10s}") Duration shutdownTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.storeMetricsRepository = storeMetricsRepository;
+        this.storeTopEntitiesService = storeTopEntitiesService;
+        this.objectMapper = objectMapper;
+        this.queuePermits = new Semaphore(queueCapacity);
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.maxEventsPerRequest = maxEventsPerRequest;
+        this.maxBodyBytes = maxBodyBytes;
+        this.shutdownTimeout = shutdownTimeout;
+
+        this.acceptedCounter = eventCounter(meterRegistry, "accepted");
+        this.rejectedCounter = eventCounter(meterRegistry, "rejected");
+        this.writtenCounter = eventCounter(meterRegistry, "written");
+        this.failedCounter = eventCounter(meterRegistry, "failed");
+        Gauge.builder("metrics.ingestion.queue.size", this, StoreEventIngestionService::queuedEvents).register(meterRegistry);
+    }
+
+    /**
+     * Enfileira o evento para gravação assíncrona
+     */
+    public void enqueue(UUID storeId, StoreEventRequest request) {
+        enqueueAll(storeId, List.of(request));
+    }
+
+    /**
+     * Lê um lote do tracker (array JSON, enviado como text/plain pelo navigator.sendBeacon)
+     * e enfileira todos os eventos como uma unidade. Eventos sem metadata recebem o User-Agent.
+     * O limite de tamanho é aplicado em bytes: pelo Content-Length quando informado e, de
+     * qualquer forma, lendo no máximo maxBodyBytes + 1 bytes do corpo.
+     */
+    public void enqueueBatch(UUID storeId, InputStream body, long contentLength, String userAgent) {
+        if (contentLength > maxBodyBytes) {
+            throw new IllegalUserArgumentException("Lote de eventos muito grande");
+        }
+
+        byte[] bytes;
+        try {
+            bytes = body.readNBytes(maxBodyBytes + 1);
+        } catch (IOException e) {
+            throw new IllegalUserArgumentException("Lote de eventos inválido");
+        }
+        if (bytes.length > maxBodyBytes) {
+            throw new IllegalUserArgumentException("Lote de eventos muito grande");
+        }
+        if (bytes.length == 0) {
+            throw new IllegalUserArgumentException("Lote de eventos vazio");
+        }
+
+        List<StoreEventRequest> requests;
+        try {
+            requests = objectMapper.readValue(bytes, EVENT_LIST_TYPE);
+        } catch (IOException e) {
+            throw new IllegalUserArgumentException("Lote de eventos inválido");
+        }
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalUserArgumentException("Lote de eventos vazio");
+        }
+        if (requests.size() > maxEventsPerRequest) {
+            throw new IllegalUserArgumentException("Máximo de " + maxEventsPerRequest + " eventos por lote");
+        }
+
+        String defaultMetadata = userAgentMetadata(userAgent);
+        for (StoreEventRequest request : requests) {
+            if (request == null || request.getEventType() == null) {
+                throw new IllegalUserArgumentException("Tipo de evento é obrigatório");
+            }
+            fillEntity(storeId, request);
+            if (request.getMetadata() == null) {
+                request.setMetadata(defaultMetadata);
+            }
+        }
+        enqueueAll(storeId, requests);
+    }
+
+    private void enqueueAll(UUID storeId, List<StoreEventRequest> requests) {
+        Instant now = Instant.now();
+        List<PendingStoreEvent> events = new ArrayList<>(requests.size());
+        for (StoreEventRequest request : requests) {
+            if (request.getEventType() == null) {
+                throw new IllegalUserArgumentException("Tipo de evento é obrigatório");
+            }
+            events.add(new PendingStoreEvent(
+                    storeId,
+                    request.getEventType(),
+                    request.getEntityId(),
+                    request.getEntityType(),
+                    truncateMetadata(request.getMetadata()),
+                    now));
+        }
+
+        // Checagem e inserção sob o mesmo lock que o stop() usa para desligar: nada entra
+        // na fila depois que a thread de escrita pode ter feito a drenagem final
+        stateLock.readLock().lock();
+        try {
+            if (!running || !queuePermits.tryAcquire(events.size())) {
+                rejectedCounter.increment(events.size());
+                throw new TooManyRequestsException("Muitos eventos sendo processados. Tente novamente em instantes.",
+                        Duration.ofSeconds(1));
+            }
+            queue.add(events);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        acceptedCounter.increment(events.size());
+    }
+
+    /**
+     * Completa entidade do evento como os endpoints individuais fazem
+     */
+    private void fillEntity(UUID storeId, StoreEventRequest request) {
+        switch (request.getEventType()) {
+            case STORE_ACCESS -> {
+                request.setEntityType(StoreEvent.EntityType.STORE);
+                request.setEntityId(storeId);
+            }
+            case PRODUCT_CLICK, PRODUCT_CONVERSION -> request.setEntityType(StoreEvent.EntityType.PRODUCT);
+            case CATEGORY_CLICK, CATEGORY_ACCESS -> request.setEntityType(StoreEvent.EntityType.CATEGORY);
+        }
+        if (request.getEntityId() == null) {
+            throw new IllegalUserArgumentException("entityId é obrigatório para " + request.getEventType());
+        }
+    }
+
+    private String userAgentMetadata(String userAgent) {
+        if (userAgent == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(Map.of("userAgent", userAgent));
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private int queuedEvents() {
+        return queueCapacity - queuePermits.availablePermits();
+    }
+
+    /**
+     * Abaixo das fases do servidor web: a fila começa a aceitar antes de o servidor abrir
+     * e só para depois que o graceful shutdown terminou de atender as requisições em andamento
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::runWriter, "store-event-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        stateLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        try {
+            writerThread.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("{} eventos de métricas descartados no shutdown", queuedEvents());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runWriter() {
+        List<PendingStoreEvent> batch = new ArrayList<>(batchSize);
+        // Depois do stop continua até esvaziar a fila
+        while (running || !queue.isEmpty()) {
+            try {
+                List<PendingStoreEvent> unit = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (unit == null) {
+                    continue;
+                }
+                // Junta unidades inteiras até o tamanho do lote
+                batch.addAll(unit);
+                while (batch.size() < batchSize && (unit = queue.poll()) != null) {
+                    batch.addAll(unit);
+                }
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failedCounter.increment(batch.size());
+                Sentry.captureException(e);
+                log.error("Erro ao gravar lote de {} eventos de métricas: {}", batch.size(), e.getMessage(), e);
+            } finally {
+                queuePermits.release(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingStoreEvent> batch) {
+        Integer written = transactionTemplate.execute(status -> {
+            int[][] counts = jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, batch, batch.size(), (ps, event) -> {
+                ps.setObject(1, event.storeId());
+                ps.setString(2, event.eventType().name());
+                ps.setObject(3, event.entityId(), Types.OTHER);
+                ps.setString(4, event.entityType() != null ? event.entityType().name() : null);
+                ps.setString(5, event.metadata());
+                ps.setTimestamp(6, Timestamp.from(event.createdAt()));
+                ps.setObject(7, event.storeId());
+            });
+
+            // Agrega os deltas do lote por loja/dia, em ordem fixa para evitar deadlock entre nós
+            Map<StoreDay, DailyCounters> deltas = new TreeMap<>(
+                    Comparator.comparing(StoreDay::storeId).thenComparing(StoreDay::date));
+            int index = 0;
+            int inserted = 0;
+            for (int[] chunk : counts) {
+                for (int count : chunk) {
+                    PendingStoreEvent event = batch.get(index++);
+                    // count == 0: loja inexistente, nada foi gravado
+                    if (count != 0) {
+                        inserted++;
+                        StoreDay day = new StoreDay(event.storeId(), LocalDate.ofInstant(event.createdAt(), ZoneOffset.UTC));
+                        deltas.computeIfAbsent(day, d -> new DailyCounters()).add(event.eventType(), event.entityId());
+                    }
+                }
+            }
+
+            deltas.forEach((day, delta) -> {
+                storeMetricsRepository.incrementDailyCounters(
+                        day.storeId(), day.date(),
+                        delta.storeAccesses, delta.productClicks, delta.productConversions,
+                        delta.categoryClicks, delta.categoryAccesses);
+                storeTopEntitiesService.record(day.storeId(), day.date(), delta.entityCounts);
+            });
+            return inserted;
+        });
+        // Só os eventos realmente inseridos (os de lojas inexistentes são ignorados pelo INSERT)
+        writtenCounter.increment(written != null ? written : 0);
+    }
+
+    private String truncateMetadata(String metadata) {
+        if (metadata == null || metadata.length() <= MAX_METADATA_LENGTH) {
+            return metadata;
+        }
+        return metadata.substring(0, MAX_METADATA_LENGTH);
+    }
+
+    private static Counter eventCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("metrics.ingestion.events")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record PendingStoreEvent(UUID storeId,
+                                     StoreEvent.EventType eventType,
+                                     UUID entityId,
+                                     StoreEvent.EntityType entityType,
+                                     String metadata,
+                                     Instant createdAt) {
+    }
+
+    private record StoreDay(UUID storeId, LocalDate date) {
+    }
+
+    private static final class DailyCounters {
+        private int storeAccesses;
+        private int productClicks;
+        private int productConversions;
+        private int categoryClicks;
+        private int categoryAccesses;
+        private final Map<StoreEvent.EventType, Map<UUID, Long>> entityCounts = new EnumMap<>(StoreEvent.EventType.class);
+
+        void add(StoreEvent.EventType eventType, UUID entityId) {
+            switch (eventType) {
+                case STORE_ACCESS -> storeAccesses++;
+                case PRODUCT_CLICK -> productClicks++;
+                case PRODUCT_CONVERSION -> productConversions++;
+                case CATEGORY_CLICK -> categoryClicks++;
+                case CATEGORY_ACCESS -> categoryAccesses++;
+            }
+            if (eventType != StoreEvent.EventType.STORE_ACCESS && entityId != null) {
+                entityCounts.computeIfAbsent(eventType, t -> new HashMap<>()).merge(entityId, 1L, Long::sum);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import io.sentry.Sentry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Agenda a manutenção das partições de store_events. As partições futuras também
+ * são garantidas na subida da aplicação, para que nenhum evento caia na partição default.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StoreEventPartitionJob {
+
+    private final StoreEventPartitionService storeEventPartitionService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        ensureFuturePartitions();
+    }
+
+    @Scheduled(cron = "${metrics.events.partition-cron:0 0 4 * * *}", zone = "UTC")
+    public void maintainPartitions() {
+        ensureFuturePartitions();
+        try {
+            storeEventPartitionService.applyRetention();
+            storeEventPartitionService.purgeOldHourlyRollups();
+        } catch (Exception e) {
+            Sentry.captureException(e);
+            log.error("Erro ao aplicar retenção de store_events: {}", e.getMessage(), e);
+        }
+    }
+
+    private void ensureFuturePartitions() {
+        try {
+            storeEventPartitionService.ensureFuturePartitions();
+        } catch (Exception e) {
+            Sentry.captureException(e);
+            log.error("Erro ao criar partições de store_events: {}", e.getMessage(), e);
+        }
+    }
+}
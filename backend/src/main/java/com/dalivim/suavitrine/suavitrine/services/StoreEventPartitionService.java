@@ -0,0 +1,168 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import com.dalivim.suavitrine.suavitrine.repositories.StoreMetricsHourlyRepository;
+import io.sentry.Sentry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mantém as partições mensais de store_events (ver V28): cria as partições dos
+ * próximos meses e aplica a retenção, removendo partições inteiras em vez de
+ * apagar eventos linha a linha. Antes de sair da tabela, o mês é consolidado no
+ * rollup mensal; os rollups diário e mensal continuam disponíveis para o dashboard.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StoreEventPartitionService {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("store_events_p(\\d{6})");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String LIST_PARTITIONS_SQL = """
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = 'store_events'
+            """;
+
+    private static final String DEFAULT_PARTITION = "store_events_default";
+
+    private static final String DEFAULT_HAS_ROWS_SQL =
+            "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE created_at >= ? AND created_at < ?)";
+
+    private static final String MOVE_DEFAULT_ROWS_SQL = """
+            INSERT INTO store_events (id, store_id, event_type, entity_id, entity_type, metadata, created_at)
+            SELECT id, store_id, event_type, entity_id, entity_type, metadata, created_at
+            FROM store_events_default
+            WHERE created_at >= ? AND created_at < ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricsRollupService metricsRollupService;
+    private final StoreMetricsHourlyRepository storeMetricsHourlyRepository;
+
+    @Value("${metrics.events.partition-months-ahead:3}")
+    private int monthsAhead;
+
+    // Meses completos de eventos brutos mantidos, além do mês atual
+    @Value("${metrics.events.retention-months:13}")
+    private int retentionMonths;
+
+    // false: a partição é só desanexada (fica como tabela avulsa para arquivamento)
+    @Value("${metrics.events.drop-expired-partitions:false}")
+    private boolean dropExpiredPartitions;
+
+    @Value("${metrics.rollup.hourly-retention-days:35}")
+    private int hourlyRetentionDays;
+
+    /**
+     * Cria (se ainda não existirem) as partições do mês atual e dos próximos meses.
+     * Um mês que falhar é reportado sem impedir a criação dos demais.
+     */
+    public void ensureFuturePartitions() {
+        List<String> existing = jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class);
+        LocalDate currentMonth = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1);
+        for (int i = 0; i <= monthsAhead; i++) {
+            LocalDate month = currentMonth.plusMonths(i);
+            if (existing.contains(partitionName(month))) {
+                continue;
+            }
+            try {
+                createPartition(month);
+            } catch (Exception e) {
+                Sentry.captureException(e);
+                log.error("Erro ao criar a partição {} de store_events: {}", partitionName(month), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * O Postgres recusa criar a partição enquanto a default tiver linhas do mês. Nesse
+     * caso, numa única transação, a default é desanexada, a partição criada, as linhas
+     * do mês movidas para ela e a default anexada de novo.
+     */
+    private void createPartition(LocalDate month) {
+        String partition = partitionName(month);
+        Timestamp from = Timestamp.from(month.atStartOfDay().toInstant(ZoneOffset.UTC));
+        Timestamp to = Timestamp.from(month.plusMonths(1).atStartOfDay().toInstant(ZoneOffset.UTC));
+        String createSql = String.format(
+                "CREATE TABLE IF NOT EXISTS %s PARTITION OF store_events FOR VALUES FROM ('%s 00:00:00+00') TO ('%s 00:00:00+00')",
+                partition, month, month.plusMonths(1));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Boolean hasDefaultRows = jdbcTemplate.queryForObject(DEFAULT_HAS_ROWS_SQL, Boolean.class, from, to);
+            if (!Boolean.TRUE.equals(hasDefaultRows)) {
+                jdbcTemplate.execute(createSql);
+                return;
+            }
+
+            jdbcTemplate.execute("ALTER TABLE store_events DETACH PARTITION " + DEFAULT_PARTITION);
+            jdbcTemplate.execute(createSql);
+            int moved = jdbcTemplate.update(MOVE_DEFAULT_ROWS_SQL, from, to);
+            jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE created_at >= ? AND created_at < ?", from, to);
+            jdbcTemplate.execute("ALTER TABLE store_events ATTACH PARTITION " + DEFAULT_PARTITION + " DEFAULT");
+            log.warn("Partição {} criada com {} eventos movidos da partição default", partition, moved);
+        });
+    }
+
+    /**
+     * Consolida, desanexa e (opcionalmente) remove as partições mais antigas que a retenção
+     */
+    public void applyRetention() {
+        LocalDate cutoff = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1).minusMonths(retentionMonths);
+
+        List<String> partitions = jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class);
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue; // partição default
+            }
+            LocalDate month = YearMonth.parse(matcher.group(1), PARTITION_SUFFIX).atDay(1);
+            if (!month.isBefore(cutoff)) {
+                continue;
+            }
+
+            metricsRollupService.rollupMonth(month);
+            jdbcTemplate.execute("ALTER TABLE store_events DETACH PARTITION " + partition);
+            if (dropExpiredPartitions) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("Partição {} de store_events removida pela retenção", partition);
+            } else {
+                log.info("Partição {} de store_events desanexada para arquivamento", partition);
+            }
+        }
+    }
+
+    /**
+     * Remove linhas do rollup horário mais antigas que a retenção (só são lidas em janelas curtas)
+     */
+    @Transactional
+    public void purgeOldHourlyRollups() {
+        Instant cutoff = Instant.now().truncatedTo(ChronoUnit.HOURS).minus(hourlyRetentionDays, ChronoUnit.DAYS);
+        int removed = storeMetricsHourlyRepository.deleteOlderThan(cutoff);
+        log.info("{} linhas do rollup horário removidas (anteriores a {})", removed, cutoff);
+    }
+
+    private String partitionName(LocalDate month) {
+        return "store_events_p" + month.format(PARTITION_SUFFIX);
+    }
+}
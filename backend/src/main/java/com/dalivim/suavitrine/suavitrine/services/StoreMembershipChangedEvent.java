@@ -0,0 +1,9 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import java.util.UUID;
+
+/**
+ * Evento publicado quando o vínculo (ou a role) de um usuário com uma loja muda
+ */
+public record StoreMembershipChangedEvent(UUID storeId, UUID userId) {
+}
@@ -9,12 +9,15 @@ import com.dalivim.suavitrine.suavitrine.infra.exceptions.ObjectNotFoundExceptio
 import com.dalivim.suavitrine.suavitrine.infra.security.JwtService;
 import com.dalivim.suavitrine.suavitrine.mappers.*;
 import com.dalivim.suavitrine.suavitrine.repositories.*;
+import com.dalivim.suavitrine.suavitrine.services.billing.StoreEntitlementService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -28,6 +31,7 @@ public class StoreService {
     private final StoreUserRepository storeUserRepository;
     private final UserRepository userRepository;
     private final JwtService jwtService;
+    private final StoreAccessService storeAccessService;
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
     private final ImageService imageService;
@@ -36,7 +40,10 @@ public class StoreService {
     private final AddressMapper addressMapper;
     private final ProductBasicMapper productBasicMapper;
     private final StoreUserResponseMapper storeUserResponseMapper;
-    private final BillingRepository billingRepository;
+    private final StoreEntitlementService storeEntitlementService;
+    private final ProductImageRepository productImageRepository;
+    private final PublicStoreSnapshotService publicStoreSnapshotService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Cria uma nova loja e associa o usuário criador como OWNER
@@ -112,6 +119,8 @@ public class StoreService {
         storeUser.setRole(UserRole.OWNER);
 
         StoreUser savedStoreUser = storeUserRepository.save(storeUser);
+        userRepository.incrementMembershipVersion(owner.getId());
+        eventPublisher.publishEvent(new StoreMembershipChangedEvent(savedStore.getId(), owner.getId()));
 
         // Adiciona o storeUser na lista da store
         savedStore.getStoreUsers().add(savedStoreUser);
@@ -133,7 +142,7 @@ public class StoreService {
             throw new IllegalUserArgumentException("Loja foi deletada e não pode ser atualizada");
         }
 
-        boolean hasPermission = userHasPermissionToEditStore(existingStore);
+        boolean hasPermission = storeAccessService.currentUserCanEditStore(existingStore.getId());
 
         if (!hasPermission) {
             throw new InsufficientPermissionException("Usuário não tem permissão para atualizar esta loja.");
@@ -147,7 +156,10 @@ public class StoreService {
             }
 
             // Faz upload do novo logo para o storage (retorna a KEY)
-            String logoKey = imageService.uploadStoreLogo(
+            String logoKey = imageService.resolveImageKey(
+                    storeId,
+                    ImageUploadTarget.STORE_LOGO,
+                    request.logo().uploadKey(),
                     request.logo().base64Image(),
                     request.logo().fileName(),
                     request.logo().contentType());
@@ -161,6 +173,7 @@ public class StoreService {
 
         // Salva as alterações
         Store updatedStore = storeRepository.save(existingStore);
+        eventPublisher.publishEvent(new StoreCatalogChangedEvent(storeId));
 
         // Converte para DTO de resposta
         return toStoreResponse(updatedStore);
@@ -179,7 +192,7 @@ public class StoreService {
             throw new IllegalUserArgumentException("Loja foi deletada e não pode ser atualizada");
         }
 
-        boolean hasPermission = userHasPermissionToEditStore(existingStore);
+        boolean hasPermission = storeAccessService.currentUserCanEditStore(existingStore.getId());
 
         if (!hasPermission) {
             throw new InsufficientPermissionException("Usuário não tem permissão para atualizar esta loja.");
@@ -226,7 +239,9 @@ public class StoreService {
             }
         }
 
-        return storeRepository.save(existingStore);
+        Store savedStore = storeRepository.save(existingStore);
+        eventPublisher.publishEvent(new StoreCatalogChangedEvent(storeId));
+        return savedStore;
     }
 
     /**
@@ -244,22 +259,22 @@ public class StoreService {
             throw new IllegalUserArgumentException("Loja foi deletada e não pode ser atualizada");
         }
 
-        boolean hasPermission = userHasPermissionToEditStore(existingStore);
+        boolean hasPermission = storeAccessService.currentUserCanEditStore(existingStore.getId());
 
         if (!hasPermission) {
             throw new InsufficientPermissionException("Usuário não tem permissão para atualizar esta loja.");
         }
 
         // Verifica se a loja tem plano BASIC ou superior
-        var currentActivePlan = billingRepository.findCurrentActivePlan(existingStore);
+        var currentActivePlan = storeEntitlementService.getActivePayingPlan(existingStore.getId());
         if (currentActivePlan.isEmpty()) {
             throw new IllegalUserArgumentException(
                     "A loja não possui um plano ativo. É necessário ter pelo menos o plano BASIC para atualizar o background.");
         }
 
         var activePlan = currentActivePlan.get();
-        if (activePlan.getPayingPlan() != PayingPlan.BASIC &&
-                activePlan.getPayingPlan() != PayingPlan.PRO) {
+        if (activePlan != PayingPlan.BASIC &&
+                activePlan != PayingPlan.PRO) {
             throw new InsufficientPermissionException(
                     "Atualização de background é uma feature disponível apenas para planos BASIC e PRO.");
         }
@@ -283,6 +298,7 @@ public class StoreService {
 
         // Salva as alterações
         Store updatedStore = storeRepository.save(existingStore);
+        eventPublisher.publishEvent(new StoreCatalogChangedEvent(storeId));
 
         // Converte para DTO de resposta
         return toStoreResponse(updatedStore);
@@ -302,7 +318,7 @@ public class StoreService {
             throw new IllegalUserArgumentException("Loja foi deletada e não pode ser atualizada");
         }
 
-        boolean hasPermission = userHasPermissionToEditStore(existingStore);
+        boolean hasPermission = storeAccessService.currentUserCanEditStore(existingStore.getId());
 
         if (!hasPermission) {
             throw new InsufficientPermissionException("Usuário não tem permissão para atualizar esta loja.");
@@ -316,7 +332,10 @@ public class StoreService {
             }
 
             // Faz upload do novo logo para o storage (retorna a KEY)
-            String logoKey = imageService.uploadStoreLogo(
+            String logoKey = imageService.resolveImageKey(
+                    storeId,
+                    ImageUploadTarget.STORE_LOGO,
+                    request.logo().uploadKey(),
                     request.logo().base64Image(),
                     request.logo().fileName(),
                     request.logo().contentType());
@@ -355,7 +374,10 @@ public class StoreService {
             }
 
             // Faz upload do novo banner para o storage (retorna a KEY)
-            String bannerKey = imageService.uploadBase64Image(
+            String bannerKey = imageService.resolveImageKey(
+                    storeId,
+                    ImageUploadTarget.STORE_BANNER,
+                    request.bannerDesktop().uploadKey(),
                     request.bannerDesktop().base64Image(),
                     request.bannerDesktop().fileName(),
                     request.bannerDesktop().contentType());
@@ -371,7 +393,10 @@ public class StoreService {
             }
 
             // Faz upload do novo banner para o storage (retorna a KEY)
-            String bannerKey = imageService.uploadBase64Image(
+            String bannerKey = imageService.resolveImageKey(
+                    storeId,
+                    ImageUploadTarget.STORE_BANNER,
+                    request.bannerTablet().uploadKey(),
                     request.bannerTablet().base64Image(),
                     request.bannerTablet().fileName(),
                     request.bannerTablet().contentType());
@@ -387,7 +412,10 @@ public class StoreService {
             }
 
             // Faz upload do novo banner para o storage (retorna a KEY)
-            String bannerKey = imageService.uploadBase64Image(
+            String bannerKey = imageService.resolveImageKey(
+                    storeId,
+                    ImageUploadTarget.STORE_BANNER,
+                    request.bannerMobile().uploadKey(),
                     request.bannerMobile().base64Image(),
                     request.bannerMobile().fileName(),
                     request.bannerMobile().contentType());
@@ -401,6 +429,7 @@ public class StoreService {
 
         // Salva as alterações
         Store updatedStore = storeRepository.save(existingStore);
+        eventPublisher.publishEvent(new StoreCatalogChangedEvent(storeId));
 
         // Converte para DTO de resposta
         return toStoreResponse(updatedStore);
@@ -420,7 +449,7 @@ public class StoreService {
             throw new IllegalUserArgumentException("Loja foi deletada e não pode ser atualizada");
         }
 
-        boolean hasPermission = userHasPermissionToEditStore(existingStore);
+        boolean hasPermission = storeAccessService.currentUserCanEditStore(existingStore.getId());
 
         if (!hasPermission) {
             throw new InsufficientPermissionException("Usuário não tem permissão para atualizar esta loja.");
@@ -457,7 +486,9 @@ public class StoreService {
             existingStore.setBannerMobileUrl(updatedStore.getBannerMobileUrl());
         }
 
-        return storeRepository.save(existingStore);
+        Store savedStore = storeRepository.save(existingStore);
+        eventPublisher.publishEvent(new StoreCatalogChangedEvent(storeId));
+        return savedStore;
     }
 
     /**
@@ -481,7 +512,7 @@ public class StoreService {
             throw new IllegalUserArgumentException("Loja foi deletada");
         }
 
-        boolean hasPermission = userHasPermissionToEditStore(store);
+        boolean hasPermission = storeAccessService.currentUserCanEditStore(store.getId());
 
         if (!hasPermission) {
             throw new InsufficientPermissionException(
@@ -503,7 +534,10 @@ public class StoreService {
         storeUser.setUser(user);
         storeUser.setRole(role);
 
-        return storeUserRepository.save(storeUser);
+        StoreUser savedStoreUser = storeUserRepository.save(storeUser);
+        userRepository.incrementMembershipVersion(userId);
+        eventPublisher.publishEvent(new StoreMembershipChangedEvent(storeId, userId));
+        return savedStoreUser;
     }
 
     /**
@@ -532,12 +566,8 @@ public class StoreService {
             bannerMobileUrl = imageService.getPresignedUrl(store.getBannerMobileUrl());
         }
 
-        // Busca o plano ativo da loja
-        PayingPlan activePlan = null;
-        var currentActivePlan = billingRepository.findCurrentActivePlan(store);
-        if (currentActivePlan.isPresent()) {
-            activePlan = currentActivePlan.get().getPayingPlan();
-        }
+        // Plano ativo da loja (cacheado, sem consultar billing a cada resposta)
+        PayingPlan activePlan = storeEntitlementService.getActivePayingPlan(store.getId()).orElse(null);
 
         // Usa o mapper para converter a entidade para DTO base
         StoreResponse mappedResponse = storeResponseMapper.toDto(store);
@@ -581,7 +611,7 @@ public class StoreService {
         Store store = storeRepository.findById(storeId)
                 .orElseThrow(() -> new ObjectNotFoundException("Loja não encontrada"));
 
-        boolean hasPermission = userHasPermissionToEditStore(store);
+        boolean hasPermission = storeAccessService.currentUserCanEditStore(store.getId());
 
         if (!hasPermission) {
             throw new InsufficientPermissionException(
@@ -602,6 +632,8 @@ public class StoreService {
         // Soft delete - atualiza o deletedAt
         storeUser.setDeletedAt(Instant.now());
         storeUserRepository.save(storeUser);
+        userRepository.incrementMembershipVersion(userId);
+        eventPublisher.publishEvent(new StoreMembershipChangedEvent(storeId, userId));
     }
 
     /**
@@ -619,7 +651,7 @@ public class StoreService {
         var store = storeRepository.findById(storeId)
                 .orElseThrow(() -> new ObjectNotFoundException("Loja não encontrada"));
 
-        boolean hasPermission = userHasPermissionToEditStore(store);
+        boolean hasPermission = storeAccessService.currentUserCanEditStore(store.getId());
         if (!hasPermission) {
             throw new InsufficientPermissionException(
                     "Usuário não tem permissão para adicionar outros usuários à esta loja.");
@@ -671,13 +703,37 @@ public class StoreService {
     /**
      * Busca uma loja pública completa com categorias e produtos (público)
      * Retorna apenas produtos disponíveis (available = true)
+     * A resposta é servida a partir do snapshot em memória quando disponível
      */
     public StorePublicResponse getPublicStoreBySlug(String slug) {
-        Store store = getStoreBySlugEntity(slug);
+        return publicStoreSnapshotService.getOrBuild(slug, () -> buildPublicStoreBySlug(slug));
+    }
+
+    /**
+     * Busca as imagens ativas dos produtos disponíveis da loja em uma única
+     * consulta, agrupadas por ID do produto e ordenadas por displayOrder
+     */
+    public Map<UUID, List<ProductImage>> getAvailableProductImagesByStore(Store store) {
+        return productImageRepository.findActiveImagesOfAvailableProductsByStore(store).stream()
+                .collect(Collectors.groupingBy(
+                        image -> image.getProduct().getId(),
+                        LinkedHashMap::new,
+                        Collectors.toList()));
+    }
+
+    /**
+     * Monta a resposta pública completa da loja a partir do banco
+     * Número fixo de consultas independente do tamanho do catálogo:
+     * loja + endereço, categorias, produtos disponíveis e imagens
+     */
+    private StorePublicResponse buildPublicStoreBySlug(String slug) {
+        Store store = storeRepository.findWithAddressBySlug(slug)
+                .orElseThrow(() -> new ObjectNotFoundException("Loja não encontrada com o slug: " + slug));
 
-        // Busca categorias e apenas produtos disponíveis da loja
+        // Busca categorias, apenas produtos disponíveis da loja e suas imagens
         List<Category> categories = getCategoriesByStore(store);
         List<Product> allProducts = getAvailableProductsByStore(store);
+        Map<UUID, List<ProductImage>> imagesByProduct = getAvailableProductImagesByStore(store);
 
         // Agrupa produtos por categoria
         Map<Category, List<Product>> productsByCategory = allProducts.stream()
@@ -705,7 +761,7 @@ public class StoreService {
                             })
                             .collect(Collectors.toList());
 
-                    List<ProductBasicResponse> productsDto = productBasicMapper.toDtoList(categoryProducts);
+                    List<ProductBasicResponse> productsDto = productBasicMapper.toDtoList(categoryProducts, imagesByProduct);
 
                     // Gera presigned URL para imagem da categoria se existir
                     String categoryImageUrl = category.getImageUrl() != null
@@ -746,7 +802,7 @@ public class StoreService {
 
         // Adiciona produtos sem categoria em uma categoria especial
         if (!productsWithoutCategory.isEmpty()) {
-            List<ProductBasicResponse> productsDto = productBasicMapper.toDtoList(productsWithoutCategory);
+            List<ProductBasicResponse> productsDto = productBasicMapper.toDtoList(productsWithoutCategory, imagesByProduct);
             categoriesWithProducts.add(new CategoryWithProductsResponse(
                     null,
                     "Outros",
@@ -805,7 +861,7 @@ public class StoreService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ObjectNotFoundException("Usuário não encontrado"));
 
-        return storeUserRepository.findByUser(user).stream()
+        return storeUserRepository.findByUserOrderByCreatedAtAscIdAsc(user).stream()
                 .filter(storeUser -> storeUser.getDeletedAt() == null)
                 .toList();
     }
@@ -830,27 +886,6 @@ public class StoreService {
                 .toList();
     }
 
-    // O usuário tem que pertencer a lista de storeusers dessa store, e ter role
-    // superior a EMPLOYEE
-    private boolean userHasPermissionToEditStore(Store existingStore) {
-        var storeUsers = storeUserRepository.findByStore(existingStore);
-        var currentUser = jwtService.getCurrentAuthenticatedUser();
-
-        return storeUsers.stream()
-                .anyMatch(su -> su.getUser().getId().equals(currentUser.getId()) &&
-                        (su.getRole() == UserRole.OWNER || su.getRole() == UserRole.MANAGER));
-    }
-
-    private boolean validateUserBelongsToStore(UUID storeId, UUID userId) {
-        Store store = storeRepository.findById(storeId)
-                .orElseThrow(() -> new ObjectNotFoundException("Loja não encontrada"));
-
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ObjectNotFoundException("Usuário não encontrado"));
-
-        return storeUserRepository.existsByStoreAndUser(store, user);
-    }
-
     /**
      * Verifica se um slug está disponível
      * Retorna true se o slug não existe (está disponível), false caso contrário
@@ -863,12 +898,21 @@ public class StoreService {
     }
 
     /**
-     * Obtém a primeira loja do usuário autenticado
+     * ID da loja atual do usuário autenticado, lido do token quando possível
+     * (mesma loja de {@link #getCurrentUserStore()})
+     */
+    public UUID getCurrentUserStoreId() {
+        return storeAccessService.findCurrentUserStoreIdFromToken()
+                .orElseGet(() -> getCurrentUserStore().getId());
+    }
+
+    /**
+     * Obtém a primeira loja do usuário autenticado (vínculo mais antigo)
      * Para MVP, assumimos que cada usuário tem apenas uma loja
      */
     public Store getCurrentUserStore() {
         var currentUser = jwtService.getCurrentAuthenticatedUser();
-        List<StoreUser> userStores = getUserStoresEntities(currentUser.getId());
+        List<StoreUser> userStores = getUserStoresEntities(currentUser.id());
 
         if (userStores.isEmpty()) {
             throw new ObjectNotFoundException("Usuário não possui lojas associadas");
@@ -880,7 +924,10 @@ public class StoreService {
     private void processStoreLogo(CreateStoreRequest request, Store store) {
         // Processa upload do logo se fornecido
         if (request.logo() != null) {
-            String logoKey = imageService.uploadStoreLogo(
+            String logoKey = imageService.resolveImageKey(
+                    store.getId(),
+                    ImageUploadTarget.STORE_LOGO,
+                    request.logo().uploadKey(),
                     request.logo().base64Image(),
                     request.logo().fileName(),
                     request.logo().contentType());
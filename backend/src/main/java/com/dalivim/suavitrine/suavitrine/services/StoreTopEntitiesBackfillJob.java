@@ -0,0 +1,105 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import io.sentry.Sentry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Migra, na subida da aplicação, os tops de métricas gravados antes dos sketches em JSON:
+ * converte as linhas diárias ainda no formato legado (Map.toString()) e recalcula os tops
+ * das linhas mensais e horárias criadas pelo backfill da V27 sem eles. Depois da primeira
+ * execução as consultas não encontram mais nada, então repetir é barato.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StoreTopEntitiesBackfillJob {
+
+    // Valores JSON começam com {" ou são {}; o legado começa com {clicks= ou {conversions=
+    private static final String LEGACY_ROWS_SQL = """
+            SELECT id, top_products, top_categories
+            FROM store_metrics
+            WHERE top_products LIKE '{%=%' OR top_categories LIKE '{%=%'
+            LIMIT ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StoreTopEntitiesService storeTopEntitiesService;
+    private final MetricsRollupService metricsRollupService;
+
+    @Value("${metrics.top-k.backfill-batch-size:500}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            convertLegacyDailyRows();
+            rebuildMonthlyTops();
+            rebuildHourlyTops();
+        } catch (Exception e) {
+            Sentry.captureException(e);
+            log.error("Erro ao migrar tops de métricas: {}", e.getMessage(), e);
+        }
+    }
+
+    private void convertLegacyDailyRows() {
+        int converted = 0;
+        List<Map<String, Object>> rows;
+        do {
+            rows = jdbcTemplate.queryForList(LEGACY_ROWS_SQL, batchSize);
+            List<Object[]> updates = new ArrayList<>(rows.size());
+            for (Map<String, Object> row : rows) {
+                updates.add(new Object[]{
+                        convert((String) row.get("top_products"), false),
+                        convert((String) row.get("top_categories"), true),
+                        row.get("id")});
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE store_metrics SET top_products = ?, top_categories = ? WHERE id = ?", updates);
+            }
+            converted += rows.size();
+        } while (rows.size() == batchSize);
+
+        if (converted > 0) {
+            log.info("{} linhas de store_metrics com tops em formato legado convertidas para JSON", converted);
+        }
+    }
+
+    private String convert(String value, boolean categories) {
+        String converted = storeTopEntitiesService.convertLegacy(value, categories);
+        return converted != null ? converted : value;
+    }
+
+    private void rebuildMonthlyTops() {
+        List<LocalDate> months = jdbcTemplate.queryForList(
+                "SELECT DISTINCT month FROM store_metrics_monthly WHERE top_products IS NULL ORDER BY month", LocalDate.class);
+        for (LocalDate month : months) {
+            metricsRollupService.rollupMonth(month);
+        }
+        if (!months.isEmpty()) {
+            log.info("Tops mensais recalculados para {} meses", months.size());
+        }
+    }
+
+    private void rebuildHourlyTops() {
+        List<Timestamp> hours = jdbcTemplate.queryForList(
+                "SELECT DISTINCT hour FROM store_metrics_hourly WHERE top_products IS NULL ORDER BY hour", Timestamp.class);
+        for (Timestamp hour : hours) {
+            metricsRollupService.rollupHour(hour.toInstant());
+        }
+        if (!hours.isEmpty()) {
+            log.info("Tops horários recalculados para {} horas", hours.size());
+        }
+    }
+}
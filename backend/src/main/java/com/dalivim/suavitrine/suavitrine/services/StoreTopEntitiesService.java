@@ -0,0 +1,221 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import com.dalivim.suavitrine.suavitrine.entities.StoreEvent;
+import com.dalivim.suavitrine.suavitrine.entities.StoreMetrics;
+import com.dalivim.suavitrine.suavitrine.infra.metrics.TopKSketch;
+import com.dalivim.suavitrine.suavitrine.repositories.StoreMetricsRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mantém os top produtos/categorias de cada loja por dia como sketches Space-Saving
+ * persistidos em JSON em store_metrics.top_products e top_categories:
+ * {"clicks":[{"id":...,"count":...,"error":...}], "conversions":[...]} para produtos e
+ * {"clicks":[...], "accesses":[...]} para categorias.
+ * Os sketches são atualizados na ingestão, então ler o top de um período custa
+ * O(dias * capacidade) em vez de agrupar todos os eventos do período.
+ */
+@Slf4j
+@Service
+public class StoreTopEntitiesService {
+
+    public static final String CLICKS = "clicks";
+    public static final String CONVERSIONS = "conversions";
+    public static final String ACCESSES = "accesses";
+
+    private static final Pattern LEGACY_SECTION = Pattern.compile("(\\w+)=\\[([^\\]]*)\\]");
+    private static final Pattern LEGACY_ITEM = Pattern.compile("\\{([^}]*)\\}");
+    private static final Pattern LEGACY_FIELD = Pattern.compile("(\\w+)=([^,]+)");
+
+    private static final TypeReference<Map<String, List<TopKSketch.Entry>>> JSON_TYPE = new TypeReference<>() {
+    };
+
+    private final StoreMetricsRepository storeMetricsRepository;
+    private final ObjectMapper objectMapper;
+    private final int capacity;
+
+    public StoreTopEntitiesService(StoreMetricsRepository storeMetricsRepository,
+                                   ObjectMapper objectMapper,
+                                   @Value("${metrics.top-k.capacity:50}") int capacity) {
+        this.storeMetricsRepository = storeMetricsRepository;
+        this.objectMapper = objectMapper;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Soma as contagens por entidade ao sketch do dia. Deve rodar na mesma transação
+     * do upsert dos contadores, que já trava a linha de store_metrics do dia.
+     */
+    public void record(UUID storeId, LocalDate date, Map<StoreEvent.EventType, Map<UUID, Long>> entityCounts) {
+        if (entityCounts.isEmpty()) {
+            return;
+        }
+        StoreMetrics dailyMetrics = storeMetricsRepository.findByStoreIdAndDate(storeId, date).orElseThrow();
+
+        Map<String, TopKSketch> products = read(dailyMetrics.getTopProducts());
+        Map<String, TopKSketch> categories = read(dailyMetrics.getTopCategories());
+        addCounts(products, categories, entityCounts);
+
+        dailyMetrics.setTopProducts(write(products));
+        dailyMetrics.setTopCategories(write(categories));
+        storeMetricsRepository.save(dailyMetrics);
+    }
+
+    /**
+     * Soma as contagens por entidade nos sketches de produtos e categorias
+     */
+    public void addCounts(Map<String, TopKSketch> products,
+                          Map<String, TopKSketch> categories,
+                          Map<StoreEvent.EventType, Map<UUID, Long>> entityCounts) {
+        entityCounts.forEach((eventType, counts) -> {
+            TopKSketch sketch = switch (eventType) {
+                case PRODUCT_CLICK -> products.computeIfAbsent(CLICKS, k -> new TopKSketch(capacity));
+                case PRODUCT_CONVERSION -> products.computeIfAbsent(CONVERSIONS, k -> new TopKSketch(capacity));
+                case CATEGORY_CLICK -> categories.computeIfAbsent(CLICKS, k -> new TopKSketch(capacity));
+                case CATEGORY_ACCESS -> categories.computeIfAbsent(ACCESSES, k -> new TopKSketch(capacity));
+                case STORE_ACCESS -> null;
+            };
+            if (sketch != null) {
+                counts.forEach(sketch::add);
+            }
+        });
+    }
+
+    /**
+     * Junta vários sketches serializados (ex.: os dias de um mês) num único sketch serializado
+     */
+    public String merge(List<String> jsons) {
+        Map<String, TopKSketch> merged = new LinkedHashMap<>();
+        for (String json : jsons) {
+            read(json).forEach((key, sketch) -> {
+                TopKSketch target = merged.computeIfAbsent(key, k -> new TopKSketch(capacity));
+                sketch.entries().forEach(e -> target.add(e.id(), e.count()));
+            });
+        }
+        return write(merged);
+    }
+
+    /**
+     * Monta um sketch exato a partir de contagens agrupadas (entityId, count), usado na reconciliação
+     */
+    public TopKSketch fromGroupedCounts(List<Object[]> groupedCounts) {
+        TopKSketch sketch = new TopKSketch(capacity);
+        groupedCounts.stream()
+                .filter(arr -> arr[0] != null)
+                .limit(capacity)
+                .forEach(arr -> sketch.add((UUID) arr[0], (Long) arr[1]));
+        return sketch;
+    }
+
+    /**
+     * Soma os sketches (horários, diários ou mensais) do período e retorna as N entidades com maior contagem
+     */
+    public List<TopKSketch.Entry> topOfPeriod(List<String> jsons, String key, int limit) {
+        Map<UUID, Long> totals = new HashMap<>();
+        for (String json : jsons) {
+            TopKSketch sketch = read(json).get(key);
+            if (sketch != null) {
+                sketch.entries().forEach(e -> totals.merge(e.id(), e.count(), Long::sum));
+            }
+        }
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<UUID, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .map(e -> new TopKSketch.Entry(e.getKey(), e.getValue(), 0))
+                .toList();
+    }
+
+    public String write(Map<String, TopKSketch> sketches) {
+        Map<String, List<TopKSketch.Entry>> document = new LinkedHashMap<>();
+        sketches.forEach((key, sketch) -> document.put(key, sketch.entries()));
+        try {
+            return objectMapper.writeValueAsString(document);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Erro ao serializar top entidades", e);
+        }
+    }
+
+    /**
+     * Converte um valor no formato legado (Map.toString()) para o JSON atual.
+     * Nas categorias, a lista legada "conversions" guardava os acessos e vira "accesses".
+     * Retorna null se o valor já estiver em JSON (ou vazio).
+     */
+    public String convertLegacy(String value, boolean categories) {
+        if (value == null || value.isBlank() || isJson(value)) {
+            return null;
+        }
+        Map<String, TopKSketch> sketches = readLegacy(value);
+        if (categories && sketches.containsKey(CONVERSIONS)) {
+            sketches.put(ACCESSES, sketches.remove(CONVERSIONS));
+        }
+        return write(sketches);
+    }
+
+    private Map<String, TopKSketch> read(String json) {
+        Map<String, TopKSketch> sketches = new LinkedHashMap<>();
+        if (json == null || json.isBlank()) {
+            return sketches;
+        }
+        try {
+            objectMapper.readValue(json, JSON_TYPE)
+                    .forEach((key, entries) -> sketches.put(key, TopKSketch.of(capacity, entries)));
+        } catch (JsonProcessingException e) {
+            // Linha ainda não convertida pelo StoreTopEntitiesBackfillJob: lê o formato legado
+            return readLegacy(json);
+        }
+        return sketches;
+    }
+
+    private boolean isJson(String value) {
+        try {
+            objectMapper.readValue(value, JSON_TYPE);
+            return true;
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Lê o formato legado {clicks=[{id=..., count=...}, ...], conversions=[...]}.
+     * A ordem das chaves de cada item é arbitrária (Map.of).
+     */
+    private Map<String, TopKSketch> readLegacy(String value) {
+        Map<String, TopKSketch> sketches = new LinkedHashMap<>();
+        Matcher section = LEGACY_SECTION.matcher(value);
+        while (section.find()) {
+            TopKSketch sketch = new TopKSketch(capacity);
+            Matcher item = LEGACY_ITEM.matcher(section.group(2));
+            while (item.find()) {
+                Map<String, String> fields = new HashMap<>();
+                Matcher field = LEGACY_FIELD.matcher(item.group(1));
+                while (field.find()) {
+                    fields.put(field.group(1), field.group(2).trim());
+                }
+                try {
+                    sketch.add(UUID.fromString(fields.get("id")), Long.parseLong(fields.get("count")));
+                } catch (RuntimeException e) {
+                    log.warn("Item de top entidades em formato legado inválido ignorado: {}", item.group());
+                }
+            }
+            sketches.put(section.group(1), sketch);
+        }
+        if (sketches.isEmpty() && !value.trim().equals("{}")) {
+            log.warn("Top entidades em formato desconhecido ignorado: {}", value);
+        }
+        return sketches;
+    }
+}
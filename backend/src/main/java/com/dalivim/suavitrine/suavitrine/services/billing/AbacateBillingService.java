@@ -4,6 +4,7 @@ import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Base64;
@@ -14,8 +15,10 @@ import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.dalivim.suavitrine.suavitrine.dtos.BillingResponse;
 import com.dalivim.suavitrine.suavitrine.dtos.CreateAbacateBilling;
@@ -33,7 +36,13 @@ import com.dalivim.suavitrine.suavitrine.infra.security.JwtService;
 import com.dalivim.suavitrine.suavitrine.repositories.StoreRepository;
 import com.dalivim.suavitrine.suavitrine.repositories.StoreUserRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kong.unirest.core.HttpResponse;
 import kong.unirest.core.Unirest;
+import kong.unirest.core.UnirestInstance;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -51,6 +60,9 @@ public class AbacateBillingService implements IBillingService {
     private final StoreUserRepository storeUserRepository;
     private final BillingRepository billingRepository;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
 
     @Value("${abacate.pay.return-url}")
     private String postPaymentReturnUrl;
@@ -64,6 +76,28 @@ public class AbacateBillingService implements IBillingService {
     @Value("${abacate.pay.webhook-secret}")
     private String webhookSecret;
 
+    @Value("${abacate.pay.connect-timeout:3s}")
+    private Duration connectTimeout;
+
+    @Value("${abacate.pay.request-timeout:10s}")
+    private Duration requestTimeout;
+
+    // Cliente próprio com timeouts explícitos; reaproveita as conexões (keep-alive) entre chamadas
+    private UnirestInstance abacateClient;
+
+    @PostConstruct
+    void initAbacateClient() {
+        abacateClient = Unirest.spawnInstance();
+        abacateClient.config()
+                .connectTimeout((int) connectTimeout.toMillis())
+                .requestTimeout((int) requestTimeout.toMillis());
+    }
+
+    @PreDestroy
+    void closeAbacateClient() {
+        abacateClient.close();
+    }
+
     /**
      * Chave pública HMAC da AbacatePay para validação de assinatura de webhooks.
      * Fonte: https://docs.abacatepay.com/pages/webhooks
@@ -75,11 +109,77 @@ public class AbacateBillingService implements IBillingService {
         return webhookSecret;
     }
 
+    /**
+     * Cria o billing em três passos para não segurar conexão do banco durante a
+     * chamada HTTP: reserva o billing numa transação curta, chama a Abacate Pay
+     * sem transação e registra o resultado numa segunda transação. A reserva só é
+     * desfeita quando a Abacate Pay responde com erro; se o resultado é incerto
+     * (timeout, falha de I/O), ela é mantida para o webhook de pagamento.
+     */
     @Override
-    @Transactional
     public BillingResponse createBillingRequest(UUID storeId, PayingPlan payingPlan, PlanDuration planDuration, String taxId) {
         var user = jwtService.getCurrentAuthenticatedUser();
 
+        ReservedBilling reserved = transactionTemplate.execute(status ->
+                reserveBilling(storeId, user.id(), payingPlan, planDuration, taxId));
+
+        HttpResponse<CreateAbacateBillingResponse> response;
+        try {
+            response = callCreateBilling(reserved.request());
+        } catch (RuntimeException e) {
+            // Timeout/erro de I/O: a Abacate Pay pode ter criado a cobrança, então o billing
+            // reservado fica (sem paymentUrl) para que um billing.paid posterior o encontre
+            log.warn("Resultado incerto ao criar billing {} na Abacate Pay; reserva mantida: {}",
+                    reserved.billingId(), e.getMessage());
+            Sentry.captureException(e);
+            throw new ExternalServiceException("Falha ao criar billing na Abacate Pay: " + e.getMessage());
+        }
+
+        if (!response.isSuccess()) {
+            // Resposta definitiva de erro: a cobrança não foi criada, remover o billing reservado
+            transactionTemplate.executeWithoutResult(status -> billingRepository.deleteById(reserved.billingId()));
+            
+            String errorMessage = "Falha ao criar billing na Abacate Pay";
+            
+            // Tenta obter o erro do DTO se o body foi parseado corretamente
+            if (response.getBody() != null && response.getBody().error() != null) {
+                errorMessage += ": " + response.getBody().error();
+            } else if (response.getParsingError().isPresent()) {
+                errorMessage += ": " + response.getParsingError().get().getMessage();
+            } else {
+                errorMessage += ": Status " + response.getStatus();
+            }
+            
+            throw new ExternalServiceException(errorMessage);
+        }
+
+        var billingData = response.getBody().data();
+
+        // Atualizar o billing com os dados da Abacate
+        Billing billing = transactionTemplate.execute(status -> {
+            Billing reservedBilling = billingRepository.findById(reserved.billingId())
+                    .orElseThrow(() -> new ObjectNotFoundException("Billing não encontrado"));
+            reservedBilling.setExternalId(billingData.id());
+            reservedBilling.setPaymentUrl(billingData.url());
+            return billingRepository.save(reservedBilling);
+        });
+
+        return new BillingResponse(
+                billing.getId(),
+                billing.getPaymentUrl(),
+                billing.getPrice(),
+                billing.getPayingPlan(),
+                billing.getPlanDuration(),
+                billing.getExpiresAt(),
+                billing.getExternalId()
+        );
+    }
+
+    /**
+     * Passo 1 (em transação): valida a loja e o pagador, grava o billing e monta o pedido para a Abacate Pay
+     */
+    private ReservedBilling reserveBilling(UUID storeId, UUID userId, PayingPlan payingPlan,
+                                           PlanDuration planDuration, String taxId) {
         Store store = storeRepository.findById(storeId)
                 .orElseThrow(() -> new ObjectNotFoundException("Store not found"));
 
@@ -90,7 +190,7 @@ public class AbacateBillingService implements IBillingService {
             throw new RuntimeException("Current active plan is already in progress");
         }
 
-        StoreUser payer = storeUserRepository.findByStoreAndUser(store, user)
+        StoreUser payer = storeUserRepository.findByStoreAndUserId(store, userId)
                 .orElseThrow(() -> new ObjectNotFoundException("Payer not found"));
 
         Instant expiresAt = Instant.now().plus(planDuration.getDuration(), ChronoUnit.DAYS);
@@ -132,47 +232,33 @@ public class AbacateBillingService implements IBillingService {
                 .completionUrl(postPaymentReturnUrl)
                 .build();
 
-        // aqui vamos criar o billing na abacate.
-        var response = Unirest.post(abacatePayUrl + "/v1/billing/create")
-                .header("Authorization", "Bearer " + abacateApiKey)
-                .header("Content-Type", "application/json")
-                .body(request)
-                .asObject(CreateAbacateBillingResponse.class);
+        return new ReservedBilling(billing.getId(), request);
+    }
 
-        if (!response.isSuccess()) {
-            // Se falhar, remover o billing criado
-            billingRepository.delete(billing);
-            
-            String errorMessage = "Falha ao criar billing na Abacate Pay";
-            
-            // Tenta obter o erro do DTO se o body foi parseado corretamente
-            if (response.getBody() != null && response.getBody().error() != null) {
-                errorMessage += ": " + response.getBody().error();
-            } else if (response.getParsingError().isPresent()) {
-                errorMessage += ": " + response.getParsingError().get().getMessage();
-            } else {
-                errorMessage += ": Status " + response.getStatus();
-            }
-            
-            throw new ExternalServiceException(errorMessage);
+    /**
+     * Passo 2 (sem transação): chamada HTTP com timeouts, medida em billing.abacate.requests
+     */
+    private HttpResponse<CreateAbacateBillingResponse> callCreateBilling(CreateAbacateBilling request) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            var response = abacateClient.post(abacatePayUrl + "/v1/billing/create")
+                    .header("Authorization", "Bearer " + abacateApiKey)
+                    .header("Content-Type", "application/json")
+                    .body(request)
+                    .asObject(CreateAbacateBillingResponse.class);
+            outcome = response.isSuccess() ? "success" : "http_error";
+            return response;
+        } finally {
+            sample.stop(Timer.builder("billing.abacate.requests")
+                    .description("Latência das chamadas à API da Abacate Pay")
+                    .tag("operation", "create")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
         }
+    }
 
-        var billingData = response.getBody().data();
-        billing.setExternalId(billingData.id());
-        billing.setPaymentUrl(billingData.url());
-        
-        // Atualizar o billing com os dados da Abacate
-        billing = billingRepository.save(billing);
-
-        return new BillingResponse(
-                billing.getId(),
-                billing.getPaymentUrl(),
-                billing.getPrice(),
-                billing.getPayingPlan(),
-                billing.getPlanDuration(),
-                billing.getExpiresAt(),
-                billing.getExternalId()
-        );
+    private record ReservedBilling(UUID billingId, CreateAbacateBilling request) {
     }
 
     /**
@@ -211,17 +297,7 @@ public class AbacateBillingService implements IBillingService {
      */
     public boolean verifyAbacateSignature(String rawBody, String signatureFromHeader) {
         try {
-            // Converter o corpo para bytes UTF-8
-            byte[] bodyBytes = rawBody.getBytes(StandardCharsets.UTF_8);
-            
-            // Calcular HMAC-SHA256 usando a chave pública da AbacatePay
-            Mac mac = Mac.getInstance("HmacSHA256");
-            SecretKeySpec key = new SecretKeySpec(ABACATEPAY_PUBLIC_KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            mac.init(key);
-            byte[] hmacBytes = mac.doFinal(bodyBytes);
-            
-            // Codificar o resultado do HMAC em Base64
-            String expectedSignature = Base64.getEncoder().encodeToString(hmacBytes);
+            String expectedSignature = signPayload(rawBody);
     
             // Comparar usando timing-safe comparison
             // Ambas as assinaturas estão em Base64, comparamos os bytes decodificados
@@ -249,6 +325,16 @@ public class AbacateBillingService implements IBillingService {
         }
     }
 
+    /**
+     * HMAC-SHA256 do corpo (UTF-8) com a chave pública da AbacatePay, em Base64.
+     * Também usado pelo FakeAbacatePayServer para assinar os webhooks simulados.
+     */
+    static String signPayload(String rawBody) throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(ABACATEPAY_PUBLIC_KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return Base64.getEncoder().encodeToString(mac.doFinal(rawBody.getBytes(StandardCharsets.UTF_8)));
+    }
+
     /**
      * Processa o webhook de pagamento da Abacate Pay.
      * Atualiza o campo paidAt do Billing quando o pagamento é confirmado.
@@ -327,6 +413,7 @@ public class AbacateBillingService implements IBillingService {
         billing.setPaidAt(paidAt);
         billing.setCouponsUsed(couponsUsedJson);
         billingRepository.save(billing);
+        eventPublisher.publishEvent(new BillingPaidEvent(billing.getStore().getId(), billing.getId()));
         
         log.info("Billing atualizado com sucesso. Billing ID: {}, PaidAt: {}, Cupons: {}", 
                 billing.getId(), paidAt, couponsUsedJson != null ? couponsUsedJson : "nenhum");
@@ -0,0 +1,9 @@
+package com.dalivim.suavitrine.suavitrine.services.billing;
+
+import java.util.UUID;
+
+/**
+ * Evento publicado quando o pagamento de um billing é confirmado (o plano da loja muda)
+ */
+public record BillingPaidEvent(UUID storeId, UUID billingId) {
+}
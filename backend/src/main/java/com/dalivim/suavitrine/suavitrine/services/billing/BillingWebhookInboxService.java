@@ -0,0 +1,249 @@
+package com.dalivim.suavitrine.suavitrine.services.billing;
+
+import com.dalivim.suavitrine.suavitrine.dtos.WebhookPayload;
+import com.dalivim.suavitrine.suavitrine.entities.billing.BillingWebhookInbox;
+import com.dalivim.suavitrine.suavitrine.infra.exceptions.IllegalUserArgumentException;
+import com.dalivim.suavitrine.suavitrine.repositories.BillingWebhookInboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.sentry.Sentry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Inbox durável dos webhooks da Abacate Pay (ver V31).
+ * O endpoint só grava o payload já validado e responde 200; uma thread própria
+ * processa os pendentes em ordem de chegada, cada um na sua transação. O
+ * webhook_id único torna entregas repetidas inofensivas e falhas são
+ * retentadas com backoff exponencial até billing.webhook.inbox.max-attempts.
+ */
+@Slf4j
+@Service
+public class BillingWebhookInboxService {
+
+    private final BillingWebhookInboxRepository inboxRepository;
+    private final AbacateBillingService abacateBillingService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final int maxAttempts;
+    private final Duration sweepInterval;
+
+    private final Counter receivedCounter;
+    private final Counter duplicateCounter;
+    private final Counter processedCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+
+    // Uma única thread processa a inbox; pedidos enquanto ela roda são agrupados num só
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "billing-webhook-inbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    // Próxima retentativa conhecida; evita consultar o banco a cada verificação agendada
+    private volatile Instant nextRetryAt;
+    private volatile Instant lastSweepAt = Instant.EPOCH;
+
+    public BillingWebhookInboxService(BillingWebhookInboxRepository inboxRepository,
+                                      AbacateBillingService abacateBillingService,
+                                      TransactionTemplate transactionTemplate,
+                                      ObjectMapper objectMapper,
+                                      ApplicationEventPublisher eventPublisher,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${billing.webhook.inbox.retry-backoff:10s}") Duration retryBackoff,
+                                      @Value("${billing.webhook.inbox.max-retry-backoff:30m}") Duration maxRetryBackoff,
+                                      @Value("${billing.webhook.inbox.max-attempts:10}") int maxAttempts,
+                                      @Value("${billing.webhook.inbox.sweep-interval:10m}") Duration sweepInterval) {
+        this.inboxRepository = inboxRepository;
+        this.abacateBillingService = abacateBillingService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+        this.maxAttempts = maxAttempts;
+        this.sweepInterval = sweepInterval;
+
+        this.receivedCounter = inboxCounter(meterRegistry, "received");
+        this.duplicateCounter = inboxCounter(meterRegistry, "duplicate");
+        this.processedCounter = inboxCounter(meterRegistry, "processed");
+        this.retriedCounter = inboxCounter(meterRegistry, "retried");
+        this.failedCounter = inboxCounter(meterRegistry, "failed");
+    }
+
+    /**
+     * Grava o webhook já validado na inbox. Retorna false se o webhook_id já
+     * tinha sido recebido (entrega repetida), o que não é um erro.
+     */
+    @Transactional
+    public boolean receive(String webhookId, String event, String rawPayload) {
+        boolean inserted = inboxRepository.insertIfAbsent(webhookId, event, rawPayload) > 0;
+        if (inserted) {
+            receivedCounter.increment();
+            eventPublisher.publishEvent(new BillingWebhookReceivedEvent(webhookId));
+        } else {
+            duplicateCounter.increment();
+        }
+        return inserted;
+    }
+
+    /**
+     * Dispara o processamento logo após o commit da gravação na inbox
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onWebhookReceived(BillingWebhookReceivedEvent event) {
+        wakeUp();
+    }
+
+    /**
+     * Na subida processa o que ficou pendente (ex.: webhooks recebidos antes de um restart)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        wakeUp();
+    }
+
+    /**
+     * Verificação leve: só vai ao banco quando há retentativa vencida ou na varredura periódica
+     */
+    @Scheduled(fixedDelayString = "${billing.webhook.inbox.poll-interval:5s}")
+    public void pollDueRetries() {
+        Instant now = Instant.now();
+        Instant retryAt = nextRetryAt;
+        if ((retryAt != null && !now.isBefore(retryAt)) || !now.isBefore(lastSweepAt.plus(sweepInterval))) {
+            wakeUp();
+        }
+    }
+
+    public void wakeUp() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                drainScheduled.set(false);
+                drain();
+            });
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private void drain() {
+        lastSweepAt = Instant.now();
+        try {
+            while (processNext()) {
+                // continua até não haver pendentes vencidos
+            }
+            nextRetryAt = inboxRepository.findNextAttemptAt(BillingWebhookInbox.Status.PENDING).orElse(null);
+        } catch (Exception e) {
+            Sentry.captureException(e);
+            log.error("Erro ao processar a inbox de webhooks: {}", e.getMessage(), e);
+            nextRetryAt = Instant.now().plus(retryBackoff);
+        }
+    }
+
+    /**
+     * Processa o próximo webhook vencido. Retorna false quando não há mais nenhum.
+     */
+    boolean processNext() {
+        AtomicReference<BillingWebhookInbox> current = new AtomicReference<>();
+        try {
+            Boolean processed = transactionTemplate.execute(status -> inboxRepository.lockNextDue()
+                    .map(entry -> {
+                        current.set(entry);
+                        abacateBillingService.processWebhook(parse(entry.getPayload()));
+                        entry.setStatus(BillingWebhookInbox.Status.PROCESSED);
+                        entry.setAttempts(entry.getAttempts() + 1);
+                        entry.setProcessedAt(Instant.now());
+                        entry.setLastError(null);
+                        inboxRepository.save(entry);
+                        return true;
+                    })
+                    .orElse(false));
+            if (Boolean.TRUE.equals(processed)) {
+                processedCounter.increment();
+                log.info("Webhook processado pela inbox. Webhook ID: {}", current.get().getWebhookId());
+                return true;
+            }
+            return false;
+        } catch (RuntimeException e) {
+            if (current.get() == null) {
+                throw e;
+            }
+            recordFailure(current.get().getId(), e);
+            return true;
+        }
+    }
+
+    /**
+     * Registra a falha numa transação nova (a do processamento foi revertida) e agenda a retentativa
+     */
+    void recordFailure(Long inboxId, RuntimeException error) {
+        transactionTemplate.executeWithoutResult(status -> inboxRepository.findById(inboxId).ifPresent(entry -> {
+            int attempts = entry.getAttempts() + 1;
+            entry.setAttempts(attempts);
+            entry.setLastError(error.getClass().getSimpleName() + ": " + error.getMessage());
+
+            // Payload inválido não melhora com retentativas
+            boolean permanent = error instanceof IllegalUserArgumentException;
+            if (permanent || attempts >= maxAttempts) {
+                entry.setStatus(BillingWebhookInbox.Status.FAILED);
+                failedCounter.increment();
+                Sentry.captureException(error);
+                log.error("Webhook descartado após {} tentativa(s). Webhook ID: {}, erro: {}",
+                        attempts, entry.getWebhookId(), error.getMessage(), error);
+            } else {
+                entry.setNextAttemptAt(Instant.now().plus(backoff(attempts)));
+                retriedCounter.increment();
+                log.warn("Falha ao processar webhook (tentativa {}), nova tentativa em {}. Webhook ID: {}, erro: {}",
+                        attempts, entry.getNextAttemptAt(), entry.getWebhookId(), error.getMessage());
+            }
+            inboxRepository.save(entry);
+        }));
+    }
+
+    Duration backoff(int attempts) {
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : delay;
+    }
+
+    private WebhookPayload parse(String payload) {
+        try {
+            return objectMapper.readValue(payload, WebhookPayload.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalUserArgumentException("Payload de webhook inválido: " + e.getOriginalMessage());
+        }
+    }
+
+    private static Counter inboxCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("billing.webhook.inbox")
+                .description("Webhooks da Abacate Pay por resultado na inbox")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
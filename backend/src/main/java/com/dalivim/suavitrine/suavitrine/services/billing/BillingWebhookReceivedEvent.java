@@ -0,0 +1,7 @@
+package com.dalivim.suavitrine.suavitrine.services.billing;
+
+/**
+ * Evento publicado quando um webhook novo é gravado na inbox
+ */
+public record BillingWebhookReceivedEvent(String webhookId) {
+}
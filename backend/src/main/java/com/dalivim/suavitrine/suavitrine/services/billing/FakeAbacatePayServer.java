@@ -0,0 +1,298 @@
+package com.dalivim.suavitrine.suavitrine.services.billing;
+
+import com.dalivim.suavitrine.suavitrine.dtos.CreateAbacateBilling;
+import com.dalivim.suavitrine.suavitrine.dtos.CreateAbacateBillingResponse;
+import com.dalivim.suavitrine.suavitrine.dtos.WebhookPayload;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kong.unirest.core.HttpResponse;
+import kong.unirest.core.Unirest;
+import kong.unirest.core.UnirestInstance;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor local que imita a API da Abacate Pay nos perfis test e benchmark.
+ * Atende POST /v1/billing/create e, após um atraso aleatório, envia o webhook
+ * billing.paid assinado (mesmo HMAC da Abacate) para o nosso endpoint de webhook.
+ * Latência, taxa de erro e entregas repetidas são configuráveis em abacate.fake.*;
+ * o jitter no atraso faz webhooks de billings diferentes (e as repetições)
+ * chegarem fora de ordem.
+ * Para usar: abacate.pay.url=http://localhost:${abacate.fake.port}.
+ */
+@Slf4j
+@Component
+@Profile({"test", "benchmark"})
+public class FakeAbacatePayServer {
+
+    private static final String CREATE_BILLING_PATH = "/v1/billing/create";
+
+    private final ObjectMapper objectMapper;
+
+    private final int port;
+    private final int threads;
+    private final Duration latency;
+    private final Duration latencyJitter;
+    private final double errorRate;
+    private final boolean autoPay;
+    private final Duration webhookDelay;
+    private final Duration webhookJitter;
+    private final double duplicateRate;
+    private final int maxDeliveryAttempts;
+    private final String webhookUrl;
+    private final String webhookSecret;
+
+    private final Counter billingsCreated;
+    private final Counter billingsFailed;
+    private final Counter webhooksDelivered;
+    private final Counter webhooksDuplicated;
+    private final Counter webhooksFailed;
+
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+    private ScheduledExecutorService webhookScheduler;
+    private UnirestInstance webhookClient;
+
+    public FakeAbacatePayServer(ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${abacate.fake.port:18090}") int port,
+                                @Value("${abacate.fake.threads:8}") int threads,
+                                @Value("${abacate.fake.latency:100ms}") Duration latency,
+                                @Value("${abacate.fake.latency-jitter:100ms}") Duration latencyJitter,
+                                @Value("${abacate.fake.error-rate:0}") double errorRate,
+                                @Value("${abacate.fake.auto-pay:true}") boolean autoPay,
+                                @Value("${abacate.fake.webhook-delay:500ms}") Duration webhookDelay,
+                                @Value("${abacate.fake.webhook-jitter:2s}") Duration webhookJitter,
+                                @Value("${abacate.fake.duplicate-rate:0}") double duplicateRate,
+                                @Value("${abacate.fake.max-delivery-attempts:3}") int maxDeliveryAttempts,
+                                @Value("${abacate.fake.webhook-url:http://localhost:${server.port:8080}/api/v1/billing/webhook}") String webhookUrl,
+                                @Value("${abacate.pay.webhook-secret}") String webhookSecret) {
+        this.objectMapper = objectMapper;
+        this.port = port;
+        this.threads = threads;
+        this.latency = latency;
+        this.latencyJitter = latencyJitter;
+        this.errorRate = errorRate;
+        this.autoPay = autoPay;
+        this.webhookDelay = webhookDelay;
+        this.webhookJitter = webhookJitter;
+        this.duplicateRate = duplicateRate;
+        this.maxDeliveryAttempts = maxDeliveryAttempts;
+        this.webhookUrl = webhookUrl;
+        this.webhookSecret = webhookSecret;
+
+        this.billingsCreated = fakeCounter(meterRegistry, "billing", "created");
+        this.billingsFailed = fakeCounter(meterRegistry, "billing", "simulated_error");
+        this.webhooksDelivered = fakeCounter(meterRegistry, "webhook", "delivered");
+        this.webhooksDuplicated = fakeCounter(meterRegistry, "webhook", "duplicated");
+        this.webhooksFailed = fakeCounter(meterRegistry, "webhook", "failed");
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        AtomicInteger threadCount = new AtomicInteger();
+        requestExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "fake-abacate-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        webhookScheduler = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "fake-abacate-webhook-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        webhookClient = Unirest.spawnInstance();
+
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(requestExecutor);
+        server.createContext(CREATE_BILLING_PATH, this::handleCreateBilling);
+        server.start();
+        log.warn("Servidor fake da Abacate Pay ouvindo em http://localhost:{} (webhooks para {})", port, webhookUrl);
+    }
+
+    @PreDestroy
+    void stop() {
+        server.stop(0);
+        webhookScheduler.shutdownNow();
+        requestExecutor.shutdownNow();
+        webhookClient.close();
+    }
+
+    private void handleCreateBilling(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream body = exchange.getRequestBody()) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, new CreateAbacateBillingResponse(null, "Método não suportado"));
+                return;
+            }
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization == null || !authorization.startsWith("Bearer ")) {
+                send(exchange, 401, new CreateAbacateBillingResponse(null, "Token de autenticação inválido"));
+                return;
+            }
+
+            CreateAbacateBilling request = objectMapper.readValue(body, CreateAbacateBilling.class);
+            sleep(randomDelay(latency, latencyJitter));
+
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                billingsFailed.increment();
+                send(exchange, 500, new CreateAbacateBillingResponse(null, "Erro simulado pelo servidor fake"));
+                return;
+            }
+
+            String billingId = "bill_" + UUID.randomUUID().toString().replace("-", "");
+            CreateAbacateBillingResponse.BillingData data = billingData(billingId, request);
+            billingsCreated.increment();
+            send(exchange, 200, new CreateAbacateBillingResponse(data, null));
+
+            if (autoPay) {
+                String payload = objectMapper.writeValueAsString(paidWebhook(billingId, request, data.amount()));
+                scheduleDelivery(payload, 1);
+                if (ThreadLocalRandom.current().nextDouble() < duplicateRate) {
+                    // Mesma entrega (mesmo id) com atraso independente: pode chegar antes da original
+                    webhooksDuplicated.increment();
+                    scheduleDelivery(payload, 1);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Erro no servidor fake da Abacate Pay: {}", e.getMessage(), e);
+        }
+    }
+
+    private CreateAbacateBillingResponse.BillingData billingData(String billingId, CreateAbacateBilling request) {
+        int amount = request.products().stream().mapToInt(p -> p.price() * p.quantity()).sum();
+        var products = request.products().stream()
+                .map(p -> new CreateAbacateBillingResponse.Product("prod_" + UUID.randomUUID(), p.externalId(), p.quantity()))
+                .toList();
+        var customer = request.customer() == null ? null : new CreateAbacateBillingResponse.Customer(
+                "cust_" + UUID.randomUUID(),
+                new CreateAbacateBillingResponse.CustomerMetadata(request.customer().name(), request.customer().cellphone(),
+                        request.customer().email(), request.customer().taxId()));
+
+        return CreateAbacateBillingResponse.BillingData.builder()
+                .id(billingId)
+                .url("http://localhost:" + port + "/pay/" + billingId)
+                .amount(amount)
+                .status("PENDING")
+                .devMode(true)
+                .methods(request.methods())
+                .products(products)
+                .frequency(request.frequency())
+                .customer(customer)
+                .allowCoupons(request.allowCoupons())
+                .coupons(request.coupons())
+                .build();
+    }
+
+    private WebhookPayload paidWebhook(String billingId, CreateAbacateBilling request, int amount) {
+        var products = request.products().stream()
+                .map(p -> new WebhookPayload.Product(p.externalId(), "prod_" + UUID.randomUUID(), p.quantity()))
+                .toList();
+        var customer = request.customer() == null ? null : new WebhookPayload.Customer(
+                "cust_" + UUID.randomUUID(),
+                new WebhookPayload.CustomerMetadata(request.customer().cellphone(), request.customer().email(),
+                        request.customer().name(), request.customer().taxId()));
+
+        return WebhookPayload.builder()
+                .id("log_" + UUID.randomUUID().toString().replace("-", ""))
+                .event("billing.paid")
+                .devMode(true)
+                .data(new WebhookPayload.WebhookData(
+                        new WebhookPayload.Payment(amount, 80, "PIX"),
+                        WebhookPayload.Billing.builder()
+                                .id(billingId)
+                                .amount(amount)
+                                .paidAmount(amount)
+                                .couponsUsed(List.of())
+                                .customer(customer)
+                                .frequency(request.frequency())
+                                .kind(List.of("PIX"))
+                                .products(products)
+                                .status("PAID")
+                                .build()))
+                .build();
+    }
+
+    private void scheduleDelivery(String payload, int attempt) {
+        long delayMillis = attempt == 1
+                ? randomDelay(webhookDelay, webhookJitter).toMillis()
+                : webhookDelay.toMillis() * (1L << Math.min(attempt - 1, 10));
+        webhookScheduler.schedule(() -> deliver(payload, attempt), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Envia o webhook assinado; como a Abacate, reenvia quando a resposta não é 2xx
+     */
+    private void deliver(String payload, int attempt) {
+        try {
+            HttpResponse<String> response = webhookClient.post(webhookUrl)
+                    .queryString("webhookSecret", webhookSecret)
+                    .header("Content-Type", "application/json")
+                    .header("X-Webhook-Signature", AbacateBillingService.signPayload(payload))
+                    .body(payload)
+                    .asString();
+            if (response.isSuccess()) {
+                webhooksDelivered.increment();
+                return;
+            }
+            retryOrGiveUp(payload, attempt, "Status " + response.getStatus());
+        } catch (Exception e) {
+            retryOrGiveUp(payload, attempt, e.getMessage());
+        }
+    }
+
+    private void retryOrGiveUp(String payload, int attempt, String reason) {
+        if (attempt < maxDeliveryAttempts) {
+            scheduleDelivery(payload, attempt + 1);
+            return;
+        }
+        webhooksFailed.increment();
+        log.warn("Servidor fake desistiu do webhook após {} tentativa(s): {}", attempt, reason);
+    }
+
+    private void send(HttpExchange exchange, int status, CreateAbacateBillingResponse body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static Duration randomDelay(Duration base, Duration jitter) {
+        long jitterMillis = jitter.toMillis() > 0 ? ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1) : 0;
+        return base.plusMillis(jitterMillis);
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Counter fakeCounter(MeterRegistry meterRegistry, String kind, String result) {
+        return Counter.builder("abacate.fake." + kind)
+                .description("Operações do servidor fake da Abacate Pay")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
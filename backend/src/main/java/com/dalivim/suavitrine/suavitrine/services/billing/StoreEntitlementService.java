@@ -0,0 +1,100 @@
+package com.dalivim.suavitrine.suavitrine.services.billing;
+
+import com.dalivim.suavitrine.suavitrine.entities.billing.Billing;
+import com.dalivim.suavitrine.suavitrine.entities.billing.PayingPlan;
+import com.dalivim.suavitrine.suavitrine.infra.cache.ExpiringLruCache;
+import com.dalivim.suavitrine.suavitrine.repositories.BillingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Plano ativo de cada loja, em cache para tirar a consulta de billing do caminho
+ * de leitura (toda resposta de loja, inclusive a vitrine pública, exibe o plano).
+ * Uma entrada vale até o expiresAt do plano (limitado ao TTL do cache) e é
+ * invalidada quando um pagamento é confirmado ({@link BillingPaidEvent}).
+ */
+@Service
+@RequiredArgsConstructor
+public class StoreEntitlementService {
+
+    private final BillingRepository billingRepository;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Limita quanto tempo outras instâncias podem demorar a enxergar um pagamento
+     * confirmado (a invalidação pelo evento é local)
+     */
+    @Value("${billing.entitlement.cache-ttl:10m}")
+    private Duration cacheTtl;
+
+    @Value("${billing.entitlement.cache-max-entries:10000}")
+    private int cacheMaxEntries;
+
+    // storeId -> plano ativo; Optional.empty() quando a loja não tem plano ativo
+    private ExpiringLruCache<UUID, Optional<Entitlement>> entitlementCache;
+
+    @PostConstruct
+    void initEntitlementCache() {
+        entitlementCache = new ExpiringLruCache<UUID, Optional<Entitlement>>(cacheMaxEntries, cacheTtl)
+                .bindTo(meterRegistry, "store-entitlements");
+    }
+
+    /**
+     * Plano ativo (pago e não expirado) da loja
+     */
+    public Optional<Entitlement> getActivePlan(UUID storeId) {
+        Optional<Entitlement> cached = entitlementCache.getIfPresent(storeId);
+        if (cached != null && cached.map(e -> e.isActiveAt(Instant.now())).orElse(true)) {
+            return cached;
+        }
+
+        Optional<Entitlement> entitlement = billingRepository.findActivePlansByStoreId(storeId, PageRequest.of(0, 1))
+                .stream()
+                .findFirst()
+                .map(Entitlement::from);
+
+        Instant cacheUntil = Instant.now().plus(cacheTtl);
+        if (entitlement.isPresent() && entitlement.get().expiresAt() != null
+                && entitlement.get().expiresAt().isBefore(cacheUntil)) {
+            cacheUntil = entitlement.get().expiresAt();
+        }
+        entitlementCache.put(storeId, entitlement, cacheUntil);
+        return entitlement;
+    }
+
+    public Optional<PayingPlan> getActivePayingPlan(UUID storeId) {
+        return getActivePlan(storeId).map(Entitlement::plan);
+    }
+
+    /**
+     * Invalida após o commit, para que a próxima leitura já enxergue o plano pago
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBillingPaid(BillingPaidEvent event) {
+        entitlementCache.invalidate(event.storeId());
+    }
+
+    public record Entitlement(PayingPlan plan, Instant expiresAt) {
+
+        static Entitlement from(Billing billing) {
+            return new Entitlement(billing.getPayingPlan(), billing.getExpiresAt());
+        }
+
+        boolean isActiveAt(Instant instant) {
+            return expiresAt == null || instant.isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+-- Migration para criar as tabelas de rollup de métricas (horário e mensal)
+-- V27__create_metrics_rollup_tables.sql
+-- O rollup diário continua sendo a tabela store_metrics
+
+-- Criar tabela store_metrics_hourly
+CREATE TABLE store_metrics_hourly (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    store_id UUID NOT NULL REFERENCES store(id) ON DELETE CASCADE,
+    hour TIMESTAMP WITH TIME ZONE NOT NULL,
+    accesses INTEGER NOT NULL DEFAULT 0,
+    product_clicks INTEGER NOT NULL DEFAULT 0,
+    product_conversions INTEGER NOT NULL DEFAULT 0,
+    category_clicks INTEGER NOT NULL DEFAULT 0,
+    category_accesses INTEGER NOT NULL DEFAULT 0,
+    top_products TEXT,
+    top_categories TEXT,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+-- Criar tabela store_metrics_monthly
+CREATE TABLE store_metrics_monthly (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    store_id UUID NOT NULL REFERENCES store(id) ON DELETE CASCADE,
+    month DATE NOT NULL,
+    accesses BIGINT NOT NULL DEFAULT 0,
+    product_clicks BIGINT NOT NULL DEFAULT 0,
+    product_conversions BIGINT NOT NULL DEFAULT 0,
+    category_clicks BIGINT NOT NULL DEFAULT 0,
+    category_accesses BIGINT NOT NULL DEFAULT 0,
+    top_products TEXT,
+    top_categories TEXT,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+-- Índices únicos (usados pelos upserts do rollup e pelas consultas por período)
+CREATE UNIQUE INDEX idx_store_metrics_hourly_store_hour_unique ON store_metrics_hourly(store_id, hour);
+CREATE UNIQUE INDEX idx_store_metrics_monthly_store_month_unique ON store_metrics_monthly(store_id, month);
+
+-- Índices para os jobs de rollup, que processam todas as lojas de uma hora/mês
+CREATE INDEX idx_store_metrics_hourly_hour ON store_metrics_hourly(hour);
+CREATE INDEX idx_store_metrics_monthly_month ON store_metrics_monthly(month);
+
+-- Backfill dos contadores mensais a partir do histórico diário
+-- (os tops mensais são preenchidos pelo job de rollup)
+INSERT INTO store_metrics_monthly (store_id, month, accesses, product_clicks, product_conversions, category_clicks, category_accesses)
+SELECT store_id, CAST(date_trunc('month', date) AS DATE),
+       SUM(daily_accesses), SUM(product_clicks), SUM(product_conversions), SUM(category_clicks), SUM(category_accesses)
+FROM store_metrics
+GROUP BY store_id, date_trunc('month', date);
+
+-- Backfill das horas recentes (o dashboard usa horas apenas em janelas curtas)
+INSERT INTO store_metrics_hourly (store_id, hour, accesses, product_clicks, product_conversions, category_clicks, category_accesses)
+SELECT store_id, date_trunc('hour', created_at),
+       COUNT(*) FILTER (WHERE event_type = 'STORE_ACCESS'),
+       COUNT(*) FILTER (WHERE event_type = 'PRODUCT_CLICK'),
+       COUNT(*) FILTER (WHERE event_type = 'PRODUCT_CONVERSION'),
+       COUNT(*) FILTER (WHERE event_type = 'CATEGORY_CLICK'),
+       COUNT(*) FILTER (WHERE event_type = 'CATEGORY_ACCESS')
+FROM store_events
+WHERE created_at >= NOW() - INTERVAL '3 days'
+GROUP BY store_id, date_trunc('hour', created_at);
+
+-- Comentários para documentação
+COMMENT ON TABLE store_metrics_hourly IS 'Rollup horário de store_events, mantido pelo MetricsRollupJob';
+COMMENT ON TABLE store_metrics_monthly IS 'Rollup mensal de store_metrics, mantido pelo MetricsRollupJob';
+
+COMMENT ON COLUMN store_metrics_hourly.hour IS 'Início da hora (UTC)';
+COMMENT ON COLUMN store_metrics_monthly.month IS 'Primeiro dia do mês (UTC)';
+COMMENT ON COLUMN store_metrics_hourly.top_products IS 'JSON com sketch de top produtos da hora';
+COMMENT ON COLUMN store_metrics_monthly.top_products IS 'JSON com sketch de top produtos do mês';
@@ -0,0 +1,62 @@
+-- Migration para particionar store_events por mês (created_at)
+-- V28__partition_store_events_by_month.sql
+-- Partições futuras e retenção são mantidas pelo StoreEventPartitionJob
+
+-- Renomear a tabela atual para copiar os dados para a nova tabela particionada
+ALTER TABLE store_events RENAME TO store_events_legacy;
+ALTER INDEX store_events_pkey RENAME TO store_events_legacy_pkey;
+
+-- Criar tabela store_events particionada (a PK precisa incluir a chave de partição)
+CREATE TABLE store_events (
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    store_id UUID NOT NULL REFERENCES store(id) ON DELETE CASCADE,
+    event_type VARCHAR(50) NOT NULL,
+    entity_id UUID,
+    entity_type VARCHAR(50),
+    metadata TEXT,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Partição default: só recebe eventos fora das partições mensais (deve ficar vazia)
+CREATE TABLE store_events_default PARTITION OF store_events DEFAULT;
+
+-- Criar partições mensais (UTC) desde o evento mais antigo até 3 meses à frente
+DO $$
+DECLARE
+    month_start DATE;
+    last_month DATE := CAST(date_trunc('month', NOW() AT TIME ZONE 'UTC') AS DATE) + INTERVAL '3 months';
+BEGIN
+    SELECT COALESCE(CAST(date_trunc('month', MIN(created_at) AT TIME ZONE 'UTC') AS DATE),
+                    CAST(date_trunc('month', NOW() AT TIME ZONE 'UTC') AS DATE))
+    INTO month_start
+    FROM store_events_legacy;
+
+    WHILE month_start <= last_month LOOP
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF store_events FOR VALUES FROM (%L) TO (%L)',
+            'store_events_p' || to_char(month_start, 'YYYYMM'),
+            month_start::TEXT || ' 00:00:00+00',
+            (month_start + INTERVAL '1 month')::DATE::TEXT || ' 00:00:00+00');
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+-- Copiar os eventos existentes e remover a tabela antiga
+INSERT INTO store_events (id, store_id, event_type, entity_id, entity_type, metadata, created_at)
+SELECT id, store_id, event_type, entity_id, entity_type, metadata, created_at
+FROM store_events_legacy;
+
+DROP TABLE store_events_legacy;
+
+-- Índices (criados em todas as partições). Das cinco secundárias da V16 ficam apenas
+-- as usadas pelas consultas atuais: contadores/top por loja e jobs por intervalo de tempo
+CREATE INDEX idx_store_events_store_type_date ON store_events(store_id, event_type, created_at);
+CREATE INDEX idx_store_events_created_at ON store_events USING BRIN (created_at);
+
+-- Comentários para documentação
+COMMENT ON TABLE store_events IS 'Eventos individuais de métricas, particionados por mês de created_at (UTC)';
+COMMENT ON COLUMN store_events.event_type IS 'Tipo do evento: STORE_ACCESS, PRODUCT_CLICK, PRODUCT_CONVERSION, CATEGORY_CLICK, CATEGORY_ACCESS';
+COMMENT ON COLUMN store_events.entity_id IS 'ID da entidade relacionada (produto, categoria ou loja)';
+COMMENT ON COLUMN store_events.entity_type IS 'Tipo da entidade: STORE, PRODUCT, CATEGORY';
+COMMENT ON COLUMN store_events.metadata IS 'Dados adicionais do evento em formato JSON';
@@ -0,0 +1,8 @@
+-- Índices para as checagens de vínculo usuário/loja (StoreAccessService)
+-- V29__add_store_user_membership_indexes.sql
+
+-- Role ativa de um usuário numa loja: WHERE store_id = ? AND user_id = ? AND deleted_at IS NULL
+CREATE INDEX IF NOT EXISTS idx_store_user_store_user_active ON store_user(store_id, user_id) WHERE deleted_at IS NULL;
+
+-- Lojas de um usuário (getUserStores / getCurrentUserStore)
+CREATE INDEX IF NOT EXISTS idx_store_user_user_id ON store_user(user_id);
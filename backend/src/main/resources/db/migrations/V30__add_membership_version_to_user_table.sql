@@ -0,0 +1,4 @@
+-- Versão dos vínculos do usuário com lojas (V30__add_membership_version_to_user_table.sql)
+-- Incrementada a cada mudança de vínculo; tokens com versão antiga deixam de
+-- valer para autorização e caem na consulta ao banco
+ALTER TABLE "user" ADD COLUMN membership_version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,23 @@
+-- Inbox durável dos webhooks da Abacate Pay (V31__create_billing_webhook_inbox_table.sql)
+-- O endpoint só grava o payload já validado; o processamento é feito em ordem de chegada
+-- pelo BillingWebhookInboxService, com retentativas e backoff
+CREATE TABLE billing_webhook_inbox (
+    id BIGSERIAL PRIMARY KEY,
+    webhook_id VARCHAR(255) NOT NULL,
+    event VARCHAR(100),
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    last_error TEXT,
+    received_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    processed_at TIMESTAMP WITH TIME ZONE,
+    CONSTRAINT uk_billing_webhook_inbox_webhook_id UNIQUE (webhook_id)
+);
+
+-- Fila de pendentes (o índice só contém as linhas ainda não processadas)
+CREATE INDEX idx_billing_webhook_inbox_pending ON billing_webhook_inbox(next_attempt_at, id) WHERE status = 'PENDING';
+
+COMMENT ON TABLE billing_webhook_inbox IS 'Webhooks da Abacate Pay recebidos e com assinatura validada, aguardando ou já processados';
+COMMENT ON COLUMN billing_webhook_inbox.webhook_id IS 'ID do webhook na Abacate Pay (idempotência: entregas repetidas são ignoradas)';
+COMMENT ON COLUMN billing_webhook_inbox.status IS 'PENDING, PROCESSED ou FAILED (esgotou as tentativas)';
@@ -0,0 +1,18 @@
+-- Fila durável de objetos a remover do storage (V32__create_storage_deletion_queue_table.sql)
+-- As KEYs entram na mesma transação que altera a entidade (rollback desfaz o pedido) e são
+-- removidas em lotes com DeleteObjects pelo StorageDeletionQueueService, com retentativas e backoff
+CREATE TABLE storage_deletion_queue (
+    id BIGSERIAL PRIMARY KEY,
+    object_key VARCHAR(1024) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    last_error TEXT,
+    enqueued_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+-- Fila de pendentes (o índice só contém as linhas ainda não removidas)
+CREATE INDEX idx_storage_deletion_queue_pending ON storage_deletion_queue(next_attempt_at, id) WHERE status = 'PENDING';
+
+COMMENT ON TABLE storage_deletion_queue IS 'KEYs de objetos do storage aguardando remoção; a linha é apagada quando o objeto é removido';
+COMMENT ON COLUMN storage_deletion_queue.status IS 'PENDING ou FAILED (esgotou as tentativas)';
@@ -0,0 +1,17 @@
+-- Checkpoint da coleta de lixo do storage (V33__create_storage_gc_checkpoint_table.sql)
+-- Uma única linha: de onde a listagem do bucket continua e a lease da instância que está rodando
+CREATE TABLE storage_gc_checkpoint (
+    id SMALLINT PRIMARY KEY DEFAULT 1,
+    prefix VARCHAR(255),
+    start_after VARCHAR(1024),
+    locked_until TIMESTAMP WITH TIME ZONE,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    CONSTRAINT ck_storage_gc_checkpoint_single_row CHECK (id = 1)
+);
+
+INSERT INTO storage_gc_checkpoint (id) VALUES (1);
+
+COMMENT ON TABLE storage_gc_checkpoint IS 'Progresso da reconciliação entre o bucket e as KEYs referenciadas no banco (StorageGarbageCollectionService)';
+COMMENT ON COLUMN storage_gc_checkpoint.prefix IS 'Prefixo sendo listado; NULL começa um ciclo novo pelo primeiro prefixo';
+COMMENT ON COLUMN storage_gc_checkpoint.start_after IS 'Última KEY já reconciliada no prefixo (ListObjectsV2 StartAfter)';
+COMMENT ON COLUMN storage_gc_checkpoint.locked_until IS 'Lease da execução em andamento (evita duas instâncias ao mesmo tempo)';
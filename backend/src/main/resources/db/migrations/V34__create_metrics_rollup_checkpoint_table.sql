@@ -0,0 +1,13 @@
+-- Checkpoint do rollup horário (V34__create_metrics_rollup_checkpoint_table.sql)
+-- Uma única linha: até onde store_metrics_hourly já foi consolidado a partir de store_events
+CREATE TABLE metrics_rollup_checkpoint (
+    id SMALLINT PRIMARY KEY DEFAULT 1,
+    hourly_rolled_up_until TIMESTAMP WITH TIME ZONE,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    CONSTRAINT ck_metrics_rollup_checkpoint_single_row CHECK (id = 1)
+);
+
+INSERT INTO metrics_rollup_checkpoint (id) VALUES (1);
+
+COMMENT ON TABLE metrics_rollup_checkpoint IS 'Progresso do rollup horário (MetricsRollupJob)';
+COMMENT ON COLUMN metrics_rollup_checkpoint.hourly_rolled_up_until IS 'Horas anteriores a este instante já foram consolidadas; NULL recomeça pelo início da retenção do rollup horário';
@@ -0,0 +1,38 @@
+-- Referências ao storage guardadas só como KEY (V35__normalize_storage_keys.sql)
+-- URLs completas antigas viram a KEY: do primeiro prefixo conhecido até antes da query string.
+-- Com isso a coleta de lixo e o upload direto conferem KEYs por igualdade, usando os índices abaixo.
+UPDATE product_image
+SET url = substring(url FROM '/((?:products|categories|stores/banners|stores/logos)/[^?#]*)')
+WHERE url LIKE '%://%' AND url ~ '/(products|categories|stores/banners|stores/logos)/';
+
+UPDATE category
+SET image_url = substring(image_url FROM '/((?:products|categories|stores/banners|stores/logos)/[^?#]*)')
+WHERE image_url LIKE '%://%' AND image_url ~ '/(products|categories|stores/banners|stores/logos)/';
+
+UPDATE product_variation
+SET image_url = substring(image_url FROM '/((?:products|categories|stores/banners|stores/logos)/[^?#]*)')
+WHERE image_url LIKE '%://%' AND image_url ~ '/(products|categories|stores/banners|stores/logos)/';
+
+UPDATE store
+SET logo_url = substring(logo_url FROM '/((?:products|categories|stores/banners|stores/logos)/[^?#]*)')
+WHERE logo_url LIKE '%://%' AND logo_url ~ '/(products|categories|stores/banners|stores/logos)/';
+
+UPDATE store
+SET banner_desktop_url = substring(banner_desktop_url FROM '/((?:products|categories|stores/banners|stores/logos)/[^?#]*)')
+WHERE banner_desktop_url LIKE '%://%' AND banner_desktop_url ~ '/(products|categories|stores/banners|stores/logos)/';
+
+UPDATE store
+SET banner_tablet_url = substring(banner_tablet_url FROM '/((?:products|categories|stores/banners|stores/logos)/[^?#]*)')
+WHERE banner_tablet_url LIKE '%://%' AND banner_tablet_url ~ '/(products|categories|stores/banners|stores/logos)/';
+
+UPDATE store
+SET banner_mobile_url = substring(banner_mobile_url FROM '/((?:products|categories|stores/banners|stores/logos)/[^?#]*)')
+WHERE banner_mobile_url LIKE '%://%' AND banner_mobile_url ~ '/(products|categories|stores/banners|stores/logos)/';
+
+CREATE INDEX idx_product_image_url ON product_image(url);
+CREATE INDEX idx_category_image_url ON category(image_url) WHERE image_url IS NOT NULL;
+CREATE INDEX idx_product_variation_image_url ON product_variation(image_url) WHERE image_url IS NOT NULL;
+CREATE INDEX idx_store_logo_url ON store(logo_url) WHERE logo_url IS NOT NULL;
+CREATE INDEX idx_store_banner_desktop_url ON store(banner_desktop_url) WHERE banner_desktop_url IS NOT NULL;
+CREATE INDEX idx_store_banner_tablet_url ON store(banner_tablet_url) WHERE banner_tablet_url IS NOT NULL;
+CREATE INDEX idx_store_banner_mobile_url ON store(banner_mobile_url) WHERE banner_mobile_url IS NOT NULL;
@@ -0,0 +1,8 @@
+-- KEYs do upload direto já anexadas a uma entidade (V36__create_storage_upload_claim_table.sql)
+-- A chave primária garante que duas requisições concorrentes não anexem o mesmo upload
+CREATE TABLE storage_upload_claim (
+    object_key VARCHAR(1024) PRIMARY KEY,
+    claimed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+COMMENT ON TABLE storage_upload_claim IS 'Uso único das KEYs do upload direto (ImageService.verifyUploadedImage)';
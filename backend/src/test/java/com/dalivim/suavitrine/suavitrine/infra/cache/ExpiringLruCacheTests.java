@@ -0,0 +1,84 @@
+package com.dalivim.suavitrine.suavitrine.infra.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiringLruCacheTests {
+
+	private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+
+	@Test
+	void evictsLeastRecentlyUsedEntryWhenFull() {
+		ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2, Duration.ofMinutes(1), clock);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		cache.getIfPresent("a");
+		cache.put("c", "3");
+
+		assertThat(cache.getIfPresent("a")).isEqualTo("1");
+		assertThat(cache.getIfPresent("b")).isNull();
+		assertThat(cache.getIfPresent("c")).isEqualTo("3");
+		assertThat(cache.evictionCount()).isEqualTo(1);
+	}
+
+	@Test
+	void expiresEntriesAtTheirOwnDeadline() {
+		ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, Duration.ofMinutes(10), clock);
+		cache.put("short", "1", clock.instant().plusSeconds(30));
+		cache.put("default", "2");
+
+		clock.advance(Duration.ofSeconds(30));
+
+		assertThat(cache.getIfPresent("short")).isNull();
+		assertThat(cache.getIfPresent("default")).isEqualTo("2");
+		assertThat(cache.hitCount()).isEqualTo(1);
+		assertThat(cache.missCount()).isEqualTo(1);
+	}
+
+	@Test
+	void invalidatesByPredicate() {
+		ExpiringLruCache<String, Integer> cache = new ExpiringLruCache<>(10, Duration.ofMinutes(1), clock);
+		cache.put("a", 1);
+		cache.put("b", 2);
+
+		cache.invalidateIf((key, value) -> value == 2);
+
+		assertThat(cache.size()).isEqualTo(1);
+		assertThat(cache.getIfPresent("b")).isNull();
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private Instant now;
+
+		MutableClock(Instant now) {
+			this.now = now;
+		}
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneOffset getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package com.dalivim.suavitrine.suavitrine.infra.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTests {
+
+	private final AtomicLong nanos = new AtomicLong(1_000_000_000L);
+
+	@Test
+	void allowsBurstThenRejectsWithRetryAfter() {
+		RateLimiter limiter = new RateLimiter(60, Duration.ofMinutes(1), 5, nanos::get);
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(limiter.tryAcquire("10.0.0.1")).isZero();
+		}
+
+		assertThat(limiter.tryAcquire("10.0.0.1")).isEqualTo(Duration.ofSeconds(1));
+		assertThat(limiter.tryAcquire("10.0.0.2")).isZero();
+	}
+
+	@Test
+	void refillsAtTheConfiguredRateAndPurgesIdleKeys() {
+		RateLimiter limiter = new RateLimiter(60, Duration.ofMinutes(1), 1, nanos::get);
+		assertThat(limiter.tryAcquire("10.0.0.1")).isZero();
+		assertThat(limiter.tryAcquire("10.0.0.1")).isPositive();
+
+		nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+
+		assertThat(limiter.tryAcquire("10.0.0.1")).isZero();
+		assertThat(limiter.size()).isEqualTo(1);
+
+		nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+
+		assertThat(limiter.purgeIdle()).isEqualTo(1);
+		assertThat(limiter.size()).isZero();
+	}
+}
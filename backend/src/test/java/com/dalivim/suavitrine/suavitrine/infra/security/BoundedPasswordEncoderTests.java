@@ -0,0 +1,96 @@
+package com.dalivim.suavitrine.suavitrine.infra.security;
+
+import com.dalivim.suavitrine.suavitrine.dtos.ErrorResponse;
+import com.dalivim.suavitrine.suavitrine.infra.exceptions.GlobalExceptionHandler;
+import com.dalivim.suavitrine.suavitrine.infra.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class BoundedPasswordEncoderTests {
+
+	private final CountDownLatch hashing = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	// Hash que só termina quando o teste libera
+	private final PasswordEncoder blockingEncoder = new PasswordEncoder() {
+		@Override
+		public String encode(CharSequence rawPassword) {
+			hashing.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return "hash:" + rawPassword;
+		}
+
+		@Override
+		public boolean matches(CharSequence rawPassword, String encodedPassword) {
+			return encode(rawPassword).equals(encodedPassword);
+		}
+	};
+
+	private final BoundedPasswordEncoder encoder =
+			new BoundedPasswordEncoder(blockingEncoder, 1, 0, Duration.ofSeconds(2), meterRegistry);
+
+	@AfterEach
+	void shutdown() {
+		release.countDown();
+		encoder.shutdown();
+	}
+
+	@Test
+	void rejectsWith429WhileThePoolIsSaturated() throws Exception {
+		CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+		assertThat(hashing.await(5, TimeUnit.SECONDS)).isTrue();
+
+		TooManyRequestsException rejected = catchThrowableOfType(TooManyRequestsException.class,
+				() -> encoder.matches("second", "hash:second"));
+		assertThat(rejected.getRetryAfter()).isEqualTo(Duration.ofSeconds(2));
+		assertThat(meterRegistry.get("auth.password.hashing.rejected").counter().count()).isEqualTo(1);
+
+		ResponseEntity<ErrorResponse> response = new GlobalExceptionHandler()
+				.handleTooManyRequestsException(rejected, new MockHttpServletRequest("POST", "/api/v1/auth/login"));
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+		assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+
+		release.countDown();
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("hash:first");
+	}
+
+	@Test
+	void propagatesErrorsFromTheDelegate() {
+		BoundedPasswordEncoder failing = new BoundedPasswordEncoder(new PasswordEncoder() {
+			@Override
+			public String encode(CharSequence rawPassword) {
+				throw new IllegalArgumentException("senha inválida");
+			}
+
+			@Override
+			public boolean matches(CharSequence rawPassword, String encodedPassword) {
+				return false;
+			}
+		}, 1, 0, Duration.ofSeconds(1), meterRegistry);
+		try {
+			assertThatThrownBy(() -> failing.encode("x")).isInstanceOf(IllegalArgumentException.class);
+		} finally {
+			failing.shutdown();
+		}
+	}
+}
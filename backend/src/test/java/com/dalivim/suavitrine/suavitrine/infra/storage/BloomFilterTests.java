@@ -0,0 +1,40 @@
+package com.dalivim.suavitrine.suavitrine.infra.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTests {
+
+	@Test
+	void neverReportsAnAddedKeyAsMissing() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.add("products/" + i + ".png");
+		}
+
+		for (int i = 0; i < 10_000; i++) {
+			assertThat(filter.mightContain("products/" + i + ".png")).isTrue();
+		}
+	}
+
+	@Test
+	void keepsFalsePositivesNearTheConfiguredRate() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.add("products/" + UUID.randomUUID() + ".jpg");
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 10_000; i++) {
+			if (filter.mightContain("stores/logos/" + UUID.randomUUID() + ".jpg")) {
+				falsePositives++;
+			}
+		}
+
+		assertThat(falsePositives).isLessThan(300);
+		assertThat(filter.sizeInBytes()).isLessThan(16 * 1024);
+	}
+}
@@ -0,0 +1,152 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import com.dalivim.suavitrine.suavitrine.entities.UserRole;
+import com.dalivim.suavitrine.suavitrine.infra.security.AuthenticatedUser;
+import com.dalivim.suavitrine.suavitrine.infra.security.JwtService;
+import com.dalivim.suavitrine.suavitrine.repositories.StoreUserRepository;
+import com.dalivim.suavitrine.suavitrine.repositories.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StoreAccessServiceTests {
+
+	private final StoreUserRepository storeUserRepository = mock(StoreUserRepository.class);
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private final JwtService jwtService = mock(JwtService.class);
+
+	private final UUID userId = UUID.randomUUID();
+	private final UUID firstStoreId = UUID.randomUUID();
+	private final UUID secondStoreId = UUID.randomUUID();
+
+	private StoreAccessService service;
+
+	@BeforeEach
+	void setUp() {
+		service = new StoreAccessService(storeUserRepository, userRepository, jwtService, new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(service, "cacheTtl", Duration.ofMinutes(5));
+		ReflectionTestUtils.setField(service, "cacheMaxEntries", 100);
+		ReflectionTestUtils.setField(service, "membershipVersionTtl", Duration.ofSeconds(30));
+		service.initRoleCache();
+	}
+
+	@Test
+	void claimsKeepTheMembershipOrderAndVersion() {
+		when(userRepository.findMembershipVersion(userId)).thenReturn(Optional.of(7L));
+		when(storeUserRepository.findActiveRolesByUserId(userId)).thenReturn(List.of(
+				new Object[]{firstStoreId, UserRole.OWNER},
+				new Object[]{secondStoreId, UserRole.EMPLOYEE}));
+
+		Map<String, Object> claims = service.membershipClaims(userId);
+
+		assertThat(claims.get(JwtService.MEMBERSHIP_VERSION_CLAIM)).isEqualTo(7L);
+		@SuppressWarnings("unchecked")
+		Map<String, String> stores = (Map<String, String>) claims.get(JwtService.STORES_CLAIM);
+		assertThat(stores).containsExactly(
+				Map.entry(firstStoreId.toString(), "OWNER"),
+				Map.entry(secondStoreId.toString(), "EMPLOYEE"));
+
+		AuthenticatedUser user = AuthenticatedUser.fromClaims(tokenClaims(claims));
+		assertThat(user.storeRoles()).containsExactly(
+				Map.entry(firstStoreId, UserRole.OWNER),
+				Map.entry(secondStoreId, UserRole.EMPLOYEE));
+		assertThat(user.membershipVersion()).isEqualTo(7L);
+	}
+
+	@Test
+	void usesTheTokenRolesWhileTheMembershipVersionIsCurrent() {
+		authenticate(3L);
+		when(userRepository.findMembershipVersion(userId)).thenReturn(Optional.of(3L));
+
+		assertThat(service.findCurrentUserStoreIdFromToken()).contains(firstStoreId);
+		assertThat(service.currentUserCanEditStore(firstStoreId)).isTrue();
+		assertThat(service.currentUserCanEditStore(secondStoreId)).isFalse();
+		assertThat(service.getCurrentUserRole(UUID.randomUUID())).isEmpty();
+
+		verify(storeUserRepository, never()).findActiveRole(any(), any());
+		// A versão atual fica em cache entre as checagens
+		verify(userRepository, times(1)).findMembershipVersion(userId);
+	}
+
+	@Test
+	void fallsBackToTheDatabaseWhenTheTokenIsStale() {
+		authenticate(3L);
+		when(userRepository.findMembershipVersion(userId)).thenReturn(Optional.of(4L));
+		when(storeUserRepository.findActiveRole(secondStoreId, userId)).thenReturn(Optional.of(UserRole.MANAGER));
+
+		assertThat(service.findCurrentUserStoreIdFromToken()).isEmpty();
+		assertThat(service.currentUserCanEditStore(secondStoreId)).isTrue();
+		assertThat(service.currentUserCanEditStore(secondStoreId)).isTrue();
+
+		// Role em cache até o vínculo mudar
+		verify(storeUserRepository, times(1)).findActiveRole(secondStoreId, userId);
+		service.onMembershipChanged(new StoreMembershipChangedEvent(secondStoreId, userId));
+		service.currentUserCanEditStore(secondStoreId);
+		verify(storeUserRepository, times(2)).findActiveRole(secondStoreId, userId);
+	}
+
+	@Test
+	void ignoresTokensWithoutMembershipClaims() {
+		when(jwtService.getCurrentAuthenticatedUser())
+				.thenReturn(new AuthenticatedUser(userId, "Usuário", "user@suavitrine.test", null, null));
+		when(storeUserRepository.findActiveRole(firstStoreId, userId)).thenReturn(Optional.of(UserRole.EMPLOYEE));
+
+		assertThat(service.findCurrentUserStoreIdFromToken()).isEmpty();
+		assertThat(service.getCurrentUserRole(firstStoreId)).contains(UserRole.EMPLOYEE);
+		verify(storeUserRepository).findActiveRole(firstStoreId, userId);
+	}
+
+	@Test
+	void reloadsCachedRolesWhenTheMembershipChangesOnAnotherInstance() {
+		// Versão relida a cada checagem, como depois de expirar o TTL curto da versão
+		ReflectionTestUtils.setField(service, "membershipVersionTtl", Duration.ZERO);
+		service.initRoleCache();
+		when(userRepository.findMembershipVersion(userId))
+				.thenReturn(Optional.of(4L), Optional.of(4L), Optional.of(5L));
+		when(storeUserRepository.findActiveRole(secondStoreId, userId))
+				.thenReturn(Optional.of(UserRole.MANAGER), Optional.empty());
+
+		assertThat(service.belongsToStore(secondStoreId, userId)).isTrue();
+		assertThat(service.belongsToStore(secondStoreId, userId)).isTrue();
+		verify(storeUserRepository, times(1)).findActiveRole(secondStoreId, userId);
+
+		// Vínculo removido em outra instância: nenhum evento local, só a versão nova no banco
+		assertThat(service.belongsToStore(secondStoreId, userId)).isFalse();
+		verify(storeUserRepository, times(2)).findActiveRole(secondStoreId, userId);
+	}
+
+	private void authenticate(long membershipVersion) {
+		Map<UUID, UserRole> storeRoles = new LinkedHashMap<>();
+		storeRoles.put(firstStoreId, UserRole.OWNER);
+		storeRoles.put(secondStoreId, UserRole.EMPLOYEE);
+		when(jwtService.getCurrentAuthenticatedUser())
+				.thenReturn(new AuthenticatedUser(userId, "Usuário", "user@suavitrine.test", storeRoles, membershipVersion));
+	}
+
+	private Claims tokenClaims(Map<String, Object> membershipClaims) {
+		return Jwts.claims()
+				.add(membershipClaims)
+				.add(JwtService.USER_ID_CLAIM, userId.toString())
+				.add(JwtService.NAME_CLAIM, "Usuário")
+				.subject("user@suavitrine.test")
+				.build();
+	}
+}
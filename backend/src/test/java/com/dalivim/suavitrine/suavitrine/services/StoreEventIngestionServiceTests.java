@@ -0,0 +1,232 @@
+package com.dalivim.suavitrine.suavitrine.services;
+
+import com.dalivim.suavitrine.suavitrine.dtos.StoreEventRequest;
+import com.dalivim.suavitrine.suavitrine.entities.StoreEvent;
+import com.dalivim.suavitrine.suavitrine.infra.exceptions.IllegalUserArgumentException;
+import com.dalivim.suavitrine.suavitrine.infra.exceptions.TooManyRequestsException;
+import com.dalivim.suavitrine.suavitrine.repositories.StoreMetricsRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class StoreEventIngestionServiceTests {
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final StoreMetricsRepository storeMetricsRepository = mock(StoreMetricsRepository.class);
+	private final StoreTopEntitiesService storeTopEntitiesService = mock(StoreTopEntitiesService.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final UUID storeId = UUID.randomUUID();
+	private final UUID productId = UUID.randomUUID();
+
+	private StoreEventIngestionService service;
+
+	@AfterEach
+	void stopWriter() {
+		if (service != null && service.isRunning()) {
+			service.stop();
+		}
+	}
+
+	@Test
+	void rejectsWith429WhenTheQueueIsFull() throws Exception {
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		whenBatchInserted().thenAnswer(invocation -> {
+			writing.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return insertedCounts(invocation, null);
+		});
+		service = newService(2, 10);
+		service.start();
+
+		service.enqueue(storeId, event(StoreEvent.EventType.STORE_ACCESS, storeId));
+		assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+		service.enqueue(storeId, event(StoreEvent.EventType.STORE_ACCESS, storeId));
+
+		// As vagas só voltam depois que o lote em escrita termina
+		assertThatThrownBy(() -> service.enqueue(storeId, event(StoreEvent.EventType.STORE_ACCESS, storeId)))
+				.isInstanceOfSatisfying(TooManyRequestsException.class,
+						e -> assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(1)));
+		assertThat(counter("rejected")).isEqualTo(1);
+
+		release.countDown();
+		service.stop();
+		assertThat(counter("accepted")).isEqualTo(2);
+		assertThat(counter("written")).isEqualTo(2);
+	}
+
+	@Test
+	void rejectsBeforeStartAndOversizedBatches() {
+		service = newService(10, 10);
+
+		assertThatThrownBy(() -> service.enqueue(storeId, event(StoreEvent.EventType.STORE_ACCESS, storeId)))
+				.isInstanceOf(TooManyRequestsException.class);
+
+		service.start();
+		String oversized = "[" + String.join(",", Collections.nCopies(11, "{\"eventType\":\"STORE_ACCESS\"}")) + "]";
+		assertThatThrownBy(() -> enqueueBatch(oversized))
+				.isInstanceOf(IllegalUserArgumentException.class);
+		assertThat(counter("accepted")).isZero();
+	}
+
+	@Test
+	void limitsTheBatchBodyInBytes() {
+		service = newService(10, 10, 64);
+		service.start();
+
+		// 55 caracteres, mas 66 bytes em UTF-8
+		byte[] multibyte = ("[{\"eventType\":\"STORE_ACCESS\",\"metadata\":\"" + "é".repeat(11) + "\"}]")
+				.getBytes(StandardCharsets.UTF_8);
+		assertThatThrownBy(() -> service.enqueueBatch(storeId, new ByteArrayInputStream(multibyte), -1, "agent"))
+				.isInstanceOf(IllegalUserArgumentException.class)
+				.hasMessage("Lote de eventos muito grande");
+
+		// Content-Length acima do limite é recusado antes de ler o corpo
+		InputStream unread = mock(InputStream.class);
+		assertThatThrownBy(() -> service.enqueueBatch(storeId, unread, 1_000_000, "agent"))
+				.isInstanceOf(IllegalUserArgumentException.class)
+				.hasMessage("Lote de eventos muito grande");
+		verifyNoInteractions(unread);
+
+		enqueueBatch("[{\"eventType\":\"STORE_ACCESS\"}]");
+		assertThat(counter("accepted")).isEqualTo(1);
+	}
+
+	@Test
+	void flushesBatchesAndCountsOnlyInsertedEvents() {
+		// Eventos da loja inexistente são ignorados pelo INSERT ... WHERE EXISTS
+		UUID missingStoreId = UUID.randomUUID();
+		whenBatchInserted().thenAnswer(invocation -> insertedCounts(invocation, missingStoreId));
+		service = newService(100, 10);
+		service.start();
+
+		enqueueBatch("""
+				[{"eventType":"STORE_ACCESS"},{"eventType":"PRODUCT_CLICK","entityId":"%s"}]
+				""".formatted(productId));
+		service.enqueue(missingStoreId, event(StoreEvent.EventType.STORE_ACCESS, missingStoreId));
+
+		LocalDate today = LocalDate.now(ZoneOffset.UTC);
+		verify(storeMetricsRepository, timeout(5000)).incrementDailyCounters(storeId, today, 1, 1, 0, 0, 0);
+		verify(storeTopEntitiesService, timeout(5000)).record(storeId, today,
+				Map.of(StoreEvent.EventType.PRODUCT_CLICK, Map.of(productId, 1L)));
+		service.stop();
+
+		verify(storeMetricsRepository, never()).incrementDailyCounters(
+				eq(missingStoreId), any(), anyInt(), anyInt(), anyInt(), anyInt(), anyInt());
+		assertThat(counter("accepted")).isEqualTo(3);
+		assertThat(counter("written")).isEqualTo(2);
+	}
+
+	@Test
+	void accumulatesTheBatchIntoOneUpsertPerStoreDay() {
+		whenBatchInserted().thenAnswer(invocation -> insertedCounts(invocation, null));
+		service = newService(100, 10);
+		service.start();
+
+		UUID categoryId = UUID.randomUUID();
+		enqueueBatch("""
+				[{"eventType":"PRODUCT_CLICK","entityId":"%1$s"},
+				 {"eventType":"PRODUCT_CLICK","entityId":"%1$s"},
+				 {"eventType":"PRODUCT_CONVERSION","entityId":"%1$s"},
+				 {"eventType":"CATEGORY_ACCESS","entityId":"%2$s"},
+				 {"eventType":"CATEGORY_CLICK","entityId":"%2$s"}]
+				""".formatted(productId, categoryId));
+
+		LocalDate today = LocalDate.now(ZoneOffset.UTC);
+		verify(storeMetricsRepository, timeout(5000)).incrementDailyCounters(storeId, today, 0, 2, 1, 1, 1);
+		verify(storeTopEntitiesService, timeout(5000)).record(storeId, today, Map.of(
+				StoreEvent.EventType.PRODUCT_CLICK, Map.of(productId, 2L),
+				StoreEvent.EventType.PRODUCT_CONVERSION, Map.of(productId, 1L),
+				StoreEvent.EventType.CATEGORY_ACCESS, Map.of(categoryId, 1L),
+				StoreEvent.EventType.CATEGORY_CLICK, Map.of(categoryId, 1L)));
+		service.stop();
+
+		assertThat(counter("written")).isEqualTo(5);
+	}
+
+	@SuppressWarnings("unchecked")
+	private OngoingStubbing<int[][]> whenBatchInserted() {
+		return when(jdbcTemplate.batchUpdate(anyString(), (Collection<Object>) anyCollection(), anyInt(),
+				any(ParameterizedPreparedStatementSetter.class)));
+	}
+
+	/**
+	 * Contagens do batch insert: 1 por evento, 0 para os eventos de missingStoreId
+	 */
+	private static int[][] insertedCounts(InvocationOnMock invocation, UUID missingStoreId) throws SQLException {
+		Collection<Object> batch = invocation.getArgument(1);
+		ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+		int[] counts = new int[batch.size()];
+		int index = 0;
+		for (Object event : batch) {
+			PreparedStatement ps = mock(PreparedStatement.class);
+			setter.setValues(ps, event);
+			ArgumentCaptor<Object> storeIdCaptor = ArgumentCaptor.forClass(Object.class);
+			verify(ps).setObject(eq(1), storeIdCaptor.capture());
+			counts[index++] = storeIdCaptor.getValue().equals(missingStoreId) ? 0 : 1;
+		}
+		return new int[][]{counts};
+	}
+
+	private void enqueueBatch(String body) {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		service.enqueueBatch(storeId, new ByteArrayInputStream(bytes), bytes.length, "agent");
+	}
+
+	private StoreEventIngestionService newService(int queueCapacity, int maxEventsPerRequest) {
+		return newService(queueCapacity, maxEventsPerRequest, 65536);
+	}
+
+	private StoreEventIngestionService newService(int queueCapacity, int maxEventsPerRequest, int maxBodyBytes) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+		return new StoreEventIngestionService(jdbcTemplate, transactionTemplate, storeMetricsRepository,
+				storeTopEntitiesService, new ObjectMapper(), meterRegistry,
+				queueCapacity, 500, maxEventsPerRequest, maxBodyBytes, Duration.ofSeconds(5));
+	}
+
+	private static StoreEventRequest event(StoreEvent.EventType eventType, UUID entityId) {
+		return StoreEventRequest.builder().eventType(eventType).entityId(entityId).build();
+	}
+
+	private double counter(String result) {
+		return meterRegistry.get("metrics.ingestion.events").tag("result", result).counter().count();
+	}
+}
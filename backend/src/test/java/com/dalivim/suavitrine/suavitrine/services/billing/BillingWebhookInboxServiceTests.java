@@ -0,0 +1,152 @@
+package com.dalivim.suavitrine.suavitrine.services.billing;
+
+import com.dalivim.suavitrine.suavitrine.entities.billing.BillingWebhookInbox;
+import com.dalivim.suavitrine.suavitrine.infra.exceptions.ObjectNotFoundException;
+import com.dalivim.suavitrine.suavitrine.repositories.BillingWebhookInboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BillingWebhookInboxServiceTests {
+
+	private final BillingWebhookInboxRepository inboxRepository = mock(BillingWebhookInboxRepository.class);
+	private final AbacateBillingService abacateBillingService = mock(AbacateBillingService.class);
+	private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final BillingWebhookInboxService service = new BillingWebhookInboxService(
+			inboxRepository,
+			abacateBillingService,
+			new TransactionTemplate(mock(PlatformTransactionManager.class)),
+			new ObjectMapper(),
+			eventPublisher,
+			meterRegistry,
+			Duration.ofSeconds(10),
+			Duration.ofMinutes(30),
+			3,
+			Duration.ofMinutes(10));
+
+	@AfterEach
+	void shutdown() {
+		service.shutdown();
+	}
+
+	@Test
+	void ignoresRedeliveredWebhooks() {
+		when(inboxRepository.insertIfAbsent("wh_1", "billing.paid", "{}")).thenReturn(1, 0);
+
+		assertThat(service.receive("wh_1", "billing.paid", "{}")).isTrue();
+		assertThat(service.receive("wh_1", "billing.paid", "{}")).isFalse();
+
+		verify(eventPublisher, times(1)).publishEvent(new BillingWebhookReceivedEvent("wh_1"));
+		assertThat(counter("received")).isEqualTo(1);
+		assertThat(counter("duplicate")).isEqualTo(1);
+	}
+
+	@Test
+	void backsOffExponentiallyUpToTheMaximum() {
+		assertThat(service.backoff(1)).isEqualTo(Duration.ofSeconds(10));
+		assertThat(service.backoff(2)).isEqualTo(Duration.ofSeconds(20));
+		assertThat(service.backoff(3)).isEqualTo(Duration.ofSeconds(40));
+		assertThat(service.backoff(8)).isEqualTo(Duration.ofSeconds(1280));
+		assertThat(service.backoff(9)).isEqualTo(Duration.ofMinutes(30));
+		assertThat(service.backoff(40)).isEqualTo(Duration.ofMinutes(30));
+	}
+
+	@Test
+	void schedulesARetryAfterATransientFailure() {
+		BillingWebhookInbox entry = pending(0, "{}");
+		givenNextDue(entry);
+		doThrow(new ObjectNotFoundException("Billing não encontrado")).when(abacateBillingService).processWebhook(any());
+
+		assertThat(service.processNext()).isTrue();
+
+		assertThat(entry.getStatus()).isEqualTo(BillingWebhookInbox.Status.PENDING);
+		assertThat(entry.getAttempts()).isEqualTo(1);
+		assertThat(entry.getNextAttemptAt()).isCloseTo(Instant.now().plusSeconds(10), within(Duration.ofSeconds(2)));
+		assertThat(entry.getLastError()).contains("Billing não encontrado");
+		assertThat(counter("retried")).isEqualTo(1);
+		assertThat(counter("failed")).isZero();
+	}
+
+	@Test
+	void failsAfterMaxAttempts() {
+		BillingWebhookInbox entry = pending(2, "{}");
+		givenNextDue(entry);
+		doThrow(new ObjectNotFoundException("Billing não encontrado")).when(abacateBillingService).processWebhook(any());
+
+		assertThat(service.processNext()).isTrue();
+
+		assertThat(entry.getStatus()).isEqualTo(BillingWebhookInbox.Status.FAILED);
+		assertThat(entry.getAttempts()).isEqualTo(3);
+		assertThat(counter("failed")).isEqualTo(1);
+	}
+
+	@Test
+	void failsImmediatelyOnAnInvalidPayload() {
+		BillingWebhookInbox entry = pending(0, "not json");
+		givenNextDue(entry);
+
+		assertThat(service.processNext()).isTrue();
+
+		assertThat(entry.getStatus()).isEqualTo(BillingWebhookInbox.Status.FAILED);
+		assertThat(entry.getAttempts()).isEqualTo(1);
+		assertThat(entry.getLastError()).startsWith("IllegalUserArgumentException");
+		verify(abacateBillingService, never()).processWebhook(any());
+		assertThat(counter("retried")).isZero();
+	}
+
+	@Test
+	void marksProcessedAndStopsWhenNothingIsDue() {
+		BillingWebhookInbox entry = pending(0, "{}");
+		when(inboxRepository.lockNextDue()).thenReturn(Optional.of(entry), Optional.empty());
+
+		assertThat(service.processNext()).isTrue();
+		assertThat(service.processNext()).isFalse();
+
+		assertThat(entry.getStatus()).isEqualTo(BillingWebhookInbox.Status.PROCESSED);
+		assertThat(entry.getAttempts()).isEqualTo(1);
+		assertThat(entry.getProcessedAt()).isNotNull();
+		assertThat(counter("processed")).isEqualTo(1);
+	}
+
+	private void givenNextDue(BillingWebhookInbox entry) {
+		when(inboxRepository.lockNextDue()).thenReturn(Optional.of(entry));
+		when(inboxRepository.findById(entry.getId())).thenReturn(Optional.of(entry));
+	}
+
+	private static BillingWebhookInbox pending(int attempts, String payload) {
+		return BillingWebhookInbox.builder()
+				.id(1L)
+				.webhookId("wh_1")
+				.event("billing.paid")
+				.payload(payload)
+				.status(BillingWebhookInbox.Status.PENDING)
+				.attempts(attempts)
+				.nextAttemptAt(Instant.now())
+				.receivedAt(Instant.now())
+				.build();
+	}
+
+	private double counter(String result) {
+		return meterRegistry.get("billing.webhook.inbox").tag("result", result).counter().count();
+	}
+}
@@ -0,0 +1,143 @@
+package com.dalivim.suavitrine.suavitrine.services.billing;
+
+import com.dalivim.suavitrine.suavitrine.dtos.BillingResponse;
+import com.dalivim.suavitrine.suavitrine.entities.Store;
+import com.dalivim.suavitrine.suavitrine.entities.StoreUser;
+import com.dalivim.suavitrine.suavitrine.entities.User;
+import com.dalivim.suavitrine.suavitrine.entities.UserRole;
+import com.dalivim.suavitrine.suavitrine.entities.billing.Billing;
+import com.dalivim.suavitrine.suavitrine.entities.billing.PayingPlan;
+import com.dalivim.suavitrine.suavitrine.entities.billing.PlanDuration;
+import com.dalivim.suavitrine.suavitrine.infra.security.AuthenticatedUser;
+import com.dalivim.suavitrine.suavitrine.repositories.BillingRepository;
+import com.dalivim.suavitrine.suavitrine.repositories.StoreRepository;
+import com.dalivim.suavitrine.suavitrine.repositories.StoreUserRepository;
+import com.dalivim.suavitrine.suavitrine.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fluxo completo contra o FakeAbacatePayServer (perfil test, duplicate-rate=1): cada
+ * cobrança recebe o mesmo webhook billing.paid duas vezes, em ordem aleatória entre
+ * billings. Requer o PostgreSQL de application-test.properties.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
+@ActiveProfiles("test")
+class FakeAbacatePayWebhookTests {
+
+	private static final int BILLINGS = 5;
+
+	@Autowired
+	private IBillingService billingService;
+
+	@Autowired
+	private BillingRepository billingRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private StoreRepository storeRepository;
+
+	@Autowired
+	private StoreUserRepository storeUserRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@AfterEach
+	void clearAuthentication() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void duplicateAndOutOfOrderWebhooksMarkEachBillingPaidOnce() {
+		double deliveredBefore = counter("abacate.fake.webhook", "delivered");
+		double duplicatesBefore = counter("billing.webhook.inbox", "duplicate");
+		double processedBefore = counter("billing.webhook.inbox", "processed");
+
+		User user = userRepository.save(User.builder()
+				.name("Teste Billing")
+				.email("billing-" + UUID.randomUUID() + "@suavitrine.test")
+				.password("not-used")
+				.build());
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+				AuthenticatedUser.from(user), null, List.of()));
+
+		List<UUID> billingIds = new ArrayList<>();
+		for (int i = 0; i < BILLINGS; i++) {
+			Store store = createStore(user);
+			BillingResponse response = billingService.createBillingRequest(
+					store.getId(), PayingPlan.BASIC, PlanDuration.MONTHLY, "12345678909");
+			billingIds.add(response.id());
+		}
+
+		// Cada cobrança gera duas entregas do mesmo webhook
+		awaitUntil(() -> counter("abacate.fake.webhook", "delivered") - deliveredBefore >= 2 * BILLINGS);
+		awaitUntil(() -> counter("billing.webhook.inbox", "processed") - processedBefore >= BILLINGS);
+
+		Map<UUID, Instant> paidAt = new HashMap<>();
+		for (UUID billingId : billingIds) {
+			Billing billing = billingRepository.findById(billingId).orElseThrow();
+			assertThat(billing.getPaidAt()).as("paidAt do billing %s", billingId).isNotNull();
+			paidAt.put(billingId, billing.getPaidAt());
+		}
+
+		assertThat(counter("billing.webhook.inbox", "duplicate") - duplicatesBefore).isEqualTo(BILLINGS);
+		assertThat(counter("billing.webhook.inbox", "processed") - processedBefore).isEqualTo(BILLINGS);
+		// As repetições não reprocessam: paidAt continua o da primeira entrega
+		for (UUID billingId : billingIds) {
+			assertThat(billingRepository.findById(billingId).orElseThrow().getPaidAt()).isEqualTo(paidAt.get(billingId));
+		}
+	}
+
+	private Store createStore(User user) {
+		Store store = new Store();
+		store.setName("Loja Billing");
+		store.setSlug("billing-" + UUID.randomUUID());
+		store.setPhoneNumber("11999999999");
+		store = storeRepository.save(store);
+
+		StoreUser storeUser = new StoreUser();
+		storeUser.setStore(store);
+		storeUser.setUser(user);
+		storeUser.setRole(UserRole.OWNER);
+		storeUserRepository.save(storeUser);
+		return store;
+	}
+
+	private double counter(String name, String result) {
+		var counter = meterRegistry.find(name).tag("result", result).counter();
+		return counter != null ? counter.count() : 0;
+	}
+
+	private static void awaitUntil(BooleanSupplier condition) {
+		Instant deadline = Instant.now().plus(Duration.ofSeconds(20));
+		while (!condition.getAsBoolean()) {
+			assertThat(Instant.now()).as("condição não atingida no prazo").isBefore(deadline);
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}